@@ -0,0 +1,116 @@
+package flutter.plugins.contactos;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Minimal JMH-style harness: warm-up iterations, measured iterations with per-iteration setup
+ * outside the timed region, throughput and per-thread allocation from the JVM's ThreadMXBean.
+ *
+ * <p>JMH itself does not run inside Robolectric's sandboxed class loader, which the cursor and
+ * resource paths need, so this keeps the same measurement discipline without the annotation
+ * processor.
+ */
+final class BenchmarkHarness {
+
+  interface Setup<S> {
+    S create();
+  }
+
+  interface Operation<S> {
+    Object run(S state);
+  }
+
+  static final class Result {
+    final String name;
+    final int size;
+    final int iterations;
+    final double opsPerSecond;
+    final double nanosPerOp;
+    // Fastest single iteration; steadier than the mean on a busy machine.
+    final double bestNanosPerOp;
+    final double bytesPerOp;
+
+    Result(String name, int size, int iterations, double opsPerSecond, double nanosPerOp, double bestNanosPerOp,
+        double bytesPerOp) {
+      this.name = name;
+      this.size = size;
+      this.iterations = iterations;
+      this.opsPerSecond = opsPerSecond;
+      this.nanosPerOp = nanosPerOp;
+      this.bestNanosPerOp = bestNanosPerOp;
+      this.bytesPerOp = bytesPerOp;
+    }
+
+    double bytesPerItem() {
+      return size == 0 ? 0 : bytesPerOp / size;
+    }
+
+    double allocationRateMbPerSecond() {
+      return nanosPerOp == 0 ? 0 : bytesPerOp / nanosPerOp * 1e9 / (1024 * 1024);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "%-28s %8d %10.2f ops/s %14.0f ns/op %14.0f B/op %10.1f B/item %10.1f MB/s",
+          name, size, opsPerSecond, nanosPerOp, bytesPerOp, bytesPerItem(), allocationRateMbPerSecond());
+    }
+  }
+
+  // Results are folded into this field so the JIT cannot drop the measured work.
+  static volatile int blackhole;
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private final ArrayList<Result> results = new ArrayList<>();
+
+  <S> Result measure(String name, int size, int warmups, int iterations, Setup<S> setup, Operation<S> operation) {
+    for (int i = 0; i < warmups; i++) {
+      blackhole ^= System.identityHashCode(operation.run(setup.create()));
+    }
+
+    long thread = Thread.currentThread().getId();
+    long totalNanos = 0;
+    long bestNanos = Long.MAX_VALUE;
+    long totalBytes = 0;
+    for (int i = 0; i < iterations; i++) {
+      S state = setup.create();
+      long bytesBefore = THREADS.getThreadAllocatedBytes(thread);
+      long start = System.nanoTime();
+      Object value = operation.run(state);
+      long nanos = System.nanoTime() - start;
+      totalNanos += nanos;
+      bestNanos = Math.min(bestNanos, nanos);
+      totalBytes += THREADS.getThreadAllocatedBytes(thread) - bytesBefore;
+      blackhole ^= System.identityHashCode(value);
+    }
+
+    double nanosPerOp = (double) totalNanos / iterations;
+    Result result = new Result(name, size, iterations, 1e9 / nanosPerOp, nanosPerOp, bestNanos,
+        (double) totalBytes / iterations);
+    results.add(result);
+    System.out.println(result);
+    return result;
+  }
+
+  /** Writes all results as CSV so CI can archive and diff them. */
+  void writeCsv(File file) throws IOException {
+    File parent = file.getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs()) {
+      throw new IOException("Cannot create " + parent);
+    }
+    try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+      writer.println("name,size,iterations,ops_per_second,nanos_per_op,bytes_per_op,bytes_per_item");
+      for (Result r : results) {
+        writer.println(String.format(Locale.ROOT, "%s,%d,%d,%.3f,%.0f,%.0f,%.1f",
+            r.name, r.size, r.iterations, r.opsPerSecond, r.nanosPerOp, r.bytesPerOp, r.bytesPerItem()));
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package flutter.plugins.contactos;
+
+import android.content.res.Resources;
+import android.database.MatrixCursor;
+import android.provider.ContactsContract.CommonDataKinds;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * Throughput and allocation benchmarks for the cursor-to-map hot path.
+ *
+ * <p>Run with {@code ./gradlew testDebugUnitTest -Pbenchmark}; results are printed and written to
+ * {@code build/reports/benchmarks/read-pipeline.csv}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ReadPipelineBenchmark {
+
+  private static final long SEED = 42L;
+  private static final int[] SIZES = {1_000, 10_000, 100_000};
+
+  @Test
+  public void readPipeline() throws Exception {
+    Resources resources = ApplicationProvider.getApplicationContext().getResources();
+    BenchmarkHarness harness = new BenchmarkHarness();
+
+    for (int size : SIZES) {
+      SyntheticAddressBook book = new SyntheticAddressBook(SEED, size);
+      int warmups = size >= 100_000 ? 2 : 10;
+      int iterations = size >= 100_000 ? 5 : 20;
+
+      harness.measure("getContactsFrom", size, warmups, iterations,
+          book::newDataCursor,
+          (MatrixCursor cursor) -> ContactosPlugin.getContactsFrom(cursor, resources, false));
+
+      harness.measure("getContactsFrom/localized", size, warmups, iterations,
+          book::newDataCursor,
+          (MatrixCursor cursor) -> ContactosPlugin.getContactsFrom(cursor, resources, true));
+
+      ArrayList<Contact> contacts = ContactosPlugin.getContactsFrom(book.newDataCursor(), resources, false);
+
+      harness.measure("Contact.toMap", size, warmups, iterations,
+          () -> contacts,
+          (ArrayList<Contact> list) -> {
+            ArrayList<HashMap> maps = new ArrayList<>(list.size());
+            for (Contact c : list) maps.add(c.toMap());
+            return maps;
+          });
+
+      ArrayList<HashMap> maps = new ArrayList<>(contacts.size());
+      for (Contact c : contacts) maps.add(c.toMap());
+
+      harness.measure("Contact.fromMap", size, warmups, iterations,
+          () -> maps,
+          (ArrayList<HashMap> list) -> {
+            ArrayList<Contact> parsed = new ArrayList<>(list.size());
+            for (HashMap map : list) parsed.add(Contact.fromMap(map));
+            return parsed;
+          });
+
+      harness.measure("sort(orderByGivenName)", size, warmups, iterations,
+          () -> {
+            ArrayList<Contact> copy = new ArrayList<>(contacts);
+            Collections.shuffle(copy, new java.util.Random(SEED));
+            return copy;
+          },
+          (ArrayList<Contact> list) -> {
+            Collections.sort(list, Comparator.naturalOrder());
+            return list;
+          });
+
+      harness.measure("Item.getPhoneLabel", size, warmups, iterations,
+          () -> resources,
+          (Resources res) -> {
+            int hash = 0;
+            for (int i = 0; i < size; i++) {
+              hash += Item.getPhoneLabel(res, 1 + i % CommonDataKinds.Phone.TYPE_MMS, (String) null, false).length();
+            }
+            return hash;
+          });
+
+      harness.measure("Item.getPhoneLabel/localized", size, warmups, iterations,
+          () -> resources,
+          (Resources res) -> {
+            int hash = 0;
+            for (int i = 0; i < size; i++) {
+              hash += Item.getPhoneLabel(res, 1 + i % CommonDataKinds.Phone.TYPE_MMS, (String) null, true).length();
+            }
+            return hash;
+          });
+
+      // As the aggregator uses it: tables resolved once per cursor, one lookup per row.
+      harness.measure("LabelTables.phone/localized", size, warmups, iterations,
+          () -> LabelTables.get(resources, true),
+          (LabelTables tables) -> {
+            int hash = 0;
+            for (int i = 0; i < size; i++) {
+              hash += tables.phone(1 + i % CommonDataKinds.Phone.TYPE_MMS, null).length();
+            }
+            return hash;
+          });
+    }
+
+    harness.writeCsv(new File("build/reports/benchmarks/read-pipeline.csv"));
+  }
+}
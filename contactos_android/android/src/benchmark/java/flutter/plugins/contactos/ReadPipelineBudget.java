@@ -0,0 +1,64 @@
+package flutter.plugins.contactos;
+
+import android.content.res.Resources;
+import android.database.MatrixCursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+
+/**
+ * The measured read pipeline (getContactsFrom followed by toMap) and the checked-in budgets in
+ * {@code read-pipeline-baseline.properties}, shared by {@link ReadPipelineRegressionTest} and
+ * {@link ReadPipelineThroughputBenchmark}.
+ */
+final class ReadPipelineBudget {
+
+  static final long SEED = 42L;
+  static final int SMALL = 1_000;
+  static final int LARGE = 8_000;
+
+  private static final int WARMUPS = 10;
+  private static final int ITERATIONS = 10;
+
+  private final Properties baseline;
+
+  private ReadPipelineBudget(Properties baseline) {
+    this.baseline = baseline;
+  }
+
+  static ReadPipelineBudget load() throws IOException {
+    Properties baseline = new Properties();
+    try (InputStream in = ReadPipelineBudget.class.getResourceAsStream("read-pipeline-baseline.properties")) {
+      baseline.load(in);
+    }
+    return new ReadPipelineBudget(baseline);
+  }
+
+  double number(String key) {
+    String value = baseline.getProperty(key);
+    if (value == null) throw new IllegalStateException("Missing baseline " + key);
+    return Double.parseDouble(value);
+  }
+
+  static BenchmarkHarness.Result measure(SyntheticAddressBook book, int size) {
+    Resources resources = ApplicationProvider.getApplicationContext().getResources();
+    return new BenchmarkHarness().measure("getContactsFrom+toMap", size, WARMUPS, ITERATIONS,
+        book::newDataCursor,
+        (MatrixCursor cursor) -> {
+          ArrayList<Contact> contacts = ContactosPlugin.getContactsFrom(cursor, resources, false);
+          ArrayList<HashMap> maps = new ArrayList<>(contacts.size());
+          for (Contact contact : contacts) maps.add(contact.toMap());
+          return maps;
+        });
+  }
+
+  // Based on the fastest iteration, which a busy machine disturbs least.
+  static double rowsPerMilli(SyntheticAddressBook book, BenchmarkHarness.Result result) {
+    return book.dataRows().size() / (result.bestNanosPerOp / 1e6);
+  }
+}
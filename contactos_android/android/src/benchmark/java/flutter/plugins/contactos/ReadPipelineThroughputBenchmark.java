@@ -0,0 +1,43 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+import static flutter.plugins.contactos.ReadPipelineBudget.LARGE;
+import static flutter.plugins.contactos.ReadPipelineBudget.SEED;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+
+/**
+ * Absolute wall-clock budget for the read pipeline, checked against
+ * {@code read-pipeline-baseline.properties}.
+ *
+ * <p>Rows per millisecond depend on the machine, so this only runs with
+ * {@code ./gradlew testDebugUnitTest -Pbenchmark}; {@link ReadPipelineRegressionTest} keeps the
+ * allocation and growth checks in the default suite.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ReadPipelineThroughputBenchmark {
+
+  private static ReadPipelineBudget budget;
+
+  @BeforeClass
+  public static void loadBaseline() throws IOException {
+    budget = ReadPipelineBudget.load();
+  }
+
+  @Test
+  public void rowsPerMillisecond_staysWithinBaseline() {
+    SyntheticAddressBook book = new SyntheticAddressBook(SEED, LARGE);
+    BenchmarkHarness.Result result = ReadPipelineBudget.measure(book, LARGE);
+
+    double floor = budget.number("rowsPerMilli") / budget.number("throughputTolerance");
+    assertWithMessage("rows per millisecond, baseline %s", (long) budget.number("rowsPerMilli"))
+        .that(ReadPipelineBudget.rowsPerMilli(book, result)).isAtLeast(floor);
+  }
+}
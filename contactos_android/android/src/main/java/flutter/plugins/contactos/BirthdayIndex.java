@@ -0,0 +1,155 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TimeZone;
+
+/***
+ * Birthdays of the address book sorted by day of the year, built from the
+ * birthday Event rows alone. Finding the next birthdays is a binary search for
+ * today followed by a walk that wraps around the end of the year.
+ *
+ * Days are numbered in a leap year, so 29 February has a slot of its own; in
+ * other years it is celebrated on 1 March.
+ ***/
+final class BirthdayIndex {
+    static final int DEFAULT_LIMIT = 10;
+
+    // Days before each month in a leap year.
+    private static final int[] DAYS_BEFORE_MONTH = {0, 31, 60, 91, 121, 152, 182, 213, 244, 274, 305, 335};
+    private static final int[] DAYS_IN_MONTH = {31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    static final class Entry {
+        final String identifier;
+        final String displayName;
+        final String birthday;
+        final int month;
+        final int day;
+        // 0 when the source omits the year (--MM-DD).
+        final int year;
+        final int dayOfYear;
+
+        Entry(String identifier, String displayName, String birthday, int year, int month, int day) {
+            this.identifier = identifier;
+            this.displayName = displayName;
+            this.birthday = birthday;
+            this.year = year;
+            this.month = month;
+            this.day = day;
+            this.dayOfYear = dayOfYear(month, day);
+        }
+    }
+
+    // Version of the provider data the index was built from; see ContactosPlugin#contactsVersion.
+    final long version;
+    private final Entry[] entries;
+
+    BirthdayIndex(List<Entry> entries, long version) {
+        this.version = version;
+        this.entries = entries.toArray(new Entry[0]);
+        Arrays.sort(this.entries, (a, b) -> Integer.compare(a.dayOfYear, b.dayOfYear));
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    // Up to limit birthdays on or after the given date, soonest first, at most
+    // withinDays days away (negative for no bound). Month is 1-based.
+    List<HashMap<String, Object>> upcoming(int year, int month, int day, int limit, int withinDays) {
+        ArrayList<HashMap<String, Object>> result = new ArrayList<>();
+        if (entries.length == 0 || limit <= 0) return result;
+
+        int today = dayOfYear(month, day);
+        // On 1 March of a common year, 29 February birthdays are still ahead.
+        if (month == 3 && day == 1 && !isLeapYear(year)) today--;
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries[middle].dayOfYear < today) low = middle + 1;
+            else high = middle;
+        }
+
+        long todayMillis = utcMillis(year, month, day);
+        for (int i = 0; i < entries.length && result.size() < limit; i++) {
+            Entry entry = entries[(low + i) % entries.length];
+            int nextYear = low + i < entries.length ? year : year + 1;
+            int days = (int) ((nextBirthdayMillis(nextYear, entry) - todayMillis) / MILLIS_PER_DAY);
+            if (withinDays >= 0 && days > withinDays) break;
+
+            HashMap<String, Object> map = new HashMap<>(6);
+            map.put("identifier", entry.identifier);
+            map.put("displayName", entry.displayName);
+            map.put("birthday", entry.birthday);
+            map.put("daysUntil", days);
+            map.put("age", entry.year > 0 ? nextYear - entry.year : null);
+            result.add(map);
+        }
+        return result;
+    }
+
+    // Accepts --MM-DD and --MMDD (no year), YYYY-MM-DD and YYYYMMDD, optionally
+    // followed by a time as some sync adapters store it. Returns null otherwise.
+    static Entry parse(String identifier, String displayName, String birthday) {
+        if (birthday == null) return null;
+        String date = birthday.trim();
+        int time = Math.max(date.indexOf('T'), date.indexOf(' '));
+        if (time > 0) date = date.substring(0, time);
+
+        int year = 0;
+        String monthDay;
+        if (date.startsWith("--")) {
+            monthDay = date.substring(2);
+        } else if (date.length() >= 8 && digits(date, 0, 4)) {
+            year = Integer.parseInt(date.substring(0, 4));
+            monthDay = date.charAt(4) == '-' ? date.substring(5) : date.substring(4);
+        } else {
+            return null;
+        }
+        if (monthDay.length() == 5 && monthDay.charAt(2) == '-') {
+            monthDay = monthDay.substring(0, 2) + monthDay.substring(3);
+        }
+        if (monthDay.length() != 4 || !digits(monthDay, 0, 4)) return null;
+
+        int month = Integer.parseInt(monthDay.substring(0, 2));
+        int day = Integer.parseInt(monthDay.substring(2));
+        if (month < 1 || month > 12 || day < 1 || day > DAYS_IN_MONTH[month - 1]) return null;
+        return new Entry(identifier, displayName, birthday, year, month, day);
+    }
+
+    static int dayOfYear(int month, int day) {
+        return DAYS_BEFORE_MONTH[month - 1] + day;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static boolean digits(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') return false;
+        }
+        return true;
+    }
+
+    // 29 February rolls over to 1 March in a common year.
+    private static long nextBirthdayMillis(int year, Entry entry) {
+        return utcMillis(year, entry.month, entry.day);
+    }
+
+    private static long utcMillis(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month - 1, day);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -5,7 +5,9 @@
 package flutter.plugins.contactos;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
 public class Contact implements Comparable<Contact> {
 
@@ -16,15 +18,44 @@ public class Contact implements Comparable<Contact> {
     private Contact() {
     }
 
+    // Shared by every contact without an avatar; never written to.
+    static final byte[] NO_AVATAR = new byte[0];
+
     String identifier;
     String displayName, givenName, middleName, familyName, prefix, suffix, company, jobTitle, note, birthday, androidAccountType, androidAccountName;
-    ArrayList<Item> emails = new ArrayList<>();
-    ArrayList<Item> phones = new ArrayList<>();
-    ArrayList<PostalAddress> postalAddresses = new ArrayList<>();
-    byte[] avatar = new byte[0];
+    // Start as shared immutable empties; the add* methods allocate on first use,
+    // so contacts without emails or addresses cost no list at all.
+    List<Item> emails = Collections.emptyList();
+    List<Item> phones = Collections.emptyList();
+    List<PostalAddress> postalAddresses = Collections.emptyList();
+    byte[] avatar = NO_AVATAR;
+    // Version of the attached avatar, see ContactosPlugin#avatarEtag; null when none was read.
+    String avatarEtag;
+
+    void addEmail(Item email) {
+        if (emails.isEmpty()) emails = new ArrayList<>(2);
+        emails.add(email);
+    }
+
+    void addPhone(Item phone) {
+        if (phones.isEmpty()) phones = new ArrayList<>(2);
+        phones.add(phone);
+    }
+
+    void addPostalAddress(PostalAddress address) {
+        if (postalAddresses.isEmpty()) postalAddresses = new ArrayList<>(1);
+        postalAddresses.add(address);
+    }
 
     HashMap<String, Object> toMap() {
-        HashMap<String, Object> contactMap = new HashMap<>();
+        return toMap(null);
+    }
+
+    // With a dictionary, account, company, job title, label and place fields are
+    // written as indices into it.
+    HashMap<String, Object> toMap(StringDictionary dictionary) {
+        // 18 entries stay below the resize threshold of a 32-bucket table.
+        HashMap<String, Object> contactMap = new HashMap<>(32);
         contactMap.put("identifier", identifier);
         contactMap.put("displayName", displayName);
         contactMap.put("givenName", givenName);
@@ -32,29 +63,30 @@ public class Contact implements Comparable<Contact> {
         contactMap.put("familyName", familyName);
         contactMap.put("prefix", prefix);
         contactMap.put("suffix", suffix);
-        contactMap.put("company", company);
-        contactMap.put("jobTitle", jobTitle);
+        contactMap.put("company", StringDictionary.encode(dictionary, company));
+        contactMap.put("jobTitle", StringDictionary.encode(dictionary, jobTitle));
         contactMap.put("avatar", avatar);
+        contactMap.put("avatarEtag", avatarEtag);
         contactMap.put("note", note);
         contactMap.put("birthday", birthday);
-        contactMap.put("androidAccountType", androidAccountType);
-        contactMap.put("androidAccountName", androidAccountName);
+        contactMap.put("androidAccountType", StringDictionary.encode(dictionary, androidAccountType));
+        contactMap.put("androidAccountName", StringDictionary.encode(dictionary, androidAccountName));
 
-        ArrayList<HashMap<String, String>> emailsMap = new ArrayList<>();
+        ArrayList<HashMap<String, Object>> emailsMap = new ArrayList<>(emails.size());
         for (Item email : emails) {
-            emailsMap.add(email.toMap());
+            emailsMap.add(email.toMap(dictionary));
         }
         contactMap.put("emails", emailsMap);
 
-        ArrayList<HashMap<String, String>> phonesMap = new ArrayList<>();
+        ArrayList<HashMap<String, Object>> phonesMap = new ArrayList<>(phones.size());
         for (Item phone : phones) {
-            phonesMap.add(phone.toMap());
+            phonesMap.add(phone.toMap(dictionary));
         }
         contactMap.put("phones", phonesMap);
 
-        ArrayList<HashMap<String, String>> addressesMap = new ArrayList<>();
+        ArrayList<HashMap<String, Object>> addressesMap = new ArrayList<>(postalAddresses.size());
         for (PostalAddress address : postalAddresses) {
-            addressesMap.add(address.toMap());
+            addressesMap.add(address.toMap(dictionary));
         }
         contactMap.put("postalAddresses", addressesMap);
 
@@ -81,19 +113,19 @@ public class Contact implements Comparable<Contact> {
         ArrayList<HashMap> emails = (ArrayList<HashMap>) map.get("emails");
         if (emails != null) {
             for (HashMap email : emails) {
-                contact.emails.add(Item.fromMap(email));
+                contact.addEmail(Item.fromMap(email));
             }
         }
         ArrayList<HashMap> phones = (ArrayList<HashMap>) map.get("phones");
         if (phones != null) {
             for (HashMap phone : phones) {
-                contact.phones.add(Item.fromMap(phone));
+                contact.addPhone(Item.fromMap(phone));
             }
         }
         ArrayList<HashMap> postalAddresses = (ArrayList<HashMap>) map.get("postalAddresses");
         if (postalAddresses != null) {
             for (HashMap postalAddress : postalAddresses) {
-                contact.postalAddresses.add(PostalAddress.fromMap(postalAddress));
+                contact.addPostalAddress(PostalAddress.fromMap(postalAddress));
             }
         }
         return contact;
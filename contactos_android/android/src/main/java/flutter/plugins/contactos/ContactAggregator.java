@@ -0,0 +1,270 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import android.content.res.Resources;
+import android.database.Cursor;
+import android.provider.ContactsContract;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+
+import static android.provider.ContactsContract.CommonDataKinds;
+import static android.provider.ContactsContract.CommonDataKinds.Email;
+import static android.provider.ContactsContract.CommonDataKinds.Organization;
+import static android.provider.ContactsContract.CommonDataKinds.Phone;
+import static android.provider.ContactsContract.CommonDataKinds.StructuredName;
+import static android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
+
+/***
+ * Groups Data rows into contacts. Column indices are resolved once per cursor,
+ * contacts are keyed by primitive long IDs, and consecutive rows of the same
+ * contact skip the lookup entirely.
+ *
+ * Rows are folded straight into Contact objects rather than columnar per-field
+ * buffers: every caller (toMap, the snapshot, vCard export, the indexes) reads
+ * whole contacts, so columns would only be copied back into objects.
+ ***/
+final class ContactAggregator {
+    private static final int KIND_FROM_ROW = -1;
+    private static final int KIND_UNKNOWN = 0;
+    private static final int KIND_NAME = 1;
+    private static final int KIND_NOTE = 2;
+    private static final int KIND_PHONE = 3;
+    private static final int KIND_EMAIL = 4;
+    private static final int KIND_ORGANIZATION = 5;
+    private static final int KIND_POSTAL = 6;
+    private static final int KIND_EVENT = 7;
+
+    private final Cursor cursor;
+    // Resolved once per cursor, so labels are array lookups per row.
+    private final LabelTables labels;
+    // Shares one instance per distinct account, company and place value.
+    private final StringPool strings = new StringPool();
+
+    private final int contactIdColumn;
+    private final int mimeTypeColumn;
+    private final int displayNameColumn;
+    private final int accountTypeColumn;
+    private final int accountNameColumn;
+    private final int givenNameColumn;
+    private final int middleNameColumn;
+    private final int familyNameColumn;
+    private final int prefixColumn;
+    private final int suffixColumn;
+    private final int noteColumn;
+    private final int phoneNumberColumn;
+    private final int phoneTypeColumn;
+    private final int phoneLabelColumn;
+    private final int emailAddressColumn;
+    private final int emailTypeColumn;
+    private final int emailLabelColumn;
+    private final int companyColumn;
+    private final int titleColumn;
+    private final int postalTypeColumn;
+    private final int postalLabelColumn;
+    private final int streetColumn;
+    private final int cityColumn;
+    private final int postcodeColumn;
+    private final int regionColumn;
+    private final int countryColumn;
+    private final int eventTypeColumn;
+    private final int eventStartDateColumn;
+
+    ContactAggregator(Cursor cursor, Resources resources, boolean localizedLabels) {
+        this.cursor = cursor;
+        this.labels = LabelTables.get(resources, localizedLabels);
+
+        contactIdColumn = cursor.getColumnIndex(ContactsContract.Data.CONTACT_ID);
+        mimeTypeColumn = cursor.getColumnIndex(ContactsContract.Data.MIMETYPE);
+        displayNameColumn = cursor.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME);
+        accountTypeColumn = cursor.getColumnIndex(ContactsContract.RawContacts.ACCOUNT_TYPE);
+        accountNameColumn = cursor.getColumnIndex(ContactsContract.RawContacts.ACCOUNT_NAME);
+        givenNameColumn = cursor.getColumnIndex(StructuredName.GIVEN_NAME);
+        middleNameColumn = cursor.getColumnIndex(StructuredName.MIDDLE_NAME);
+        familyNameColumn = cursor.getColumnIndex(StructuredName.FAMILY_NAME);
+        prefixColumn = cursor.getColumnIndex(StructuredName.PREFIX);
+        suffixColumn = cursor.getColumnIndex(StructuredName.SUFFIX);
+        noteColumn = cursor.getColumnIndex(CommonDataKinds.Note.NOTE);
+        phoneNumberColumn = cursor.getColumnIndex(Phone.NUMBER);
+        phoneTypeColumn = cursor.getColumnIndex(Phone.TYPE);
+        phoneLabelColumn = cursor.getColumnIndex(Phone.LABEL);
+        emailAddressColumn = cursor.getColumnIndex(Email.ADDRESS);
+        emailTypeColumn = cursor.getColumnIndex(Email.TYPE);
+        emailLabelColumn = cursor.getColumnIndex(Email.LABEL);
+        companyColumn = cursor.getColumnIndex(Organization.COMPANY);
+        titleColumn = cursor.getColumnIndex(Organization.TITLE);
+        postalTypeColumn = cursor.getColumnIndex(StructuredPostal.TYPE);
+        postalLabelColumn = cursor.getColumnIndex(StructuredPostal.LABEL);
+        streetColumn = cursor.getColumnIndex(StructuredPostal.STREET);
+        cityColumn = cursor.getColumnIndex(StructuredPostal.CITY);
+        postcodeColumn = cursor.getColumnIndex(StructuredPostal.POSTCODE);
+        regionColumn = cursor.getColumnIndex(StructuredPostal.REGION);
+        countryColumn = cursor.getColumnIndex(StructuredPostal.COUNTRY);
+        eventTypeColumn = cursor.getColumnIndex(CommonDataKinds.Event.TYPE);
+        eventStartDateColumn = cursor.getColumnIndex(CommonDataKinds.Event.START_DATE);
+    }
+
+    // Drains the cursor; contacts keep the order of their first row.
+    ArrayList<Contact> aggregate() {
+        // Contacts average several Data rows each.
+        return drain(KIND_FROM_ROW, Math.max(cursor.getCount(), 0) / 4);
+    }
+
+    // Drains a cursor holding a single data kind, so rows are applied without
+    // reading or dispatching on the MIMETYPE column.
+    ArrayList<Contact> aggregateKind(String mimeType) {
+        return drain(kindOf(mimeType), Math.max(cursor.getCount(), 0));
+    }
+
+    private ArrayList<Contact> drain(int fixedKind, int expectedContacts) {
+        ArrayList<Contact> contacts = new ArrayList<>(Math.max(16, expectedContacts));
+        LongIndexMap index = new LongIndexMap(Math.max(16, expectedContacts));
+
+        long lastId = Long.MIN_VALUE;
+        Contact contact = null;
+        while (cursor.moveToNext()) {
+            long contactId = cursor.getLong(contactIdColumn);
+            if (contact == null || contactId != lastId) {
+                int position = index.get(contactId);
+                if (position == LongIndexMap.MISSING) {
+                    contact = newContact(contactId);
+                    index.put(contactId, contacts.size());
+                    contacts.add(contact);
+                } else {
+                    contact = contacts.get(position);
+                }
+                lastId = contactId;
+            }
+            if (fixedKind == KIND_FROM_ROW) {
+                applyRow(contact);
+            } else {
+                applyKind(fixedKind, contact);
+            }
+        }
+        return contacts;
+    }
+
+    // Creates a contact from the current row's contact-level columns.
+    Contact newContact(long contactId) {
+        Contact contact = new Contact(String.valueOf(contactId));
+        contact.displayName = cursor.getString(displayNameColumn);
+        contact.androidAccountType = strings.get(cursor, accountTypeColumn);
+        contact.androidAccountName = strings.get(cursor, accountNameColumn);
+        return contact;
+    }
+
+    long currentContactId() {
+        return cursor.getLong(contactIdColumn);
+    }
+
+    // Merges the data kind stored in the current row into the contact.
+    void applyRow(Contact contact) {
+        applyKind(kindOf(cursor.getString(mimeTypeColumn)), contact);
+    }
+
+    static int kindOf(String mimeType) {
+        if (mimeType == null) return KIND_UNKNOWN;
+        switch (mimeType) {
+            case StructuredName.CONTENT_ITEM_TYPE:
+                return KIND_NAME;
+            case CommonDataKinds.Note.CONTENT_ITEM_TYPE:
+                return KIND_NOTE;
+            case Phone.CONTENT_ITEM_TYPE:
+                return KIND_PHONE;
+            case Email.CONTENT_ITEM_TYPE:
+                return KIND_EMAIL;
+            case Organization.CONTENT_ITEM_TYPE:
+                return KIND_ORGANIZATION;
+            case StructuredPostal.CONTENT_ITEM_TYPE:
+                return KIND_POSTAL;
+            case CommonDataKinds.Event.CONTENT_ITEM_TYPE:
+                return KIND_EVENT;
+            default:
+                return KIND_UNKNOWN;
+        }
+    }
+
+    // Folds a partial contact read from another data kind into the target.
+    // Single-valued fields are only taken when the target has none.
+    static void merge(Contact into, Contact from) {
+        if (into.displayName == null) into.displayName = from.displayName;
+        if (into.androidAccountType == null) into.androidAccountType = from.androidAccountType;
+        if (into.androidAccountName == null) into.androidAccountName = from.androidAccountName;
+        if (into.givenName == null) into.givenName = from.givenName;
+        if (into.middleName == null) into.middleName = from.middleName;
+        if (into.familyName == null) into.familyName = from.familyName;
+        if (into.prefix == null) into.prefix = from.prefix;
+        if (into.suffix == null) into.suffix = from.suffix;
+        if (into.note == null) into.note = from.note;
+        if (into.company == null) into.company = from.company;
+        if (into.jobTitle == null) into.jobTitle = from.jobTitle;
+        if (into.birthday == null) into.birthday = from.birthday;
+        for (Item phone : from.phones) into.addPhone(phone);
+        for (Item email : from.emails) into.addEmail(email);
+        for (PostalAddress address : from.postalAddresses) into.addPostalAddress(address);
+    }
+
+    private void applyKind(int kind, Contact contact) {
+        switch (kind) {
+            case KIND_NAME:
+                contact.givenName = cursor.getString(givenNameColumn);
+                contact.middleName = cursor.getString(middleNameColumn);
+                contact.familyName = cursor.getString(familyNameColumn);
+                contact.prefix = cursor.getString(prefixColumn);
+                contact.suffix = cursor.getString(suffixColumn);
+                break;
+            case KIND_NOTE:
+                contact.note = cursor.getString(noteColumn);
+                break;
+            case KIND_PHONE: {
+                String phoneNumber = cursor.getString(phoneNumberColumn);
+                if (!TextUtils.isEmpty(phoneNumber)) {
+                    int type = cursor.getInt(phoneTypeColumn);
+                    String customLabel = type == Phone.TYPE_CUSTOM ? cursor.getString(phoneLabelColumn) : null;
+                    String label = labels.phone(type, customLabel);
+                    contact.addPhone(new Item(label, phoneNumber, type));
+                }
+                break;
+            }
+            case KIND_EMAIL: {
+                String email = cursor.getString(emailAddressColumn);
+                if (!TextUtils.isEmpty(email)) {
+                    int type = cursor.getInt(emailTypeColumn);
+                    String customLabel = type == Email.TYPE_CUSTOM ? cursor.getString(emailLabelColumn) : null;
+                    String label = labels.email(type, customLabel);
+                    contact.addEmail(new Item(label, email, type));
+                }
+                break;
+            }
+            case KIND_ORGANIZATION:
+                contact.company = strings.get(cursor, companyColumn);
+                contact.jobTitle = strings.get(cursor, titleColumn);
+                break;
+            case KIND_POSTAL: {
+                int type = cursor.getInt(postalTypeColumn);
+                String customLabel = type == StructuredPostal.TYPE_CUSTOM ? cursor.getString(postalLabelColumn) : null;
+                String label = labels.postal(type, customLabel);
+                contact.addPostalAddress(new PostalAddress(
+                        label,
+                        cursor.getString(streetColumn),
+                        strings.get(cursor, cityColumn),
+                        cursor.getString(postcodeColumn),
+                        strings.get(cursor, regionColumn),
+                        strings.get(cursor, countryColumn),
+                        type
+                ));
+                break;
+            }
+            case KIND_EVENT:
+                if (cursor.getInt(eventTypeColumn) == CommonDataKinds.Event.TYPE_BIRTHDAY) {
+                    contact.birthday = cursor.getString(eventStartDateColumn);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.provider.ContactsContract;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import io.flutter.plugin.common.EventChannel;
+
+/***
+ * Streams debounced contact-change events to Dart.
+ *
+ * A sync adapter can fire hundreds of provider notifications per second, so
+ * notifications are coalesced: an event is emitted once the provider has been
+ * quiet for the debounce interval, or after the max wait during a long burst.
+ * Each event lists the contact IDs updated or deleted since the previous one,
+ * resolved through CONTACT_LAST_UPDATED_TIMESTAMP and DeletedContacts.
+ ***/
+final class ContactChangeStreamHandler implements EventChannel.StreamHandler {
+    static final String CHANNEL = "github.com/ziqq/contactos/changes";
+
+    private static final String LOG_TAG = "contacts";
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+    private static final int MAX_WAIT_FACTOR = 4;
+
+    private final ContentResolver contentResolver;
+    private final Executor executor;
+    private final Handler mainHandler;
+
+    // Everything below is only touched on the main thread.
+    private EventChannel.EventSink sink;
+    private long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+    private long pendingSinceUptime;
+    private long lastSeenTimestamp;
+    private boolean querying;
+    private boolean changedWhileQuerying;
+
+    private final Runnable flush = this::flush;
+    private final Runnable onChange = this::onContactsChanged;
+
+    private final ContactsObserver observer;
+
+    ContactChangeStreamHandler(ContentResolver contentResolver, Executor executor, Handler mainHandler) {
+        this(contentResolver, new ContactsObserver(contentResolver, mainHandler), executor, mainHandler);
+    }
+
+    // With the observer shared through ContactosRuntime, engines listening at the
+    // same time share one provider registration.
+    ContactChangeStreamHandler(
+            ContentResolver contentResolver,
+            ContactsObserver observer,
+            Executor executor,
+            Handler mainHandler
+    ) {
+        this.contentResolver = contentResolver;
+        this.observer = observer;
+        this.executor = executor;
+        this.mainHandler = mainHandler;
+    }
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events) {
+        if (sink != null) stop();
+        debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+        if (arguments instanceof Map) {
+            Object debounce = ((Map<?, ?>) arguments).get("debounceMillis");
+            if (debounce instanceof Number) debounceMillis = Math.max(0, ((Number) debounce).longValue());
+        }
+        sink = events;
+        lastSeenTimestamp = System.currentTimeMillis();
+        observer.add(onChange);
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        stop();
+    }
+
+    private void stop() {
+        observer.remove(onChange);
+        mainHandler.removeCallbacks(flush);
+        pendingSinceUptime = 0;
+        sink = null;
+    }
+
+    private void onContactsChanged() {
+        if (sink == null) return;
+        if (querying) {
+            changedWhileQuerying = true;
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        if (pendingSinceUptime == 0) pendingSinceUptime = now;
+        long maxWaitLeft = pendingSinceUptime + debounceMillis * MAX_WAIT_FACTOR - now;
+        mainHandler.removeCallbacks(flush);
+        mainHandler.postDelayed(flush, Math.max(0, Math.min(debounceMillis, maxWaitLeft)));
+    }
+
+    private void flush() {
+        pendingSinceUptime = 0;
+        if (sink == null) return;
+        querying = true;
+        final long since = lastSeenTimestamp;
+        executor.execute(() -> {
+            HashMap<String, Object> event = queryChangesSince(since);
+            mainHandler.post(() -> {
+                querying = false;
+                long until = (Long) event.get("until");
+                if (until > lastSeenTimestamp) lastSeenTimestamp = until;
+                if (sink != null) sink.success(event);
+                if (changedWhileQuerying) {
+                    changedWhileQuerying = false;
+                    onContactsChanged();
+                }
+            });
+        });
+    }
+
+    private HashMap<String, Object> queryChangesSince(long since) {
+        ArrayList<String> changed = new ArrayList<>();
+        ArrayList<String> deleted = new ArrayList<>();
+        long until = since;
+        try {
+            Cursor cursor = contentResolver.query(
+                    ContactsContract.Contacts.CONTENT_URI,
+                    new String[]{ContactsContract.Contacts._ID, ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP},
+                    ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + " > ?",
+                    new String[]{String.valueOf(since)},
+                    null
+            );
+            if (cursor != null) {
+                try {
+                    while (cursor.moveToNext()) {
+                        changed.add(cursor.getString(0));
+                        until = Math.max(until, cursor.getLong(1));
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+
+            cursor = contentResolver.query(
+                    ContactsContract.DeletedContacts.CONTENT_URI,
+                    new String[]{ContactsContract.DeletedContacts.CONTACT_ID, ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP},
+                    ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP + " > ?",
+                    new String[]{String.valueOf(since)},
+                    null
+            );
+            if (cursor != null) {
+                try {
+                    while (cursor.moveToNext()) {
+                        deleted.add(cursor.getString(0));
+                        until = Math.max(until, cursor.getLong(1));
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.e(LOG_TAG, "Failed to resolve changed contacts", e);
+        }
+
+        HashMap<String, Object> event = new HashMap<>();
+        event.put("changed", changed);
+        event.put("deleted", deleted);
+        // Some notifications (usage stats, photos on older providers) do not move the
+        // timestamps; Dart should then fall back to a full refresh.
+        event.put("idsKnown", !changed.isEmpty() || !deleted.isEmpty());
+        event.put("since", since);
+        event.put("until", until);
+        return event;
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+import android.provider.ContactsContract;
+import android.util.Log;
+
+import java.util.List;
+import java.util.Map;
+
+import static android.provider.ContactsContract.CommonDataKinds.Email;
+import static android.provider.ContactsContract.CommonDataKinds.GroupMembership;
+
+/***
+ * Restrictions on which contacts a read returns, compiled into the selection of
+ * a Data query so that filtering happens inside the provider.
+ *
+ * Account, starred, has-phone and modified-since map directly onto Data view
+ * columns. Group membership and has-email have no such column; they become
+ * CONTACT_ID subqueries on the Data view, evaluated in the same query.
+ *
+ * The subqueries name the provider's internal view, which is not public API.
+ * A provider that rejects them gets the older two-step form instead: the
+ * matching contact IDs are read with their own query and applied as a list.
+ ***/
+final class ContactFilter {
+    private static final String LOG_TAG = "contacts";
+
+    // The view ContactsContract.Data.CONTENT_URI is read from in AOSP's
+    // ContactsProvider2. Internal, so see acceptsSubqueries.
+    private static final String DATA_VIEW = "view_data";
+
+    // Set when the key is present; a present null matches contacts without an account.
+    boolean filterAccountType, filterAccountName;
+    String accountType, accountName;
+    Long groupId;
+    Boolean starred, hasPhone, hasEmail;
+    Long modifiedSince;
+
+    // Returns null when the map carries no restriction.
+    static ContactFilter fromMap(Map<?, ?> map) {
+        if (map == null || map.isEmpty()) return null;
+        ContactFilter filter = new ContactFilter();
+        filter.filterAccountType = map.containsKey("accountType");
+        filter.accountType = (String) map.get("accountType");
+        filter.filterAccountName = map.containsKey("accountName");
+        filter.accountName = (String) map.get("accountName");
+        filter.groupId = asLong(map.get("groupId"));
+        filter.starred = (Boolean) map.get("starred");
+        filter.hasPhone = (Boolean) map.get("hasPhone");
+        filter.hasEmail = (Boolean) map.get("hasEmail");
+        filter.modifiedSince = asLong(map.get("modifiedSince"));
+        return filter;
+    }
+
+    // Runs a subquery that matches nothing. A provider that does not know the view,
+    // or whose strict selection grammar refuses subqueries, throws here instead of
+    // on a real read.
+    static boolean acceptsSubqueries(ContentResolver resolver) {
+        try {
+            Cursor cursor = resolver.query(
+                    ContactsContract.Data.CONTENT_URI,
+                    new String[]{ContactsContract.Data.CONTACT_ID},
+                    ContactsContract.Data.CONTACT_ID + " IN (SELECT " + ContactsContract.Data.CONTACT_ID
+                            + " FROM " + DATA_VIEW + " WHERE 0)",
+                    null,
+                    null
+            );
+            if (cursor != null) cursor.close();
+            return true;
+        } catch (SQLiteException | IllegalArgumentException e) {
+            Log.w(LOG_TAG, "Data view rejects subqueries; filters read contact IDs first", e);
+            return false;
+        }
+    }
+
+    // Whether the selection depends on other Data rows of a contact.
+    boolean needsContactIds() {
+        return groupId != null || hasEmail != null;
+    }
+
+    // Appends an " AND ..." clause for every restriction; args receive the bound values.
+    // Without subqueries, the resolver reads group members and contacts with email first.
+    void appendSelection(StringBuilder selection, List<String> args, ContentResolver resolver, boolean subqueries) {
+        if (filterAccountType) appendEquals(selection, args, ContactsContract.RawContacts.ACCOUNT_TYPE, accountType);
+        if (filterAccountName) appendEquals(selection, args, ContactsContract.RawContacts.ACCOUNT_NAME, accountName);
+        if (starred != null) {
+            selection.append(" AND ").append(ContactsContract.Data.STARRED).append(starred ? "=1" : "=0");
+        }
+        if (hasPhone != null) {
+            selection.append(" AND ").append(ContactsContract.Data.HAS_PHONE_NUMBER).append(hasPhone ? "=1" : "=0");
+        }
+        if (modifiedSince != null) {
+            selection.append(" AND ").append(ContactsContract.Data.CONTACT_LAST_UPDATED_TIMESTAMP).append(">?");
+            args.add(String.valueOf(modifiedSince));
+        }
+        if (groupId != null) {
+            String group = String.valueOf(groupId);
+            if (subqueries) {
+                appendContactIdsWith(selection, args, true, GroupMembership.CONTENT_ITEM_TYPE,
+                        GroupMembership.GROUP_ROW_ID, group);
+            } else {
+                appendContactIds(selection, true, contactIdsWith(resolver, GroupMembership.CONTENT_ITEM_TYPE,
+                        GroupMembership.GROUP_ROW_ID, group));
+            }
+        }
+        if (hasEmail != null) {
+            if (subqueries) {
+                appendContactIdsWith(selection, args, hasEmail, Email.CONTENT_ITEM_TYPE, null, null);
+            } else {
+                appendContactIds(selection, hasEmail, contactIdsWith(resolver, Email.CONTENT_ITEM_TYPE, null, null));
+            }
+        }
+    }
+
+    private static void appendEquals(StringBuilder selection, List<String> args, String column, String value) {
+        selection.append(" AND ").append(column);
+        if (value == null) {
+            selection.append(" IS NULL");
+        } else {
+            selection.append("=?");
+            args.add(value);
+        }
+    }
+
+    // Restricts to contacts that have (or, without include, lack) a Data row of the
+    // mime type, optionally with column equal to value. The subquery runs inside the
+    // provider's own query, so no ID list is read or sent across first.
+    private static void appendContactIdsWith(
+            StringBuilder selection,
+            List<String> args,
+            boolean include,
+            String mimeType,
+            String column,
+            String value
+    ) {
+        selection.append(" AND ").append(ContactsContract.Data.CONTACT_ID)
+                .append(include ? " IN (" : " NOT IN (")
+                .append("SELECT ").append(ContactsContract.Data.CONTACT_ID)
+                .append(" FROM ").append(DATA_VIEW)
+                .append(" WHERE ").append(ContactsContract.Data.MIMETYPE).append("=?");
+        args.add(mimeType);
+        if (column != null) {
+            selection.append(" AND ").append(column).append("=?");
+            args.add(value);
+        }
+        selection.append(')');
+    }
+
+    // IDs come straight from the provider as longs, so they are inlined as numeric
+    // literals; binding them would run into SQLite's limit on host parameters.
+    private static void appendContactIds(StringBuilder selection, boolean include, long[] ids) {
+        selection.append(" AND ").append(ContactsContract.Data.CONTACT_ID).append(include ? " IN (" : " NOT IN (");
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) selection.append(',');
+            selection.append(ids[i]);
+        }
+        selection.append(')');
+    }
+
+    // Distinct IDs of contacts with a Data row of the mime type, optionally with
+    // column equal to value.
+    private static long[] contactIdsWith(ContentResolver resolver, String mimeType, String column, String value) {
+        Cursor cursor = resolver.query(
+                ContactsContract.Data.CONTENT_URI,
+                new String[]{ContactsContract.Data.CONTACT_ID},
+                ContactsContract.Data.MIMETYPE + "=?" + (column != null ? " AND " + column + "=?" : ""),
+                column != null ? new String[]{mimeType, value} : new String[]{mimeType},
+                ContactsContract.Data.CONTACT_ID
+        );
+        if (cursor == null) return new long[0];
+        try {
+            long[] ids = new long[cursor.getCount()];
+            int count = 0;
+            long last = Long.MIN_VALUE;
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                if (id != last) ids[count++] = id;
+                last = id;
+            }
+            long[] distinct = new long[count];
+            System.arraycopy(ids, 0, distinct, 0, count);
+            return distinct;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static Long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+}
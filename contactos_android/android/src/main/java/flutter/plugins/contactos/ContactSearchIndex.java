@@ -0,0 +1,205 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/***
+ * In-memory fuzzy name search over the whole address book.
+ *
+ * Names are reduced once to folded, transliterated tokens ("Пётр Иванов" and
+ * "Petr Ivanov" both become "petr ivanov"), so a keystroke only scores
+ * precomputed keys. A query token matches a name token by prefix or within a
+ * small edit distance of the prefix of the same length; every query token has
+ * to match. The best hits are kept in a bounded heap, so only the top results
+ * are ever sorted or sent to Dart.
+ ***/
+final class ContactSearchIndex {
+    static final int DEFAULT_LIMIT = 20;
+
+    private static final double EXACT_SCORE = 1.0;
+    private static final double PREFIX_SCORE = 0.9;
+    private static final double TYPO_SCORE = 0.6;
+
+    private static final String[] CYRILLIC = new String[0x460 - 0x400];
+
+    static {
+        String[][] letters = {
+                {"а", "a"}, {"б", "b"}, {"в", "v"}, {"г", "g"}, {"д", "d"}, {"е", "e"}, {"ё", "e"},
+                {"ж", "zh"}, {"з", "z"}, {"и", "i"}, {"й", "y"}, {"к", "k"}, {"л", "l"}, {"м", "m"},
+                {"н", "n"}, {"о", "o"}, {"п", "p"}, {"р", "r"}, {"с", "s"}, {"т", "t"}, {"у", "u"},
+                {"ф", "f"}, {"х", "kh"}, {"ц", "ts"}, {"ч", "ch"}, {"ш", "sh"}, {"щ", "shch"},
+                {"ъ", ""}, {"ы", "y"}, {"ь", ""}, {"э", "e"}, {"ю", "yu"}, {"я", "ya"},
+                {"і", "i"}, {"ї", "yi"}, {"є", "ye"}, {"ў", "u"},
+        };
+        for (String[] letter : letters) CYRILLIC[letter[0].charAt(0) - 0x400] = letter[1];
+    }
+
+    // Version of the provider data the index was built from; see ContactosPlugin#contactsVersion.
+    final long version;
+    final boolean localizedLabels;
+    private final List<Contact> contacts;
+    private final String[][] tokens;
+
+    ContactSearchIndex(List<Contact> contacts, long version, boolean localizedLabels) {
+        this.version = version;
+        this.localizedLabels = localizedLabels;
+        this.contacts = contacts;
+        this.tokens = new String[contacts.size()][];
+        for (int i = 0; i < contacts.size(); i++) tokens[i] = nameTokens(contacts.get(i));
+    }
+
+    int size() {
+        return contacts.size();
+    }
+
+    // Best matches first; ties keep address book order.
+    List<Contact> search(String query, int limit) {
+        String[] queryTokens = tokenize(query);
+        if (queryTokens.length == 0 || limit <= 0) return Collections.emptyList();
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, ContactSearchIndex::worseFirst);
+        for (int i = 0; i < tokens.length; i++) {
+            double score = score(queryTokens, tokens[i]);
+            if (score <= 0) continue;
+            if (best.size() < limit) {
+                best.add(new Hit(i, score));
+            } else if (score > best.peek().score) {
+                best.poll();
+                best.add(new Hit(i, score));
+            }
+        }
+
+        Hit[] hits = best.toArray(new Hit[0]);
+        Arrays.sort(hits, (a, b) -> worseFirst(b, a));
+        ArrayList<Contact> result = new ArrayList<>(hits.length);
+        for (Hit hit : hits) result.add(contacts.get(hit.index));
+        return result;
+    }
+
+    // Mean of each query token's best match, or 0 when any query token matches nothing.
+    static double score(String[] queryTokens, String[] nameTokens) {
+        double total = 0;
+        for (String query : queryTokens) {
+            double best = 0;
+            for (String name : nameTokens) {
+                best = Math.max(best, tokenScore(query, name));
+                if (best == EXACT_SCORE) break;
+            }
+            if (best == 0) return 0;
+            total += best;
+        }
+        return total / queryTokens.length;
+    }
+
+    static double tokenScore(String query, String name) {
+        if (name.startsWith(query)) return name.length() == query.length() ? EXACT_SCORE : PREFIX_SCORE;
+        int maxEdits = maxEdits(query.length());
+        if (maxEdits == 0 || name.length() < query.length() - maxEdits) return 0;
+        int distance = prefixDistance(query, name, maxEdits);
+        return distance > maxEdits ? 0 : TYPO_SCORE * (1 - (double) distance / (maxEdits + 1));
+    }
+
+    private static int maxEdits(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    // Smallest optimal string alignment distance (a swap of neighbours counts as
+    // one edit) between the query and any prefix of the name, so a typo in a
+    // half-typed name still matches. Gives up with maxEdits + 1 as soon as a
+    // whole row exceeds the bound; row minimums never decrease.
+    static int prefixDistance(String query, String name, int maxEdits) {
+        int length = Math.min(name.length(), query.length() + maxEdits);
+        int[] previous2 = new int[length + 1];
+        int[] previous = new int[length + 1];
+        int[] current = new int[length + 1];
+        for (int j = 0; j <= length; j++) previous[j] = j;
+        for (int i = 1; i <= query.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= length; j++) {
+                int cost = query.charAt(i - 1) == name.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && query.charAt(i - 1) == name.charAt(j - 2)
+                        && query.charAt(i - 2) == name.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) return maxEdits + 1;
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        int best = maxEdits + 1;
+        for (int j = 0; j <= length; j++) best = Math.min(best, previous[j]);
+        return best;
+    }
+
+    static String[] nameTokens(Contact contact) {
+        LinkedHashSet<String> tokens = new LinkedHashSet<>();
+        addTokens(tokens, contact.displayName);
+        addTokens(tokens, contact.givenName);
+        addTokens(tokens, contact.middleName);
+        addTokens(tokens, contact.familyName);
+        return tokens.toArray(new String[0]);
+    }
+
+    static String[] tokenize(String text) {
+        LinkedHashSet<String> tokens = new LinkedHashSet<>();
+        addTokens(tokens, text);
+        return tokens.toArray(new String[0]);
+    }
+
+    private static void addTokens(LinkedHashSet<String> tokens, String text) {
+        if (text == null) return;
+        for (String token : normalize(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+    }
+
+    // Lowercase, Cyrillic transliterated to Latin, accents dropped. Transliteration
+    // comes first so that "й" is not folded to "и" by the accent stripping.
+    static String normalize(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder latin = null;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            String replacement = c >= 0x400 && c < 0x460 ? CYRILLIC[c - 0x400] : null;
+            if (replacement == null) {
+                if (latin != null) latin.append(c);
+                continue;
+            }
+            if (latin == null) latin = new StringBuilder(lower.length() + 8).append(lower, 0, i);
+            latin.append(replacement);
+        }
+        String transliterated = latin != null ? latin.toString() : lower;
+        return Normalizer.normalize(transliterated, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+    }
+
+    private static int worseFirst(Hit a, Hit b) {
+        int byScore = Double.compare(a.score, b.score);
+        return byScore != 0 ? byScore : Integer.compare(b.index, a.index);
+    }
+
+    private static final class Hit {
+        final int index;
+        final double score;
+
+        Hit(int index, double score) {
+            this.index = index;
+            this.score = score;
+        }
+    }
+}
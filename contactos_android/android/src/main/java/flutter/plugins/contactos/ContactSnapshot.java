@@ -0,0 +1,246 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import android.content.res.Resources;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/***
+ * Compact on-disk copy of the last full contact read, served on cold start
+ * before the provider has been queried.
+ *
+ * Layout (big-endian): magic, version, asOf timestamp, contact count, body
+ * length, body CRC32, then a body holding the fingerprint followed by the
+ * contacts. Strings are a length (-1 for null) and UTF-8 bytes. The file is
+ * written to a temporary sibling and renamed, so readers never see half a
+ * snapshot; anything that fails the checks is deleted and treated as missing.
+ ***/
+final class ContactSnapshot {
+    static final int MAGIC = 0x43544e53; // "CTNS"
+    static final int VERSION = 1;
+
+    private static final String LOG_TAG = "contacts";
+    private static final int LENGTH_OFFSET = 20;
+    private static final int HEADER_BYTES = 36;
+
+    // Highest CONTACT_LAST_UPDATED_TIMESTAMP known to be included.
+    final long asOf;
+    final ArrayList<Contact> contacts;
+
+    private ContactSnapshot(long asOf, ArrayList<Contact> contacts) {
+        this.asOf = asOf;
+        this.contacts = contacts;
+    }
+
+    // Labels are resolved at read time, so a snapshot is only valid for the
+    // locale and label mode it was built with.
+    static String fingerprint(Resources resources, boolean localizedLabels) {
+        String locale = resources.getConfiguration().locale.toString();
+        return locale + (localizedLabels ? "/localized" : "/raw");
+    }
+
+    static void write(File file, List<Contact> contacts, long asOf, String fingerprint) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        long bodyLength;
+        try (FileOutputStream fileOut = new FileOutputStream(tmp)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(fileOut, 64 * 1024);
+            DataOutputStream header = new DataOutputStream(buffered);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeLong(asOf);
+            header.writeInt(contacts.size());
+            header.writeLong(0); // body length, patched below
+            header.writeLong(0); // body CRC32, patched below
+            header.flush();
+
+            DataOutputStream body = new DataOutputStream(new CheckedOutputStream(buffered, crc));
+            writeString(body, fingerprint);
+            for (Contact contact : contacts) writeContact(body, contact);
+            body.flush();
+            bodyLength = body.size();
+            fileOut.getFD().sync();
+        }
+        try (RandomAccessFile patch = new RandomAccessFile(tmp, "rw")) {
+            patch.seek(LENGTH_OFFSET);
+            patch.writeLong(bodyLength);
+            patch.writeLong(crc.getValue());
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    // Returns null when there is no usable snapshot for the given fingerprint.
+    static ContactSnapshot read(File file, String fingerprint) {
+        if (!file.isFile()) return null;
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size < HEADER_BYTES) return discard(file, "truncated header");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt() != MAGIC) return discard(file, "bad magic");
+            if (buffer.getInt() != VERSION) return discard(file, "unsupported version");
+            long asOf = buffer.getLong();
+            int count = buffer.getInt();
+            long bodyLength = buffer.getLong();
+            long expectedCrc = buffer.getLong();
+            if (count < 0 || bodyLength != size - HEADER_BYTES) return discard(file, "length mismatch");
+            if (crc(buffer, HEADER_BYTES, (int) bodyLength) != expectedCrc) return discard(file, "checksum mismatch");
+
+            byte[] scratch = new byte[256];
+            buffer.position(HEADER_BYTES);
+            if (!fingerprint.equals(readString(buffer, scratch))) return null;
+            ArrayList<Contact> contacts = new ArrayList<>(count);
+            StringPool pool = new StringPool();
+            for (int i = 0; i < count; i++) contacts.add(readContact(buffer, scratch, pool));
+            return new ContactSnapshot(asOf, contacts);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.w(LOG_TAG, "Unreadable contact snapshot", e);
+            return discard(file, "unreadable");
+        }
+    }
+
+    static void delete(File file) {
+        if (file.exists() && !file.delete()) Log.w(LOG_TAG, "Cannot delete contact snapshot " + file);
+    }
+
+    private static ContactSnapshot discard(File file, String reason) {
+        Log.w(LOG_TAG, "Discarding contact snapshot: " + reason);
+        delete(file);
+        return null;
+    }
+
+    // CRC32.update(ByteBuffer) needs API 26, so feed the mapping through a chunk buffer.
+    private static long crc(MappedByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[64 * 1024];
+        buffer.position(offset);
+        int remaining = length;
+        while (remaining > 0) {
+            int n = Math.min(chunk.length, remaining);
+            buffer.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+            remaining -= n;
+        }
+        return crc.getValue();
+    }
+
+    private static void writeContact(DataOutputStream out, Contact contact) throws IOException {
+        writeString(out, contact.identifier);
+        writeString(out, contact.displayName);
+        writeString(out, contact.givenName);
+        writeString(out, contact.middleName);
+        writeString(out, contact.familyName);
+        writeString(out, contact.prefix);
+        writeString(out, contact.suffix);
+        writeString(out, contact.company);
+        writeString(out, contact.jobTitle);
+        writeString(out, contact.note);
+        writeString(out, contact.birthday);
+        writeString(out, contact.androidAccountType);
+        writeString(out, contact.androidAccountName);
+        writeItems(out, contact.emails);
+        writeItems(out, contact.phones);
+        out.writeInt(contact.postalAddresses.size());
+        for (PostalAddress address : contact.postalAddresses) {
+            writeString(out, address.label);
+            writeString(out, address.street);
+            writeString(out, address.city);
+            writeString(out, address.postcode);
+            writeString(out, address.region);
+            writeString(out, address.country);
+            out.writeInt(address.type);
+        }
+    }
+
+    // Repeated values (accounts, companies, labels, places) are shared through the pool.
+    private static Contact readContact(MappedByteBuffer in, byte[] scratch, StringPool pool) {
+        Contact contact = new Contact(readString(in, scratch));
+        contact.displayName = readString(in, scratch);
+        contact.givenName = readString(in, scratch);
+        contact.middleName = readString(in, scratch);
+        contact.familyName = readString(in, scratch);
+        contact.prefix = readString(in, scratch);
+        contact.suffix = readString(in, scratch);
+        contact.company = pool.intern(readString(in, scratch));
+        contact.jobTitle = pool.intern(readString(in, scratch));
+        contact.note = readString(in, scratch);
+        contact.birthday = readString(in, scratch);
+        contact.androidAccountType = pool.intern(readString(in, scratch));
+        contact.androidAccountName = pool.intern(readString(in, scratch));
+        int emails = readCount(in);
+        for (int i = 0; i < emails; i++) {
+            contact.addEmail(new Item(pool.intern(readString(in, scratch)), readString(in, scratch), in.getInt()));
+        }
+        int phones = readCount(in);
+        for (int i = 0; i < phones; i++) {
+            contact.addPhone(new Item(pool.intern(readString(in, scratch)), readString(in, scratch), in.getInt()));
+        }
+        int addresses = readCount(in);
+        for (int i = 0; i < addresses; i++) {
+            contact.addPostalAddress(new PostalAddress(pool.intern(readString(in, scratch)), readString(in, scratch),
+                    pool.intern(readString(in, scratch)), readString(in, scratch), pool.intern(readString(in, scratch)),
+                    pool.intern(readString(in, scratch)), in.getInt()));
+        }
+        return contact;
+    }
+
+    private static void writeItems(DataOutputStream out, List<Item> items) throws IOException {
+        out.writeInt(items.size());
+        for (Item item : items) {
+            writeString(out, item.label);
+            writeString(out, item.value);
+            out.writeInt(item.type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static int readCount(MappedByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) throw new IllegalArgumentException("Bad count " + count);
+        return count;
+    }
+
+    private static String readString(MappedByteBuffer in, byte[] scratch) {
+        int length = in.getInt();
+        if (length == -1) return null;
+        if (length < 0 || length > in.remaining()) throw new IllegalArgumentException("Bad string length " + length);
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        in.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,157 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Recent answers of versioned getContacts reads, kept as a 64-bit content
+ * fingerprint per contact identifier. A caller that passes back the version
+ * it holds gets only the contacts whose fingerprint moved since then.
+ *
+ * Versions start at the current time in milliseconds and only grow, so a
+ * version handed out by a previous process never names a snapshot of this
+ * one. Only the last MAX_SNAPSHOTS reads are remembered; older versions are
+ * answered with a full list.
+ ***/
+final class ContactVersions {
+    static final int MAX_SNAPSHOTS = 3;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long NULL_FINGERPRINT = 0x9e3779b97f4a7c15L;
+
+    static final class Snapshot {
+        final long version;
+        // Read options the contacts were converted with; see ContactosPlugin#versionedOptions.
+        final int options;
+        final HashMap<String, Long> fingerprints;
+        // ContactosPlugin#contactsVersion taken before the read, or -1 once our own
+        // writes may have changed contacts without moving it.
+        long providerVersion;
+
+        Snapshot(long version, int options, long providerVersion, HashMap<String, Long> fingerprints) {
+            this.version = version;
+            this.options = options;
+            this.providerVersion = providerVersion;
+            this.fingerprints = fingerprints;
+        }
+    }
+
+    static final class Diff {
+        final ArrayList<String> added = new ArrayList<>();
+        final ArrayList<String> changed = new ArrayList<>();
+        final ArrayList<String> removed = new ArrayList<>();
+
+        boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    // Newest last. Guarded by this.
+    private final ArrayDeque<Snapshot> snapshots = new ArrayDeque<>(MAX_SNAPSHOTS + 1);
+    private long lastVersion = System.currentTimeMillis();
+
+    synchronized Snapshot find(long version, int options) {
+        for (Snapshot snapshot : snapshots) {
+            if (snapshot.version == version && snapshot.options == options) return snapshot;
+        }
+        return null;
+    }
+
+    synchronized Snapshot add(int options, long providerVersion, HashMap<String, Long> fingerprints) {
+        Snapshot snapshot = new Snapshot(++lastVersion, options, providerVersion, fingerprints);
+        snapshots.addLast(snapshot);
+        if (snapshots.size() > MAX_SNAPSHOTS) snapshots.removeFirst();
+        return snapshot;
+    }
+
+    // A full read confirmed the snapshot; unchanged provider data can skip the next one.
+    synchronized void confirm(Snapshot snapshot, long providerVersion) {
+        snapshot.providerVersion = providerVersion;
+    }
+
+    synchronized boolean isCurrent(Snapshot snapshot, long providerVersion) {
+        return snapshot.providerVersion >= 0 && snapshot.providerVersion == providerVersion;
+    }
+
+    // Called after our own writes, which provider timestamps may not reflect yet.
+    // Fingerprints stay valid, so the next read still answers with a diff.
+    synchronized void invalidate() {
+        for (Snapshot snapshot : snapshots) snapshot.providerVersion = -1;
+    }
+
+    static Diff diff(Map<String, Long> before, Map<String, Long> after) {
+        Diff diff = new Diff();
+        for (Map.Entry<String, Long> entry : after.entrySet()) {
+            Long previous = before.get(entry.getKey());
+            if (previous == null) {
+                diff.added.add(entry.getKey());
+            } else if (!previous.equals(entry.getValue())) {
+                diff.changed.add(entry.getKey());
+            }
+        }
+        for (String identifier : before.keySet()) {
+            if (!after.containsKey(identifier)) diff.removed.add(identifier);
+        }
+        return diff;
+    }
+
+    // Hash of a channel value (maps, lists, strings, byte arrays, boxed primitives).
+    // Map entries are combined independently of iteration order.
+    static long fingerprint(Object value) {
+        if (value == null) return NULL_FINGERPRINT;
+        if (value instanceof Map) {
+            long sum = 0;
+            for (Object item : ((Map<?, ?>) value).entrySet()) {
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) item;
+                sum += mix(mix(FNV_OFFSET, fingerprint(entry.getKey())), fingerprint(entry.getValue()));
+            }
+            return finish(sum ^ ((Map<?, ?>) value).size());
+        }
+        if (value instanceof List) {
+            long hash = FNV_OFFSET;
+            for (Object item : (List<?>) value) hash = mix(hash, fingerprint(item));
+            return finish(hash);
+        }
+        if (value instanceof byte[]) return finish(bytes(FNV_OFFSET, (byte[]) value));
+        if (value instanceof String) {
+            String text = (String) value;
+            long hash = FNV_OFFSET ^ 's';
+            for (int i = 0; i < text.length(); i++) {
+                hash ^= text.charAt(i);
+                hash *= FNV_PRIME;
+            }
+            return finish(hash);
+        }
+        return finish(mix(value.getClass().getName().hashCode(), value.hashCode()));
+    }
+
+    private static long bytes(long hash, byte[] bytes) {
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ finish(value)) * FNV_PRIME;
+    }
+
+    // MurmurHash3 finalizer, so every input bit affects every output bit.
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,277 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/***
+ * In-process registry of per-method counters and per-stage latency histograms.
+ * Every recording path is lock-free so it can stay enabled in production builds.
+ *
+ * A reset drains each counter and bucket with getAndSet(0) instead of dropping
+ * the registry, so a sample recorded while a snapshot is taken lands either in
+ * that snapshot or in the next one, never in neither.
+ ***/
+final class ContactosMetrics {
+
+    enum Stage {
+        QUEUE("queue"),
+        SNAPSHOT("snapshot"),
+        QUERY("query"),
+        AGGREGATE("aggregate"),
+        AVATAR("avatar"),
+        SORT("sort"),
+        TO_MAP("toMap"),
+        WRITE("write"),
+        POST("post");
+
+        final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    private final ConcurrentHashMap<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private volatile long sinceMillis = System.currentTimeMillis();
+
+    Trace begin(String method, ThreadPoolExecutor executor) {
+        if (executor != null) {
+            long depth = executor.getQueue().size();
+            long max;
+            while (depth > (max = maxQueueDepth.get())) {
+                if (maxQueueDepth.compareAndSet(max, depth)) break;
+            }
+        }
+        MethodStats stats = methods.get(method);
+        if (stats == null) {
+            MethodStats created = new MethodStats();
+            stats = methods.putIfAbsent(method, created);
+            if (stats == null) stats = created;
+        }
+        return new Trace(stats);
+    }
+
+    void reset() {
+        snapshot(null, true);
+    }
+
+    HashMap<String, Object> toMap(ThreadPoolExecutor executor) {
+        return snapshot(executor, false);
+    }
+
+    // Same shape as toMap; every sample it reports is removed from the registry.
+    HashMap<String, Object> toMapAndReset(ThreadPoolExecutor executor) {
+        return snapshot(executor, true);
+    }
+
+    private HashMap<String, Object> snapshot(ThreadPoolExecutor executor, boolean reset) {
+        long now = System.currentTimeMillis();
+        long since = sinceMillis;
+        if (reset) sinceMillis = now;
+        HashMap<String, Object> result = new HashMap<>();
+        result.put("sinceMillis", since);
+        result.put("uptimeMillis", now - since);
+
+        HashMap<String, Object> executorMap = new HashMap<>();
+        if (executor != null) {
+            executorMap.put("queueDepth", executor.getQueue().size());
+            executorMap.put("activeThreads", executor.getActiveCount());
+            executorMap.put("poolSize", executor.getPoolSize());
+            executorMap.put("completedTasks", executor.getCompletedTaskCount());
+        }
+        executorMap.put("maxQueueDepth", reset ? maxQueueDepth.getAndSet(0) : maxQueueDepth.get());
+        result.put("executor", executorMap);
+
+        // Entries stay registered across resets; in-flight traces still point at them.
+        HashMap<String, Object> methodsMap = new HashMap<>();
+        for (Map.Entry<String, MethodStats> entry : methods.entrySet()) {
+            HashMap<String, Object> stats = entry.getValue().toMap(reset);
+            if ((Long) stats.get("calls") > 0) methodsMap.put(entry.getKey(), stats);
+        }
+        result.put("methods", methodsMap);
+        return result;
+    }
+
+    // Rough size of a contact on the wire: string characters plus avatar bytes.
+    static long estimatePayloadBytes(Contact contact) {
+        long size = length(contact.identifier) + length(contact.displayName) + length(contact.givenName)
+                + length(contact.middleName) + length(contact.familyName) + length(contact.prefix)
+                + length(contact.suffix) + length(contact.company) + length(contact.jobTitle)
+                + length(contact.note) + length(contact.birthday) + length(contact.androidAccountType)
+                + length(contact.androidAccountName);
+        for (Item item : contact.emails) size += length(item.label) + length(item.value) + 2;
+        for (Item item : contact.phones) size += length(item.label) + length(item.value) + 2;
+        for (PostalAddress address : contact.postalAddresses) {
+            size += length(address.label) + length(address.street) + length(address.city)
+                    + length(address.postcode) + length(address.region) + length(address.country) + 2;
+        }
+        if (contact.avatar != null) size += contact.avatar.length;
+        return size;
+    }
+
+    private static long read(AtomicLong value, boolean reset) {
+        return reset ? value.getAndSet(0) : value.get();
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /***
+     * Collects the stages of a single method call and commits them on finish,
+     * so chunked work (query, aggregate, query, ...) adds up per stage.
+     ***/
+    static final class Trace {
+        private final MethodStats stats;
+        private final long startNanos;
+        private final long[] stageNanos = new long[Stage.values().length];
+        private long markNanos;
+        private long rows, contacts, avatarBytes, payloadBytes;
+
+        private Trace(MethodStats stats) {
+            this.stats = stats;
+            this.startNanos = System.nanoTime();
+            this.markNanos = startNanos;
+        }
+
+        // Attributes the time since the previous mark to the given stage.
+        void mark(Stage stage) {
+            long now = System.nanoTime();
+            stageNanos[stage.ordinal()] += now - markNanos;
+            markNanos = now;
+        }
+
+        void addRows(long count) {
+            rows += count;
+        }
+
+        void addContacts(long count) {
+            contacts += count;
+        }
+
+        void addAvatarBytes(long count) {
+            avatarBytes += count;
+        }
+
+        void addPayloadBytes(long count) {
+            payloadBytes += count;
+        }
+
+        void finish(boolean success) {
+            stats.calls.incrementAndGet();
+            if (!success) stats.errors.incrementAndGet();
+            stats.latency.record(System.nanoTime() - startNanos);
+            for (Stage stage : Stage.values()) {
+                long nanos = stageNanos[stage.ordinal()];
+                if (nanos > 0) stats.stages.get(stage.ordinal()).record(nanos);
+            }
+            stats.rowsScanned.addAndGet(rows);
+            stats.contactsReturned.addAndGet(contacts);
+            stats.avatarBytes.addAndGet(avatarBytes);
+            stats.payloadBytes.addAndGet(payloadBytes);
+        }
+    }
+
+    private static final class MethodStats {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong rowsScanned = new AtomicLong();
+        final AtomicLong contactsReturned = new AtomicLong();
+        final AtomicLong avatarBytes = new AtomicLong();
+        final AtomicLong payloadBytes = new AtomicLong();
+        final Histogram latency = new Histogram();
+        final ArrayList<Histogram> stages = new ArrayList<>();
+
+        MethodStats() {
+            for (int i = 0; i < Stage.values().length; i++) stages.add(new Histogram());
+        }
+
+        HashMap<String, Object> toMap(boolean reset) {
+            HashMap<String, Object> result = new HashMap<>();
+            result.put("calls", read(calls, reset));
+            result.put("errors", read(errors, reset));
+            result.put("rowsScanned", read(rowsScanned, reset));
+            result.put("contactsReturned", read(contactsReturned, reset));
+            result.put("avatarBytes", read(avatarBytes, reset));
+            result.put("payloadBytes", read(payloadBytes, reset));
+            result.put("latency", latency.toMap(reset));
+            HashMap<String, Object> stagesMap = new HashMap<>();
+            for (Stage stage : Stage.values()) {
+                HashMap<String, Object> histogram = stages.get(stage.ordinal()).toMap(reset);
+                if ((Long) histogram.get("count") > 0) stagesMap.put(stage.key, histogram);
+            }
+            result.put("stages", stagesMap);
+            return result;
+        }
+    }
+
+    /***
+     * Power-of-two histogram over microseconds: bucket i holds samples in [2^i, 2^(i+1)).
+     ***/
+    static final class Histogram {
+        private static final int BUCKETS = 32;
+
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        final AtomicLong totalMicros = new AtomicLong();
+        final AtomicLong maxMicros = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            int bucket = micros == 0 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(bucket);
+            totalMicros.addAndGet(micros);
+            long max;
+            while (micros > (max = maxMicros.get())) {
+                if (maxMicros.compareAndSet(max, micros)) break;
+            }
+        }
+
+        // Upper bound of the bucket holding the given quantile.
+        private static long percentileMicros(long[] buckets, long total, long maxMicros, double quantile) {
+            if (total == 0) return 0;
+            long threshold = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= threshold) return Math.min(1L << (i + 1), maxMicros);
+            }
+            return maxMicros;
+        }
+
+        // Count and percentiles come from the copied buckets, so they agree with the
+        // reported buckets even while samples keep arriving.
+        HashMap<String, Object> toMap(boolean reset) {
+            long[] copy = new long[BUCKETS];
+            long total = 0;
+            int last = -1;
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = reset ? buckets.getAndSet(i, 0) : buckets.get(i);
+                total += copy[i];
+                if (copy[i] > 0) last = i;
+            }
+            // A sample whose max update lands after a reset still counts in its bucket.
+            long max = Math.max(read(maxMicros, reset), last > 0 ? 1L << last : 0);
+            HashMap<String, Object> result = new HashMap<>();
+            result.put("count", total);
+            result.put("totalMicros", read(totalMicros, reset));
+            result.put("maxMicros", max);
+            result.put("p50Micros", percentileMicros(copy, total, max, 0.50));
+            result.put("p90Micros", percentileMicros(copy, total, max, 0.90));
+            result.put("p99Micros", percentileMicros(copy, total, max, 0.99));
+            ArrayList<Long> bucketList = new ArrayList<>(last + 1);
+            for (int i = 0; i <= last; i++) bucketList.add(copy[i]);
+            result.put("buckets", bucketList);
+            return result;
+        }
+    }
+}
@@ -5,6 +5,7 @@
 package flutter.plugins.contactos;
 
 import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.Context;
@@ -25,26 +26,37 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutorService;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
 import io.flutter.embedding.engine.plugins.activity.ActivityPluginBinding;
 import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.PluginRegistry;
+import io.flutter.plugin.common.StandardMethodCodec;
 
 import static android.app.Activity.RESULT_CANCELED;
 import static android.provider.ContactsContract.CommonDataKinds;
@@ -68,40 +80,54 @@ public class ContactosPlugin implements
 
     private static final String LOG_TAG = "contacts";
 
+    private static final String ADD_FAILED = "Failed to add the contact";
+    private static final String UPDATE_FAILED = "Failed to update the contact, make sure it has a valid identifier";
+    private static final String DELETE_FAILED = "Failed to delete the contact, make sure it has a valid identifier";
+    private static final String PHOTO_FAILED = "The contact was saved, but its photo could not be written";
+
+    // Outcomes of a contact write. WRITE_PHOTO_FAILED means the contact itself was
+    // committed and only the photo streamed after it was not, so retrying the whole
+    // write would duplicate an added contact.
+    private static final int WRITE_OK = 0;
+    private static final int WRITE_FAILED = 1;
+    private static final int WRITE_PHOTO_FAILED = 2;
+
     private ContentResolver contentResolver;
     private BaseContactosDelegate delegate;
     private MethodChannel methodChannel;
+    private EventChannel changesChannel;
+    private ContactChangeStreamHandler changeStreamHandler;
     private Resources resources;
+    private File snapshotFile;
 
-    // Thread pool for asynchronous operations (replacement for AsyncTask)
-    private final ExecutorService executor = new ThreadPoolExecutor(
-            0,
-            10,
-            60,
-            TimeUnit.SECONDS,
-            new ArrayBlockingQueue<>(1000)
-    );
+    // Shared with every other engine in the process; executor, fanOutExecutor and
+    // metrics are its pools and counters, held here while attached.
+    private ContactosRuntime runtime;
+    private ThreadPoolExecutor executor;
+    private ThreadPoolExecutor fanOutExecutor;
+    private ContactosMetrics metrics;
 
     // Handler for returning the result to the main (UI) thread
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
+    // Write-behind queue of enqueueMutation, flushed after a short delay or by flushMutations.
+    private static final long DEFAULT_MUTATION_FLUSH_DELAY_MILLIS = 250;
+    private final MutationQueue mutations = new MutationQueue();
+    private final Runnable scheduledFlush = () -> flushMutations(null);
+
+    // Set when method calls arrive on a background task queue; replies are then
+    // sent straight from the worker instead of hopping to the main thread.
+    private volatile boolean repliesOffMainThread;
+
     // region FlutterPlugin
     @Override
     public void onAttachedToEngine(@NonNull FlutterPluginBinding binding) {
-        this.resources = binding.getApplicationContext().getResources();
         initInstance(binding.getBinaryMessenger(), binding.getApplicationContext());
-        this.delegate = new ContactosDelegate(binding.getApplicationContext());
     }
 
     @Override
     public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
-        if (methodChannel != null) {
-            methodChannel.setMethodCallHandler(null);
-            methodChannel = null;
-        }
-        contentResolver = null;
-        delegate = null;
-        resources = null;
+        disposeInstance();
     }
     // endregion
 
@@ -136,10 +162,75 @@ public class ContactosPlugin implements
     // endregion
 
     // region Initialization
-    private void initInstance(BinaryMessenger messenger, Context context) {
-        methodChannel = new MethodChannel(messenger, "github.com/ziqq/contactos");
+    // Package-private so JVM tests can attach the plugin without a FlutterPluginBinding.
+    void initInstance(BinaryMessenger messenger, Context context) {
+        if (runtime == null) {
+            runtime = ContactosRuntime.acquire(context);
+            executor = runtime.executor;
+            fanOutExecutor = runtime.fanOutExecutor;
+            metrics = runtime.metrics;
+        }
+        BinaryMessenger.TaskQueue taskQueue = makeBackgroundTaskQueue(messenger);
+        methodChannel = taskQueue != null
+                ? new MethodChannel(messenger, "github.com/ziqq/contactos", StandardMethodCodec.INSTANCE, taskQueue)
+                : new MethodChannel(messenger, "github.com/ziqq/contactos");
+        repliesOffMainThread = taskQueue != null;
         methodChannel.setMethodCallHandler(this);
         contentResolver = context.getContentResolver();
+        resources = context.getResources();
+        delegate = new ContactosDelegate(context);
+        snapshotFile = new File(context.getCacheDir(), "contactos/contacts.snapshot");
+        changeStreamHandler = new ContactChangeStreamHandler(
+                contentResolver, runtime.contactsObserver, executor, mainHandler);
+        changesChannel = new EventChannel(messenger, ContactChangeStreamHandler.CHANNEL);
+        changesChannel.setStreamHandler(changeStreamHandler);
+    }
+
+    // Package-private for the same reason as initInstance. The shared runtime is
+    // released last, so the pools shut down once no engine uses them.
+    void disposeInstance() {
+        // Queued writes still go out: the flush task holds its own resolver, and the
+        // executor runs it before shutting down.
+        if (runtime != null && mutations.size() > 0) flushMutations(null);
+        if (methodChannel != null) {
+            methodChannel.setMethodCallHandler(null);
+            methodChannel = null;
+        }
+        if (changesChannel != null) {
+            changesChannel.setStreamHandler(null);
+            changesChannel = null;
+        }
+        if (changeStreamHandler != null) {
+            changeStreamHandler.onCancel(null);
+            changeStreamHandler = null;
+        }
+        contentResolver = null;
+        delegate = null;
+        resources = null;
+        snapshotFile = null;
+        if (runtime != null) {
+            ContactosRuntime.release(runtime);
+            runtime = null;
+        }
+    }
+
+    // Null when the embedding cannot dispatch to a background queue, in which case
+    // calls arrive on the main thread and replies are posted back to it.
+    private static BinaryMessenger.TaskQueue makeBackgroundTaskQueue(BinaryMessenger messenger) {
+        try {
+            return messenger.makeBackgroundTaskQueue();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    // Delivers a method-call reply from a worker thread.
+    private void reply(Runnable reply) {
+        if (repliesOffMainThread) {
+            reply.run();
+        } else {
+            mainHandler.post(reply);
+        }
     }
     // endregion
 
@@ -153,7 +244,41 @@ public class ContactosPlugin implements
                 final boolean orderByGivenName = call.argument("orderByGivenName");
                 final boolean photoHighResolution = call.argument("photoHighResolution");
                 final boolean androidLocalizedLabels = call.argument("androidLocalizedLabels");
-
+                final Boolean useSnapshot = call.argument("useSnapshot");
+                final Boolean parallel = call.argument("parallel");
+                final Boolean stringDictionary = call.argument("stringDictionary");
+                final boolean useDictionary = stringDictionary != null && stringDictionary;
+                final ContactFilter filter = ContactFilter.fromMap(call.argument("filter"));
+                final Boolean versioned = call.argument("versioned");
+                final Number sinceVersion = call.argument("sinceVersion");
+
+                if (versioned != null && versioned && query == null && filter == null) {
+                    getContactsVersioned(
+                            sinceVersion != null ? sinceVersion.longValue() : -1,
+                            withThumbnails,
+                            photoHighResolution,
+                            orderByGivenName,
+                            androidLocalizedLabels,
+                            result
+                    );
+                    break;
+                }
+                if (useSnapshot != null && useSnapshot && query == null && filter == null && !withThumbnails) {
+                    getContactsWithSnapshot(orderByGivenName, androidLocalizedLabels, useDictionary, result);
+                    break;
+                }
+                if (parallel != null && parallel && query == null) {
+                    getContactsInParallel(
+                            filter,
+                            withThumbnails,
+                            photoHighResolution,
+                            orderByGivenName,
+                            androidLocalizedLabels,
+                            useDictionary,
+                            result
+                    );
+                    break;
+                }
                 getContacts(
                         "getContacts",
                         query,
@@ -161,6 +286,8 @@ public class ContactosPlugin implements
                         photoHighResolution,
                         orderByGivenName,
                         androidLocalizedLabels,
+                        filter,
+                        useDictionary,
                         result
                 );
                 break;
@@ -179,6 +306,8 @@ public class ContactosPlugin implements
                         photoHighResolution,
                         orderByGivenName,
                         androidLocalizedLabels,
+                        null,
+                        false,
                         result
                 );
                 break;
@@ -197,6 +326,23 @@ public class ContactosPlugin implements
                         photoHighResolution,
                         orderByGivenName,
                         androidLocalizedLabels,
+                        null,
+                        false,
+                        result
+                );
+                break;
+            }
+            case "getContactsByIds": {
+                final List<String> identifiers = call.argument("identifiers");
+                final boolean withThumbnails = call.argument("withThumbnails");
+                final boolean photoHighResolution = call.argument("photoHighResolution");
+                final boolean androidLocalizedLabels = call.argument("androidLocalizedLabels");
+
+                getContactsByIds(
+                        identifiers,
+                        withThumbnails,
+                        photoHighResolution,
+                        androidLocalizedLabels,
                         result
                 );
                 break;
@@ -205,58 +351,93 @@ public class ContactosPlugin implements
                 final HashMap map = call.argument("contact");
                 final boolean photoHighResolution = call.argument("photoHighResolution");
                 final Contact contact = Contact.fromMap(map);
-                getAvatar(contact, photoHighResolution, result);
+                if (call.hasArgument("ifNoneMatch")) {
+                    final String ifNoneMatch = call.argument("ifNoneMatch");
+                    getAvatarIfNoneMatch(contact.identifier, photoHighResolution, ifNoneMatch, result);
+                } else {
+                    getAvatar(contact, photoHighResolution, result);
+                }
+                break;
+            }
+            case "getAvatars": {
+                final List<String> identifiers = call.argument("identifiers");
+                final boolean photoHighResolution = call.argument("photoHighResolution");
+                final Map<String, String> ifNoneMatch = call.argument("ifNoneMatch");
+                getAvatars(identifiers, photoHighResolution, ifNoneMatch, result);
                 break;
             }
             case "addContact": {
                 final Contact contact = Contact.fromMap((HashMap) call.arguments);
-                if (addContact(contact)) {
-                    result.success(null);
-                } else {
-                    result.error(null, "Failed to add the contact", null);
-                }
+                final PhotoOptions photo = PhotoOptions.fromCall(call);
+                final ContentResolver resolver = contentResolver;
+                writeContact("addContact", () -> addContact(resolver, contact, photo), ADD_FAILED, result);
                 break;
             }
             case "deleteContact": {
                 final Contact contact = Contact.fromMap((HashMap) call.arguments);
-                if (deleteContact(contact)) {
-                    result.success(null);
-                } else {
-                    result.error(null, "Failed to delete the contact, make sure it has a valid identifier", null);
-                }
+                final ContentResolver resolver = contentResolver;
+                writeContact("deleteContact", () -> deleteContact(resolver, contact), DELETE_FAILED, result);
                 break;
             }
             case "updateContact": {
                 final Contact contact = Contact.fromMap((HashMap) call.arguments);
-                if (updateContact(contact)) {
-                    result.success(null);
-                } else {
-                    result.error(null, "Failed to update the contact, make sure it has a valid identifier", null);
+                final PhotoOptions photo = PhotoOptions.fromCall(call);
+                final ContentResolver resolver = contentResolver;
+                writeContact("updateContact", () -> updateContact(resolver, contact, photo), UPDATE_FAILED, result);
+                break;
+            }
+            case "enqueueMutation": {
+                final String type = call.argument("type");
+                final HashMap map = call.argument("contact");
+                final Number delay = call.argument("flushDelayMillis");
+                final int mutationType = "add".equals(type) ? MutationQueue.ADD
+                        : "delete".equals(type) ? MutationQueue.DELETE
+                        : "update".equals(type) ? MutationQueue.UPDATE
+                        : -1;
+                if (mutationType < 0 || map == null) {
+                    result.error(null, "Unknown mutation type: " + type, null);
+                    break;
+                }
+                boolean first = mutations.enqueue(mutationType, Contact.fromMap(map), PhotoOptions.fromCall(call), result);
+                if (first) {
+                    mainHandler.postDelayed(scheduledFlush,
+                            delay != null ? Math.max(0, delay.longValue()) : DEFAULT_MUTATION_FLUSH_DELAY_MILLIS);
                 }
                 break;
             }
+            case "flushMutations": {
+                flushMutations(result);
+                break;
+            }
             case "openExistingContact": {
                 final HashMap map = call.argument("contact");
                 final boolean localizedLabels = call.argument("androidLocalizedLabels");
                 final Contact contact = Contact.fromMap(map);
-                if (delegate != null) {
-                    delegate.setResult(result);
-                    delegate.setLocalizedLabels(localizedLabels);
-                    delegate.openExistingContact(contact);
-                } else {
-                    result.success(FORM_COULD_NOT_BE_OPEN);
-                }
+                final BaseContactosDelegate delegate = this.delegate;
+                // Activities are started and their results tracked on the main thread.
+                mainHandler.post(() -> {
+                    if (delegate != null) {
+                        delegate.setResult(result);
+                        delegate.setLocalizedLabels(localizedLabels);
+                        delegate.openExistingContact(contact);
+                    } else {
+                        result.success(FORM_COULD_NOT_BE_OPEN);
+                    }
+                });
                 break;
             }
             case "openContactForm": {
                 final boolean localizedLabels = call.argument("androidLocalizedLabels");
-                if (delegate != null) {
-                    delegate.setResult(result);
-                    delegate.setLocalizedLabels(localizedLabels);
-                    delegate.openContactForm();
-                } else {
-                    result.success(FORM_COULD_NOT_BE_OPEN);
-                }
+                final BaseContactosDelegate delegate = this.delegate;
+                mainHandler.post(() -> {
+                    if (delegate != null) {
+                        delegate.setResult(result);
+                        delegate.setLocalizedLabels(localizedLabels);
+                        delegate.openContactForm();
+                    } else {
+                        result.success(FORM_COULD_NOT_BE_OPEN);
+                    }
+                });
                 break;
             }
             case "openDeviceContactPicker": {
@@ -264,6 +445,73 @@ public class ContactosPlugin implements
                 openDeviceContactPicker(result, localizedLabels);
                 break;
             }
+            case "searchContacts": {
+                final String query = call.argument("query");
+                final Integer limit = call.argument("limit");
+                final Boolean localizedLabels = call.argument("androidLocalizedLabels");
+                searchContacts(
+                        query,
+                        limit != null ? limit : ContactSearchIndex.DEFAULT_LIMIT,
+                        localizedLabels != null && localizedLabels,
+                        result
+                );
+                break;
+            }
+            case "getUpcomingBirthdays": {
+                final Integer limit = call.argument("limit");
+                final Integer withinDays = call.argument("withinDays");
+                getUpcomingBirthdays(
+                        limit != null ? limit : BirthdayIndex.DEFAULT_LIMIT,
+                        withinDays != null ? withinDays : -1,
+                        result
+                );
+                break;
+            }
+            case "getFavorites": {
+                final Integer limit = call.argument("limit");
+                final Boolean includeFrequent = call.argument("includeFrequent");
+                getFavorites(limit != null ? limit : -1, includeFrequent == null || includeFrequent, result);
+                break;
+            }
+            case "findDuplicates": {
+                final Number minScore = call.argument("minScore");
+                findDuplicates(minScore != null ? minScore.doubleValue() : DuplicateDetector.DEFAULT_MIN_SCORE, result);
+                break;
+            }
+            case "getStats": {
+                final Boolean reset = call.argument("reset");
+                result.success(reset != null && reset ? metrics.toMapAndReset(executor) : metrics.toMap(executor));
+                break;
+            }
+            case "exportVCards": {
+                final String path = call.argument("path");
+                final String uri = call.argument("uri");
+                final String version = call.argument("version");
+                final Boolean withAvatars = call.argument("withAvatars");
+                exportVCards(
+                        path,
+                        uri,
+                        version != null ? version : VCardWriter.VERSION_3,
+                        withAvatars != null && withAvatars,
+                        result
+                );
+                break;
+            }
+            case "importVCards": {
+                final String path = call.argument("path");
+                final String uri = call.argument("uri");
+                importVCards(path, uri, result);
+                break;
+            }
+            case "clearSnapshot": {
+                clearSnapshot(result);
+                break;
+            }
+            case "resetStats": {
+                metrics.reset();
+                result.success(null);
+                break;
+            }
             default: {
                 result.notImplemented();
             }
@@ -313,176 +561,1112 @@ public class ContactosPlugin implements
             final boolean photoHighResolution,
             final boolean orderByGivenName,
             final boolean localizedLabels,
+            final ContactFilter filter,
+            final boolean stringDictionary,
             final MethodChannel.Result result
     ) {
-        executor.execute(() -> {
-            ArrayList<Contact> contacts;
+        final ContactosMetrics.Trace trace = metrics.begin(callMethod, executor);
+        executeRead(callMethod, trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            Cursor cursor;
 
             switch (callMethod) {
                 case "openDeviceContactPicker":
-                    contacts = getContactsFrom(getCursor(null, param), localizedLabels);
+                    cursor = getCursor(null, param, null);
                     break;
                 case "getContacts":
-                    contacts = getContactsFrom(getCursor(param, null), localizedLabels);
+                    cursor = getCursor(param, null, filter);
                     break;
                 case "getContactsForPhone":
-                    contacts = getContactsFrom(getCursorForPhone(param), localizedLabels);
+                    cursor = getCursorForPhone(param);
                     break;
                 case "getContactsForEmail":
-                    contacts = getContactsFrom(getCursorForEmail(param), localizedLabels);
+                    cursor = getCursorForEmail(param);
                     break;
                 default:
-                    contacts = null;
-                    break;
+                    trace.finish(false);
+                    reply(result::notImplemented);
+                    return;
+            }
+            trace.mark(ContactosMetrics.Stage.QUERY);
+
+            if (cursor != null) trace.addRows(cursor.getCount());
+            ArrayList<Contact> contacts = getContactsFrom(cursor, resources, localizedLabels);
+            trace.mark(ContactosMetrics.Stage.AGGREGATE);
+
+            deliverContacts(contacts, withThumbnails, photoHighResolution, orderByGivenName, stringDictionary, trace, result);
+        });
+    }
+
+    // Fetches full contacts for the given identifiers in a few chunked queries and
+    // returns them in the requested order. Unknown identifiers are skipped.
+    private void getContactsByIds(
+            final List<String> identifiers,
+            final boolean withThumbnails,
+            final boolean photoHighResolution,
+            final boolean localizedLabels,
+            final MethodChannel.Result result
+    ) {
+        final ContactosMetrics.Trace trace = metrics.begin("getContactsByIds", executor);
+        executeRead("getContactsByIds", trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            ArrayList<Contact> contacts = getContactsByIds(identifiers, localizedLabels, trace);
+            deliverContacts(contacts, withThumbnails, photoHighResolution, false, false, trace, result);
+        });
+    }
+
+    // Columns read per data kind by a parallel read, on top of KIND_BASE_PROJECTION.
+    private static final String[] KIND_BASE_PROJECTION = {
+            ContactsContract.Data.CONTACT_ID,
+            ContactsContract.Contacts.DISPLAY_NAME,
+            ContactsContract.RawContacts.ACCOUNT_TYPE,
+            ContactsContract.RawContacts.ACCOUNT_NAME,
+    };
+
+    private static String[] kindProjection(String mimeType) {
+        String[] columns;
+        switch (mimeType) {
+            case StructuredName.CONTENT_ITEM_TYPE:
+                columns = new String[]{StructuredName.GIVEN_NAME, StructuredName.MIDDLE_NAME,
+                        StructuredName.FAMILY_NAME, StructuredName.PREFIX, StructuredName.SUFFIX};
+                break;
+            case CommonDataKinds.Note.CONTENT_ITEM_TYPE:
+                columns = new String[]{CommonDataKinds.Note.NOTE};
+                break;
+            case Phone.CONTENT_ITEM_TYPE:
+                columns = new String[]{Phone.NUMBER, Phone.TYPE, Phone.LABEL};
+                break;
+            case Email.CONTENT_ITEM_TYPE:
+                columns = new String[]{Email.ADDRESS, Email.TYPE, Email.LABEL};
+                break;
+            case Organization.CONTENT_ITEM_TYPE:
+                columns = new String[]{Organization.COMPANY, Organization.TITLE};
+                break;
+            case StructuredPostal.CONTENT_ITEM_TYPE:
+                columns = new String[]{StructuredPostal.TYPE, StructuredPostal.LABEL, StructuredPostal.STREET,
+                        StructuredPostal.CITY, StructuredPostal.POSTCODE, StructuredPostal.REGION,
+                        StructuredPostal.COUNTRY};
+                break;
+            case CommonDataKinds.Event.CONTENT_ITEM_TYPE:
+                columns = new String[]{CommonDataKinds.Event.TYPE, CommonDataKinds.Event.START_DATE};
+                break;
+            default:
+                columns = new String[0];
+                break;
+        }
+        String[] projection = Arrays.copyOf(KIND_BASE_PROJECTION, KIND_BASE_PROJECTION.length + columns.length);
+        System.arraycopy(columns, 0, projection, KIND_BASE_PROJECTION.length, columns.length);
+        return projection;
+    }
+
+    // Reads every contact with one narrow query per data kind, run concurrently on
+    // the fan-out pool, and merges the partial contacts by ID.
+    private void getContactsInParallel(
+            final ContactFilter filter,
+            final boolean withThumbnails,
+            final boolean photoHighResolution,
+            final boolean orderByGivenName,
+            final boolean localizedLabels,
+            final boolean stringDictionary,
+            final MethodChannel.Result result
+    ) {
+        final ContactosMetrics.Trace trace = metrics.begin("getContacts", executor);
+        executeRead("getContacts", trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            // The filter clause is built once and shared by every kind query.
+            StringBuilder filterSelection = new StringBuilder();
+            ArrayList<String> filterArgs = new ArrayList<>();
+            if (filter != null) appendFilter(filter, filterSelection, filterArgs);
+
+            ArrayList<Future<ArrayList<Contact>>> parts = new ArrayList<>(CONTACT_MIMETYPES.length);
+            final long[] rows = new long[CONTACT_MIMETYPES.length];
+            for (int i = 0; i < CONTACT_MIMETYPES.length; i++) {
+                final int kind = i;
+                parts.add(fanOutExecutor.submit(() -> {
+                    String mimeType = CONTACT_MIMETYPES[kind];
+                    ArrayList<String> args = new ArrayList<>(filterArgs.size() + 1);
+                    args.add(mimeType);
+                    args.addAll(filterArgs);
+                    Cursor cursor = contentResolver.query(
+                            ContactsContract.Data.CONTENT_URI,
+                            kindProjection(mimeType),
+                            ContactsContract.Data.MIMETYPE + "=?" + filterSelection,
+                            args.toArray(new String[0]),
+                            null
+                    );
+                    if (cursor == null) return new ArrayList<>();
+                    try {
+                        rows[kind] = cursor.getCount();
+                        return new ContactAggregator(cursor, resources, localizedLabels).aggregateKind(mimeType);
+                    } finally {
+                        cursor.close();
+                    }
+                }));
             }
 
-            if (contacts != null && withThumbnails) {
-                for (Contact c : contacts) {
-                    byte[] avatar = loadContactPhotoHighRes(c.identifier, photoHighResolution, contentResolver);
-                    c.avatar = (avatar != null) ? avatar : new byte[0];
+            // Parts are folded in CONTACT_MIMETYPES order so the result is deterministic.
+            ArrayList<Contact> contacts = new ArrayList<>();
+            LongIndexMap index = new LongIndexMap(64);
+            try {
+                for (Future<ArrayList<Contact>> part : parts) {
+                    for (Contact contact : awaitPart(part)) {
+                        long contactId = Long.parseLong(contact.identifier);
+                        int position = index.get(contactId);
+                        if (position == LongIndexMap.MISSING) {
+                            index.put(contactId, contacts.size());
+                            contacts.add(contact);
+                        } else {
+                            ContactAggregator.merge(contacts.get(position), contact);
+                        }
+                    }
                 }
+            } catch (RuntimeException e) {
+                // The other kinds are of no use once one failed.
+                for (Future<ArrayList<Contact>> part : parts) part.cancel(true);
+                throw e;
+            }
+            for (long count : rows) trace.addRows(count);
+            trace.mark(ContactosMetrics.Stage.AGGREGATE);
+
+            deliverContacts(contacts, withThumbnails, photoHighResolution, orderByGivenName, stringDictionary, trace, result);
+        });
+    }
+
+    // Runs a read on the executor. A provider failure, including one in a fan-out
+    // part, is answered as an error instead of leaving the call without a reply.
+    // The trace is null for reads that are not measured.
+    private void executeRead(
+            final String method,
+            final ContactosMetrics.Trace trace,
+            final MethodChannel.Result result,
+            final Runnable read
+    ) {
+        executor.execute(() -> {
+            try {
+                read.run();
+            } catch (RuntimeException e) {
+                Log.e(LOG_TAG, method + " failed", e);
+                if (trace != null) trace.finish(false);
+                reply(() -> result.error(null, "Failed to read contacts: " + e.getMessage(), null));
+            }
+        });
+    }
+
+    private static <T> T awaitPart(Future<T> part) {
+        try {
+            return part.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Loads avatars if requested, sorts and converts contacts to maps,
+    // then returns them to the main thread. With stringDictionary the maps are
+    // wrapped as {"strings", "contacts"} and repeated fields hold string indices.
+    private void deliverContacts(
+            final ArrayList<Contact> contacts,
+            final boolean withThumbnails,
+            final boolean photoHighResolution,
+            final boolean orderByGivenName,
+            final boolean stringDictionary,
+            final ContactosMetrics.Trace trace,
+            final MethodChannel.Result result
+    ) {
+        loadAvatars(contacts, withThumbnails, photoHighResolution, trace);
+
+        if (orderByGivenName) {
+            Collections.sort(contacts, Comparator.naturalOrder());
+            trace.mark(ContactosMetrics.Stage.SORT);
+        }
+
+        final StringDictionary dictionary = stringDictionary ? new StringDictionary() : null;
+        final ArrayList<HashMap> contactMaps = new ArrayList<>(contacts.size());
+        for (Contact c : contacts) {
+            contactMaps.add(c.toMap(dictionary));
+            trace.addPayloadBytes(ContactosMetrics.estimatePayloadBytes(c));
+        }
+        trace.addContacts(contactMaps.size());
+        final Object response = dictionary != null ? dictionary.wrap(contactMaps) : contactMaps;
+        trace.mark(ContactosMetrics.Stage.TO_MAP);
+
+        reply(() -> {
+            trace.mark(ContactosMetrics.Stage.POST);
+            result.success(response);
+            trace.finish(true);
+        });
+    }
+
+    private void loadAvatars(
+            ArrayList<Contact> contacts,
+            boolean withThumbnails,
+            boolean photoHighResolution,
+            ContactosMetrics.Trace trace
+    ) {
+        if (withThumbnails && !photoHighResolution) {
+            loadThumbnails(contacts, trace);
+            trace.mark(ContactosMetrics.Stage.AVATAR);
+        } else if (withThumbnails) {
+            ArrayList<String> identifiers = new ArrayList<>(contacts.size());
+            for (Contact c : contacts) identifiers.add(c.identifier);
+            HashMap<String, String> etags = readAvatarEtags(identifiers, true);
+            for (Contact c : contacts) {
+                byte[] avatar = loadContactPhotoHighRes(c.identifier, true, contentResolver);
+                c.avatar = (avatar != null) ? avatar : Contact.NO_AVATAR;
+                c.avatarEtag = etags.get(c.identifier);
+                trace.addAvatarBytes(c.avatar.length);
+            }
+            trace.mark(ContactosMetrics.Stage.AVATAR);
+        }
+    }
+    // endregion
+
+    // region Versioned reads
+    // Whole-book read answered relative to the version the caller already holds:
+    // {version, unchanged: true} when nothing moved, {version, added, changed,
+    // removed} with contact maps for the first two and identifiers for the last,
+    // or {version, contacts} when that version is unknown (first read, another
+    // process, different options, or too old).
+    private void getContactsVersioned(
+            final long sinceVersion,
+            final boolean withThumbnails,
+            final boolean photoHighResolution,
+            final boolean orderByGivenName,
+            final boolean localizedLabels,
+            final MethodChannel.Result result
+    ) {
+        final ContactosMetrics.Trace trace = metrics.begin("getContacts", executor);
+        final ContactVersions versions = runtime.contactVersions;
+        final int options = versionedOptions(withThumbnails, photoHighResolution, localizedLabels);
+        executeRead("getContacts", trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            // Taken before the read so that edits racing with it move the version again.
+            long providerVersion = contactsVersion();
+            ContactVersions.Snapshot since = sinceVersion >= 0 ? versions.find(sinceVersion, options) : null;
+            if (since != null && versions.isCurrent(since, providerVersion)) {
+                trace.mark(ContactosMetrics.Stage.QUERY);
+                replyVersioned(unchangedResponse(since.version), trace, result);
+                return;
             }
 
-            if (contacts != null && orderByGivenName) {
+            Cursor cursor = getCursor(null, null, null);
+            trace.mark(ContactosMetrics.Stage.QUERY);
+            if (cursor != null) trace.addRows(cursor.getCount());
+            ArrayList<Contact> contacts = getContactsFrom(cursor, resources, localizedLabels);
+            trace.mark(ContactosMetrics.Stage.AGGREGATE);
+            loadAvatars(contacts, withThumbnails, photoHighResolution, trace);
+            if (orderByGivenName) {
                 Collections.sort(contacts, Comparator.naturalOrder());
+                trace.mark(ContactosMetrics.Stage.SORT);
             }
 
-            final ArrayList<HashMap> contactMaps = new ArrayList<>();
-            if (contacts != null) {
-                for (Contact c : contacts) {
-                    contactMaps.add(c.toMap());
-                }
+            ArrayList<HashMap> maps = new ArrayList<>(contacts.size());
+            HashMap<String, Long> fingerprints = new HashMap<>(contacts.size() * 2);
+            for (Contact c : contacts) {
+                HashMap<String, Object> map = c.toMap();
+                maps.add(map);
+                fingerprints.put(c.identifier, ContactVersions.fingerprint(map));
             }
 
-            // Returning the result to the main thread
-            mainHandler.post(() -> {
-                if (contacts == null) {
-                    result.notImplemented();
+            HashMap<String, Object> response;
+            if (since == null) {
+                response = new HashMap<>(2);
+                response.put("version", versions.add(options, providerVersion, fingerprints).version);
+                response.put("contacts", maps);
+                for (Contact c : contacts) trace.addPayloadBytes(ContactosMetrics.estimatePayloadBytes(c));
+                trace.addContacts(contacts.size());
+            } else {
+                ContactVersions.Diff diff = ContactVersions.diff(since.fingerprints, fingerprints);
+                if (diff.isEmpty()) {
+                    versions.confirm(since, providerVersion);
+                    response = unchangedResponse(since.version);
                 } else {
-                    result.success(contactMaps);
+                    HashSet<String> added = new HashSet<>(diff.added);
+                    HashSet<String> changed = new HashSet<>(diff.changed);
+                    ArrayList<HashMap> addedMaps = new ArrayList<>(added.size());
+                    ArrayList<HashMap> changedMaps = new ArrayList<>(changed.size());
+                    for (int i = 0; i < contacts.size(); i++) {
+                        Contact c = contacts.get(i);
+                        if (added.contains(c.identifier)) {
+                            addedMaps.add(maps.get(i));
+                        } else if (changed.contains(c.identifier)) {
+                            changedMaps.add(maps.get(i));
+                        } else {
+                            continue;
+                        }
+                        trace.addPayloadBytes(ContactosMetrics.estimatePayloadBytes(c));
+                    }
+                    response = new HashMap<>(4);
+                    response.put("version", versions.add(options, providerVersion, fingerprints).version);
+                    response.put("added", addedMaps);
+                    response.put("changed", changedMaps);
+                    response.put("removed", diff.removed);
+                    trace.addContacts(addedMaps.size() + changedMaps.size());
                 }
+            }
+            trace.mark(ContactosMetrics.Stage.TO_MAP);
+            replyVersioned(response, trace, result);
+        });
+    }
+
+    // Versions are only comparable between reads that convert contacts the same way.
+    private static int versionedOptions(boolean withThumbnails, boolean photoHighResolution, boolean localizedLabels) {
+        return (withThumbnails ? 1 : 0) | (photoHighResolution ? 2 : 0) | (localizedLabels ? 4 : 0);
+    }
+
+    private static HashMap<String, Object> unchangedResponse(long version) {
+        HashMap<String, Object> response = new HashMap<>(2);
+        response.put("version", version);
+        response.put("unchanged", true);
+        return response;
+    }
+
+    private void replyVersioned(
+            final HashMap<String, Object> response,
+            final ContactosMetrics.Trace trace,
+            final MethodChannel.Result result
+    ) {
+        reply(() -> {
+            trace.mark(ContactosMetrics.Stage.POST);
+            result.success(response);
+            trace.finish(true);
+        });
+    }
+    // endregion
+
+    // region Duplicate detection
+    // Reads the whole address book and groups contacts that share a phone number,
+    // an email or a folded name. Resolves to groups ordered by descending score.
+    private void findDuplicates(final double minScore, final MethodChannel.Result result) {
+        final ContactosMetrics.Trace trace = metrics.begin("findDuplicates", executor);
+        executeRead("findDuplicates", trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            Cursor cursor = getCursor(null, null, null);
+            trace.mark(ContactosMetrics.Stage.QUERY);
+            if (cursor != null) trace.addRows(cursor.getCount());
+            ArrayList<Contact> contacts = getContactsFrom(cursor, resources, false);
+            trace.mark(ContactosMetrics.Stage.AGGREGATE);
+            final ArrayList<HashMap<String, Object>> groups = DuplicateDetector.find(contacts, minScore);
+            trace.addContacts(contacts.size());
+            trace.mark(ContactosMetrics.Stage.TO_MAP);
+            reply(() -> {
+                trace.mark(ContactosMetrics.Stage.POST);
+                result.success(groups);
+                trace.finish(true);
             });
         });
     }
     // endregion
 
-    private void openDeviceContactPicker(MethodChannel.Result result, boolean localizedLabels) {
-        if (delegate != null) {
-            delegate.setResult(result);
-            delegate.setLocalizedLabels(localizedLabels);
-            delegate.openContactPicker();
-        } else {
-            result.success(FORM_COULD_NOT_BE_OPEN);
-        }
+    // region Fuzzy search
+    // Ranks the whole address book against the query in memory and returns only the
+    // best matches. The index is reused across keystrokes until a contact changes.
+    private void searchContacts(
+            final String query,
+            final int limit,
+            final boolean localizedLabels,
+            final MethodChannel.Result result
+    ) {
+        final ContactosMetrics.Trace trace = metrics.begin("searchContacts", executor);
+        final ContactosRuntime runtime = this.runtime;
+        executeRead("searchContacts", trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            long version = contactsVersion();
+            ContactSearchIndex index = runtime.searchIndex;
+            if (index == null || index.version != version || index.localizedLabels != localizedLabels) {
+                Cursor cursor = getCursor(null, null, null);
+                trace.mark(ContactosMetrics.Stage.QUERY);
+                if (cursor != null) trace.addRows(cursor.getCount());
+                index = new ContactSearchIndex(getContactsFrom(cursor, resources, localizedLabels), version, localizedLabels);
+                runtime.searchIndex = index;
+                trace.mark(ContactosMetrics.Stage.AGGREGATE);
+            }
+            ArrayList<Contact> hits = new ArrayList<>(index.search(query, limit));
+            trace.mark(ContactosMetrics.Stage.SORT);
+            deliverContacts(hits, false, false, false, false, trace, result);
+        });
     }
 
-    private ArrayList<Contact> getContactsFrom(Cursor cursor, boolean localizedLabels) {
-        HashMap<String, Contact> map = new LinkedHashMap<>();
+    // endregion
+
+    // region Upcoming birthdays
+    // Next birthdays from today, read from the birthday Event rows only. The
+    // sorted index is kept until a contact changes.
+    private void getUpcomingBirthdays(final int limit, final int withinDays, final MethodChannel.Result result) {
+        final ContactosMetrics.Trace trace = metrics.begin("getUpcomingBirthdays", executor);
+        final ContactosRuntime runtime = this.runtime;
+        executeRead("getUpcomingBirthdays", trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            long version = contactsVersion();
+            BirthdayIndex index = runtime.birthdayIndex;
+            if (index == null || index.version != version) {
+                index = new BirthdayIndex(readBirthdays(trace), version);
+                runtime.birthdayIndex = index;
+                trace.mark(ContactosMetrics.Stage.AGGREGATE);
+            }
+            Calendar today = Calendar.getInstance();
+            final List<HashMap<String, Object>> birthdays = index.upcoming(
+                    today.get(Calendar.YEAR),
+                    today.get(Calendar.MONTH) + 1,
+                    today.get(Calendar.DAY_OF_MONTH),
+                    limit,
+                    withinDays
+            );
+            trace.mark(ContactosMetrics.Stage.SORT);
+            trace.addContacts(birthdays.size());
+            reply(() -> {
+                result.success(birthdays);
+                trace.finish(true);
+            });
+        });
+    }
 
+    private static final String[] BIRTHDAY_PROJECTION = {
+            ContactsContract.Data.CONTACT_ID,
+            ContactsContract.Data.DISPLAY_NAME_PRIMARY,
+            CommonDataKinds.Event.START_DATE,
+    };
+
+    // One birthday per contact; the first readable one wins when linked raw contacts disagree.
+    private ArrayList<BirthdayIndex.Entry> readBirthdays(ContactosMetrics.Trace trace) {
+        ArrayList<BirthdayIndex.Entry> entries = new ArrayList<>();
+        Cursor cursor = contentResolver.query(
+                ContactsContract.Data.CONTENT_URI,
+                BIRTHDAY_PROJECTION,
+                ContactsContract.Data.MIMETYPE + " = ? AND " + CommonDataKinds.Event.TYPE + " = ?",
+                new String[]{
+                        CommonDataKinds.Event.CONTENT_ITEM_TYPE,
+                        String.valueOf(CommonDataKinds.Event.TYPE_BIRTHDAY),
+                },
+                null
+        );
+        trace.mark(ContactosMetrics.Stage.QUERY);
+        if (cursor == null) return entries;
+        try {
+            trace.addRows(cursor.getCount());
+            HashSet<String> seen = new HashSet<>();
+            while (cursor.moveToNext()) {
+                String identifier = cursor.getString(0);
+                if (seen.contains(identifier)) continue;
+                BirthdayIndex.Entry entry = BirthdayIndex.parse(identifier, cursor.getString(1), cursor.getString(2));
+                if (entry == null) continue;
+                seen.add(identifier);
+                entries.add(entry);
+            }
+        } finally {
+            cursor.close();
+        }
+        return entries;
+    }
+
+    // Changes whenever a contact is added, edited or deleted.
+    private long contactsVersion() {
+        long deleted = 0;
+        Cursor cursor = contentResolver.query(
+                ContactsContract.DeletedContacts.CONTENT_URI.buildUpon()
+                        .appendQueryParameter(ContactsContract.LIMIT_PARAM_KEY, "1")
+                        .build(),
+                new String[]{ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP},
+                null,
+                null,
+                ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP + " DESC"
+        );
         if (cursor != null) {
+            try {
+                if (cursor.moveToFirst()) deleted = cursor.getLong(0);
+            } finally {
+                cursor.close();
+            }
+        }
+        return Math.max(latestContactUpdate(), deleted);
+    }
+    // endregion
+
+    // region Favorites
+    // Starred contacts, optionally followed by frequently contacted ones, as a
+    // compact summary for home screens. Served from memory until a contact changes.
+    private void getFavorites(final int limit, final boolean includeFrequent, final MethodChannel.Result result) {
+        final ContactosRuntime runtime = this.runtime;
+        final FavoritesCache cache = runtime.favorites;
+        if (!cache.isWatching()) mainHandler.post(cache::watch);
+        final ContactosMetrics.Trace trace = metrics.begin("getFavorites", executor);
+        executeRead("getFavorites", trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            List<HashMap<String, Object>> favorites = cache.get(includeFrequent);
+            if (favorites == null) {
+                int generation = cache.generation();
+                favorites = readFavorites(includeFrequent, trace);
+                cache.put(includeFrequent, generation, favorites);
+            }
+            final List<HashMap<String, Object>> page = limit >= 0 && limit < favorites.size()
+                    ? new ArrayList<>(favorites.subList(0, limit))
+                    : new ArrayList<>(favorites);
+            trace.addContacts(page.size());
+            reply(() -> {
+                result.success(page);
+                trace.finish(true);
+            });
+        });
+    }
+
+    private static final String[] FAVORITES_PROJECTION = {
+            ContactsContract.Contacts._ID,
+            ContactsContract.Contacts.DISPLAY_NAME_PRIMARY,
+            ContactsContract.Contacts.STARRED,
+            ContactsContract.Contacts.HAS_PHONE_NUMBER,
+    };
+
+    // Strequent lists starred contacts first, then the most frequently contacted
+    // ones (on Android 10+ the provider no longer reports the latter).
+    private List<HashMap<String, Object>> readFavorites(boolean includeFrequent, ContactosMetrics.Trace trace) {
+        ArrayList<HashMap<String, Object>> favorites = new ArrayList<>();
+        Cursor cursor = includeFrequent
+                ? contentResolver.query(ContactsContract.Contacts.CONTENT_STREQUENT_URI, FAVORITES_PROJECTION,
+                null, null, null)
+                : contentResolver.query(ContactsContract.Contacts.CONTENT_URI, FAVORITES_PROJECTION,
+                ContactsContract.Contacts.STARRED + " = 1", null, ContactsContract.Contacts.DISPLAY_NAME_PRIMARY);
+        trace.mark(ContactosMetrics.Stage.QUERY);
+        if (cursor == null) return favorites;
+        try {
+            trace.addRows(cursor.getCount());
             while (cursor.moveToNext()) {
-                String contactId = cursor.getString(cursor.getColumnIndex(ContactsContract.Data.CONTACT_ID));
-                if (!map.containsKey(contactId)) {
-                    map.put(contactId, new Contact(contactId));
-                }
-                Contact contact = map.get(contactId);
-
-                String mimeType = cursor.getString(cursor.getColumnIndex(ContactsContract.Data.MIMETYPE));
-                contact.displayName = cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME));
-                contact.androidAccountType = cursor.getString(cursor.getColumnIndex(ContactsContract.RawContacts.ACCOUNT_TYPE));
-                contact.androidAccountName = cursor.getString(cursor.getColumnIndex(ContactsContract.RawContacts.ACCOUNT_NAME));
-
-                if (CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE.equals(mimeType)) {
-                    contact.givenName = cursor.getString(cursor.getColumnIndex(StructuredName.GIVEN_NAME));
-                    contact.middleName = cursor.getString(cursor.getColumnIndex(StructuredName.MIDDLE_NAME));
-                    contact.familyName = cursor.getString(cursor.getColumnIndex(StructuredName.FAMILY_NAME));
-                    contact.prefix = cursor.getString(cursor.getColumnIndex(StructuredName.PREFIX));
-                    contact.suffix = cursor.getString(cursor.getColumnIndex(StructuredName.SUFFIX));
-                }
-                else if (CommonDataKinds.Note.CONTENT_ITEM_TYPE.equals(mimeType)) {
-                    contact.note = cursor.getString(cursor.getColumnIndex(CommonDataKinds.Note.NOTE));
-                }
-                else if (CommonDataKinds.Phone.CONTENT_ITEM_TYPE.equals(mimeType)) {
-                    String phoneNumber = cursor.getString(cursor.getColumnIndex(Phone.NUMBER));
-                    if (!TextUtils.isEmpty(phoneNumber)) {
-                        int type = cursor.getInt(cursor.getColumnIndex(Phone.TYPE));
-                        String label = Item.getPhoneLabel(resources, type, cursor, localizedLabels);
-                        contact.phones.add(new Item(label, phoneNumber, type));
+                HashMap<String, Object> favorite = new HashMap<>(4);
+                favorite.put("identifier", cursor.getString(0));
+                favorite.put("displayName", cursor.getString(1));
+                favorite.put("starred", cursor.getInt(2) != 0);
+                favorite.put("hasPhoneNumber", cursor.getInt(3) != 0);
+                favorites.add(favorite);
+            }
+        } finally {
+            cursor.close();
+        }
+        trace.mark(ContactosMetrics.Stage.TO_MAP);
+        return favorites;
+    }
+    // endregion
+
+    // region vCard export
+    // Streams the whole address book as vCards to a file path or a content:// URI
+    // (e.g. one picked through the Storage Access Framework), reporting progress
+    // through onExportProgress. Returns the number of contacts written.
+    private void exportVCards(
+            final String path,
+            final String uri,
+            final String version,
+            final boolean withAvatars,
+            final MethodChannel.Result result
+    ) {
+        if ((path == null) == (uri == null)) {
+            result.error(null, "Exactly one of path or uri must be provided", null);
+            return;
+        }
+        final ContactosMetrics.Trace trace = metrics.begin("exportVCards", executor);
+        executor.execute(() -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            try (OutputStream stream = path != null
+                    ? new FileOutputStream(path)
+                    : contentResolver.openOutputStream(Uri.parse(uri), "w");
+                 VCardWriter writer = new VCardWriter(stream, version)) {
+                Cursor cursor = getCursorForExport(withAvatars);
+                trace.mark(ContactosMetrics.Stage.QUERY);
+                if (cursor == null) throw new IOException("Contacts provider is unavailable");
+                trace.addRows(cursor.getCount());
+                final int written = writer.exportFrom(cursor, resources, (contacts, rows, totalRows) -> {
+                    final HashMap<String, Object> progress = new HashMap<>();
+                    progress.put("contacts", contacts);
+                    progress.put("rows", rows);
+                    progress.put("totalRows", totalRows);
+                    mainHandler.post(() -> {
+                        if (methodChannel != null) methodChannel.invokeMethod("onExportProgress", progress);
+                    });
+                });
+                trace.addContacts(written);
+                trace.mark(ContactosMetrics.Stage.WRITE);
+                reply(() -> {
+                    trace.mark(ContactosMetrics.Stage.POST);
+                    result.success(written);
+                    trace.finish(true);
+                });
+            } catch (IOException | RuntimeException e) {
+                Log.e(LOG_TAG, "vCard export failed", e);
+                trace.finish(false);
+                reply(() -> result.error(null, "Failed to export contacts: " + e.getMessage(), null));
+            }
+        });
+    }
+
+    // Contact rows grouped by contact, so the writer can emit each one as soon as the id changes.
+    private Cursor getCursorForExport(boolean withAvatars) {
+        ArrayList<String> mimeTypes = new ArrayList<>(Arrays.asList(CONTACT_MIMETYPES));
+        ArrayList<String> projection = new ArrayList<>(Arrays.asList(PROJECTION));
+        if (withAvatars) {
+            mimeTypes.add(CommonDataKinds.Photo.CONTENT_ITEM_TYPE);
+            projection.add(CommonDataKinds.Photo.PHOTO);
+        }
+        StringBuilder selection = new StringBuilder(ContactsContract.Data.MIMETYPE).append(" IN (");
+        for (int i = 0; i < mimeTypes.size(); i++) {
+            selection.append(i == 0 ? "?" : ",?");
+        }
+        selection.append(")");
+        return contentResolver.query(
+                ContactsContract.Data.CONTENT_URI,
+                projection.toArray(new String[0]),
+                selection.toString(),
+                mimeTypes.toArray(new String[0]),
+                ContactsContract.Data.CONTACT_ID
+        );
+    }
+    // endregion
+
+    // region vCard import
+    // ContactsProvider rejects batches above 500 operations.
+    private static final int IMPORT_OPERATIONS_PER_BATCH = 400;
+    private static final int IMPORT_MAX_REPORTED_ERRORS = 100;
+
+    // Parses cards one at a time and inserts them in chunked applyBatch calls. A
+    // batch that fails is retried contact by contact so one bad card does not sink
+    // its neighbours. Photos too large for a batch are streamed once it commits.
+    // Resolves to {imported, failed, errors}.
+    private void importVCards(final String path, final String uri, final MethodChannel.Result result) {
+        if ((path == null) == (uri == null)) {
+            result.error(null, "Exactly one of path or uri must be provided", null);
+            return;
+        }
+        final ContactosMetrics.Trace trace = metrics.begin("importVCards", executor);
+        final ContactosRuntime runtime = this.runtime;
+        executor.execute(() -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            final ImportSummary summary = new ImportSummary();
+            try (InputStream stream = path != null
+                    ? new FileInputStream(path)
+                    : contentResolver.openInputStream(Uri.parse(uri));
+                 VCardParser parser = new VCardParser(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+                ArrayList<Contact> batch = new ArrayList<>();
+                ArrayList<Integer> batchCards = new ArrayList<>();
+                ArrayList<Integer> batchFirstOperations = new ArrayList<>();
+                while (true) {
+                    Contact contact;
+                    try {
+                        contact = parser.next();
+                    } catch (VCardParser.CardException e) {
+                        summary.fail(e.card, e.getMessage());
+                        continue;
                     }
-                }
-                else if (CommonDataKinds.Email.CONTENT_ITEM_TYPE.equals(mimeType)) {
-                    String email = cursor.getString(cursor.getColumnIndex(Email.ADDRESS));
-                    int type = cursor.getInt(cursor.getColumnIndex(Email.TYPE));
-                    if (!TextUtils.isEmpty(email)) {
-                        String label = Item.getEmailLabel(resources, type, cursor, localizedLabels);
-                        contact.emails.add(new Item(label, email, type));
+                    if (contact == null) break;
+                    batchFirstOperations.add(ops.size());
+                    appendInsertOperations(ops, contact, PhotoWriter.fitsInline(contact.avatar));
+                    batch.add(contact);
+                    batchCards.add(parser.cardIndex());
+                    if (ops.size() >= IMPORT_OPERATIONS_PER_BATCH) {
+                        commitImportBatch(ops, batch, batchCards, batchFirstOperations, summary, trace);
                     }
                 }
-                else if (CommonDataKinds.Organization.CONTENT_ITEM_TYPE.equals(mimeType)) {
-                    contact.company = cursor.getString(cursor.getColumnIndex(Organization.COMPANY));
-                    contact.jobTitle = cursor.getString(cursor.getColumnIndex(Organization.TITLE));
+                if (!batch.isEmpty()) {
+                    commitImportBatch(ops, batch, batchCards, batchFirstOperations, summary, trace);
                 }
-                else if (CommonDataKinds.StructuredPostal.CONTENT_ITEM_TYPE.equals(mimeType)) {
-                    int type = cursor.getInt(cursor.getColumnIndex(StructuredPostal.TYPE));
-                    String label = PostalAddress.getLabel(resources, type, cursor, localizedLabels);
-                    String street = cursor.getString(cursor.getColumnIndex(StructuredPostal.STREET));
-                    String city = cursor.getString(cursor.getColumnIndex(StructuredPostal.CITY));
-                    String postcode = cursor.getString(cursor.getColumnIndex(StructuredPostal.POSTCODE));
-                    String region = cursor.getString(cursor.getColumnIndex(StructuredPostal.REGION));
-                    String country = cursor.getString(cursor.getColumnIndex(StructuredPostal.COUNTRY));
-                    contact.postalAddresses.add(
-                            new PostalAddress(label, street, city, postcode, region, country, type)
-                    );
+                // Provider timestamps are coarse; don't rely on them to notice our own writes.
+                runtime.dropIndexes();
+
+                trace.addContacts(summary.imported);
+                final HashMap<String, Object> summaryMap = summary.toMap();
+                reply(() -> {
+                    trace.mark(ContactosMetrics.Stage.POST);
+                    result.success(summaryMap);
+                    trace.finish(true);
+                });
+            } catch (IOException | RuntimeException e) {
+                Log.e(LOG_TAG, "vCard import failed", e);
+                // Batches committed before the failure stay written.
+                runtime.dropIndexes();
+                trace.finish(false);
+                reply(() -> result.error(null, "Failed to import contacts: " + e.getMessage(), null));
+            }
+        });
+    }
+
+    private void commitImportBatch(
+            ArrayList<ContentProviderOperation> ops,
+            ArrayList<Contact> batch,
+            ArrayList<Integer> batchCards,
+            ArrayList<Integer> batchFirstOperations,
+            ImportSummary summary,
+            ContactosMetrics.Trace trace
+    ) {
+        ContentProviderResult[] results = null;
+        try {
+            results = contentResolver.applyBatch(ContactsContract.AUTHORITY, ops);
+        } catch (Exception batchError) {
+            // The batch has no yield points, so it was one transaction and nothing of it
+            // was committed; every contact is inserted again on its own.
+            for (int i = 0; i < batch.size(); i++) {
+                Contact contact = batch.get(i);
+                ArrayList<ContentProviderOperation> single = new ArrayList<>();
+                appendInsertOperations(single, contact, PhotoWriter.fitsInline(contact.avatar));
+                ContentProviderResult[] inserted;
+                try {
+                    inserted = contentResolver.applyBatch(ContactsContract.AUTHORITY, single);
+                } catch (Exception e) {
+                    summary.fail(batchCards.get(i), e.getMessage());
+                    continue;
                 }
-                else if (CommonDataKinds.Event.CONTENT_ITEM_TYPE.equals(mimeType)) {
-                    int eventType = cursor.getInt(cursor.getColumnIndex(CommonDataKinds.Event.TYPE));
-                    if (eventType == CommonDataKinds.Event.TYPE_BIRTHDAY) {
-                        contact.birthday = cursor.getString(cursor.getColumnIndex(CommonDataKinds.Event.START_DATE));
-                    }
+                summary.imported++;
+                writeImportedPhoto(contact, inserted[0], batchCards.get(i), summary);
+            }
+        }
+        if (results != null) {
+            summary.imported += batch.size();
+            for (int i = 0; i < batch.size(); i++) {
+                writeImportedPhoto(batch.get(i), results[batchFirstOperations.get(i)], batchCards.get(i), summary);
+            }
+        }
+        trace.mark(ContactosMetrics.Stage.WRITE);
+        ops.clear();
+        batch.clear();
+        batchCards.clear();
+        batchFirstOperations.clear();
+
+        final HashMap<String, Object> progress = new HashMap<>();
+        progress.put("imported", summary.imported);
+        progress.put("failed", summary.failed);
+        mainHandler.post(() -> {
+            if (methodChannel != null) methodChannel.invokeMethod("onImportProgress", progress);
+        });
+    }
+
+    // The card is imported either way; a photo that could not be streamed is
+    // reported without counting the card as failed.
+    private void writeImportedPhoto(Contact contact, ContentProviderResult rawContact, int card, ImportSummary summary) {
+        if (PhotoWriter.fitsInline(contact.avatar)) return;
+        boolean photoWritten;
+        try {
+            photoWritten = PhotoWriter.write(contentResolver, ContentUris.parseId(rawContact.uri), contact.avatar);
+        } catch (RuntimeException e) {
+            Log.e(LOG_TAG, "Failed to write the photo of an imported contact", e);
+            photoWritten = false;
+        }
+        if (!photoWritten) summary.report(card, PHOTO_FAILED);
+    }
+
+    private static final class ImportSummary {
+        int imported;
+        int failed;
+        final ArrayList<HashMap<String, Object>> errors = new ArrayList<>();
+
+        void fail(int card, String message) {
+            failed++;
+            report(card, message);
+        }
+
+        void report(int card, String message) {
+            if (errors.size() >= IMPORT_MAX_REPORTED_ERRORS) return;
+            HashMap<String, Object> error = new HashMap<>();
+            error.put("card", card);
+            error.put("message", message);
+            errors.add(error);
+        }
+
+        HashMap<String, Object> toMap() {
+            HashMap<String, Object> result = new HashMap<>();
+            result.put("imported", imported);
+            result.put("failed", failed);
+            result.put("errors", errors);
+            return result;
+        }
+    }
+    // endregion
+
+    // region Snapshot
+    // Serves the persisted snapshot when there is one, then reconciles it against
+    // the provider; otherwise performs a full read and persists it for the next launch.
+    private void getContactsWithSnapshot(
+            final boolean orderByGivenName,
+            final boolean localizedLabels,
+            final boolean stringDictionary,
+            final MethodChannel.Result result
+    ) {
+        final ContactosMetrics.Trace trace = metrics.begin("getContacts", executor);
+        final File file = snapshotFile;
+        final String fingerprint = ContactSnapshot.fingerprint(resources, localizedLabels);
+        executeRead("getContacts", trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            ContactSnapshot snapshot = ContactSnapshot.read(file, fingerprint);
+            trace.mark(ContactosMetrics.Stage.SNAPSHOT);
+            if (snapshot != null) {
+                deliverContacts(new ArrayList<>(snapshot.contacts), false, false, orderByGivenName, stringDictionary, trace, result);
+                try {
+                    reconcileSnapshot(snapshot, file, fingerprint, localizedLabels);
+                } catch (RuntimeException e) {
+                    // The reply is out already. The snapshot can't be trusted to be
+                    // reconciled next time either, so the next read is a full one.
+                    Log.w(LOG_TAG, "Failed to reconcile contact snapshot", e);
+                    ContactSnapshot.delete(file);
                 }
+                return;
+            }
+
+            // Taken before the read so that edits racing with it are picked up by the next reconcile.
+            long asOf = latestContactUpdate();
+            Cursor cursor = getCursor(null, null, null);
+            trace.mark(ContactosMetrics.Stage.QUERY);
+            if (cursor != null) trace.addRows(cursor.getCount());
+            ArrayList<Contact> contacts = getContactsFrom(cursor, resources, localizedLabels);
+            trace.mark(ContactosMetrics.Stage.AGGREGATE);
+            ArrayList<Contact> unsorted = new ArrayList<>(contacts);
+            deliverContacts(contacts, false, false, orderByGivenName, stringDictionary, trace, result);
+            writeSnapshot(file, unsorted, asOf, fingerprint);
+        });
+    }
+
+    // Re-reads contacts updated after the snapshot was taken, drops deleted ones and
+    // rewrites the file. Dart is told which identifiers moved so it can refresh them.
+    private void reconcileSnapshot(ContactSnapshot snapshot, File file, String fingerprint, boolean localizedLabels) {
+        HashSet<String> known = new HashSet<>(snapshot.contacts.size() * 2);
+        for (Contact c : snapshot.contacts) known.add(c.identifier);
+        HashSet<String> present = new HashSet<>(snapshot.contacts.size() * 2);
+        ArrayList<String> changed = new ArrayList<>();
+        long asOf = snapshot.asOf;
+
+        Cursor cursor = contentResolver.query(
+                ContactsContract.Contacts.CONTENT_URI,
+                new String[]{ContactsContract.Contacts._ID, ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP},
+                null,
+                null,
+                null
+        );
+        if (cursor == null) return;
+        try {
+            while (cursor.moveToNext()) {
+                String id = cursor.getString(0);
+                long updated = cursor.getLong(1);
+                present.add(id);
+                if (updated > snapshot.asOf) changed.add(id);
+                asOf = Math.max(asOf, updated);
             }
+        } finally {
+            cursor.close();
+        }
+
+        ArrayList<String> deleted = new ArrayList<>();
+        for (String id : known) {
+            if (!present.contains(id)) deleted.add(id);
+        }
+        if (changed.isEmpty() && deleted.isEmpty()) return;
+
+        ContactosMetrics.Trace trace = metrics.begin("reconcileSnapshot", executor);
+        ArrayList<Contact> fresh;
+        try {
+            fresh = getContactsByIds(changed, localizedLabels, trace);
+        } catch (RuntimeException e) {
+            trace.finish(false);
+            throw e;
+        }
+        HashSet<String> stale = new HashSet<>(changed);
+        stale.addAll(deleted);
+        ArrayList<Contact> merged = new ArrayList<>(snapshot.contacts.size() + fresh.size());
+        for (Contact c : snapshot.contacts) {
+            if (!stale.contains(c.identifier)) merged.add(c);
+        }
+        merged.addAll(fresh);
+        writeSnapshot(file, merged, asOf, fingerprint);
+        trace.addContacts(fresh.size());
+        trace.finish(true);
+
+        final HashMap<String, Object> event = new HashMap<>();
+        event.put("changed", changed);
+        event.put("deleted", deleted);
+        mainHandler.post(() -> {
+            if (methodChannel != null) methodChannel.invokeMethod("onSnapshotReconciled", event);
+        });
+    }
+
+    private long latestContactUpdate() {
+        Cursor cursor = contentResolver.query(
+                ContactsContract.Contacts.CONTENT_URI.buildUpon()
+                        .appendQueryParameter(ContactsContract.LIMIT_PARAM_KEY, "1")
+                        .build(),
+                new String[]{ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP},
+                null,
+                null,
+                ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + " DESC"
+        );
+        if (cursor == null) return 0;
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void writeSnapshot(File file, List<Contact> contacts, long asOf, String fingerprint) {
+        if (file == null) return;
+        try {
+            ContactSnapshot.write(file, contacts, asOf, fingerprint);
+        } catch (IOException | RuntimeException e) {
+            Log.w(LOG_TAG, "Failed to write contact snapshot", e);
+            ContactSnapshot.delete(file);
+        }
+    }
+
+    // Runs on the executor so it is ordered after any snapshot write already queued.
+    private void clearSnapshot(final MethodChannel.Result result) {
+        final File file = snapshotFile;
+        executeRead("clearSnapshot", null, result, () -> {
+            if (file != null) ContactSnapshot.delete(file);
+            reply(() -> result.success(null));
+        });
+    }
+    // endregion
+
+    private void openDeviceContactPicker(final MethodChannel.Result result, final boolean localizedLabels) {
+        final BaseContactosDelegate delegate = this.delegate;
+        mainHandler.post(() -> {
+            if (delegate != null) {
+                delegate.setResult(result);
+                delegate.setLocalizedLabels(localizedLabels);
+                delegate.openContactPicker();
+            } else {
+                result.success(FORM_COULD_NOT_BE_OPEN);
+            }
+        });
+    }
+
+    // Package-private and static so the read pipeline can be driven from JVM tests and benchmarks.
+    static ArrayList<Contact> getContactsFrom(Cursor cursor, Resources resources, boolean localizedLabels) {
+        if (cursor == null) return new ArrayList<>();
+        try {
+            return new ContactAggregator(cursor, resources, localizedLabels).aggregate();
+        } finally {
             cursor.close();
         }
+    }
 
-        return new ArrayList<>(map.values());
-    }
-
-    private Cursor getCursor(String query, String rawContactId) {
-        String selection = "(" +
-                ContactsContract.Data.MIMETYPE + "=? OR " +
-                ContactsContract.Data.MIMETYPE + "=? OR " +
-                ContactsContract.Data.MIMETYPE + "=? OR " +
-                ContactsContract.Data.MIMETYPE + "=? OR " +
-                ContactsContract.Data.MIMETYPE + "=? OR " +
-                ContactsContract.Data.MIMETYPE + "=? OR " +
-                ContactsContract.Data.MIMETYPE + "=? OR " +
-                ContactsContract.RawContacts.ACCOUNT_TYPE + "=?" +
-                ")";
-        ArrayList<String> selectionArgs = new ArrayList<>(Arrays.asList(
-                CommonDataKinds.Note.CONTENT_ITEM_TYPE,
-                Email.CONTENT_ITEM_TYPE,
-                Phone.CONTENT_ITEM_TYPE,
-                StructuredName.CONTENT_ITEM_TYPE,
-                Organization.CONTENT_ITEM_TYPE,
-                StructuredPostal.CONTENT_ITEM_TYPE,
-                CommonDataKinds.Event.CONTENT_ITEM_TYPE,
-                ContactsContract.RawContacts.ACCOUNT_TYPE
-        ));
+    // Probes the provider once per runtime, on the first filter that needs a subquery.
+    private void appendFilter(ContactFilter filter, StringBuilder selection, ArrayList<String> selectionArgs) {
+        boolean subqueries = false;
+        if (filter.needsContactIds()) {
+            if (runtime.filterSubqueries == null) {
+                runtime.filterSubqueries = ContactFilter.acceptsSubqueries(contentResolver);
+            }
+            subqueries = runtime.filterSubqueries;
+        }
+        filter.appendSelection(selection, selectionArgs, contentResolver, subqueries);
+    }
 
+    private Cursor getCursor(String query, String rawContactId, ContactFilter filter) {
+        StringBuilder selection = new StringBuilder();
+        ArrayList<String> selectionArgs = new ArrayList<>();
         if (query != null) {
             // Search by DISPLAY_NAME_PRIMARY
-            selection = ContactsContract.Contacts.DISPLAY_NAME_PRIMARY + " LIKE ?";
-            selectionArgs.clear();
+            selection.append(ContactsContract.Contacts.DISPLAY_NAME_PRIMARY).append(" LIKE ?");
             selectionArgs.add(query + "%");
+        } else {
+            selection.append(ContactsContract.Data.MIMETYPE).append(" IN (");
+            for (int i = 0; i < CONTACT_MIMETYPES.length; i++) {
+                selection.append(i == 0 ? "?" : ",?");
+            }
+            selection.append(")");
+            selectionArgs.addAll(Arrays.asList(CONTACT_MIMETYPES));
         }
         if (rawContactId != null) {
             selectionArgs.add(rawContactId);
-            selection += " AND " + ContactsContract.Data.CONTACT_ID + " =?";
+            selection.append(" AND ").append(ContactsContract.Data.CONTACT_ID).append(" =?");
+        }
+        if (filter != null) {
+            appendFilter(filter, selection, selectionArgs);
         }
         return contentResolver.query(
                 ContactsContract.Data.CONTENT_URI,
                 PROJECTION,
-                selection,
+                selection.toString(),
+                selectionArgs.toArray(new String[0]),
+                null
+        );
+    }
+
+    // SQLite limits the number of bound arguments per statement (999 on older devices),
+    // so identifiers are queried in chunks well below that limit.
+    private static final int CONTACT_ID_CHUNK_SIZE = 500;
+
+    private static final String[] CONTACT_MIMETYPES = {
+            CommonDataKinds.Note.CONTENT_ITEM_TYPE,
+            Email.CONTENT_ITEM_TYPE,
+            Phone.CONTENT_ITEM_TYPE,
+            StructuredName.CONTENT_ITEM_TYPE,
+            Organization.CONTENT_ITEM_TYPE,
+            StructuredPostal.CONTENT_ITEM_TYPE,
+            CommonDataKinds.Event.CONTENT_ITEM_TYPE,
+    };
+
+    private ArrayList<Contact> getContactsByIds(
+            List<String> identifiers,
+            boolean localizedLabels,
+            ContactosMetrics.Trace trace
+    ) {
+        ArrayList<Contact> contacts = new ArrayList<>();
+        if (identifiers == null || identifiers.isEmpty()) return contacts;
+
+        LinkedHashSet<String> uniqueIds = new LinkedHashSet<>();
+        for (String identifier : identifiers) {
+            if (!TextUtils.isEmpty(identifier)) uniqueIds.add(identifier);
+        }
+
+        HashMap<String, Contact> byId = new HashMap<>();
+        ArrayList<String> chunk = new ArrayList<>(CONTACT_ID_CHUNK_SIZE);
+        for (String identifier : uniqueIds) {
+            chunk.add(identifier);
+            if (chunk.size() == CONTACT_ID_CHUNK_SIZE) {
+                collectContactsForIds(chunk, localizedLabels, trace, byId);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            collectContactsForIds(chunk, localizedLabels, trace, byId);
+        }
+
+        for (String identifier : identifiers) {
+            Contact contact = byId.get(identifier);
+            if (contact != null) contacts.add(contact);
+        }
+        return contacts;
+    }
+
+    private void collectContactsForIds(
+            List<String> contactIds,
+            boolean localizedLabels,
+            ContactosMetrics.Trace trace,
+            HashMap<String, Contact> into
+    ) {
+        Cursor cursor = getCursorForIds(contactIds);
+        trace.mark(ContactosMetrics.Stage.QUERY);
+        if (cursor != null) trace.addRows(cursor.getCount());
+        for (Contact c : getContactsFrom(cursor, resources, localizedLabels)) {
+            into.put(c.identifier, c);
+        }
+        trace.mark(ContactosMetrics.Stage.AGGREGATE);
+    }
+
+    private Cursor getCursorForIds(List<String> contactIds) {
+        StringBuilder selection = new StringBuilder(ContactsContract.Data.CONTACT_ID).append(" IN (");
+        for (int i = 0; i < contactIds.size(); i++) {
+            selection.append(i == 0 ? "?" : ",?");
+        }
+        selection.append(") AND ").append(ContactsContract.Data.MIMETYPE).append(" IN (");
+        for (int i = 0; i < CONTACT_MIMETYPES.length; i++) {
+            selection.append(i == 0 ? "?" : ",?");
+        }
+        selection.append(")");
+
+        ArrayList<String> selectionArgs = new ArrayList<>(contactIds);
+        selectionArgs.addAll(Arrays.asList(CONTACT_MIMETYPES));
+        return contentResolver.query(
+                ContactsContract.Data.CONTENT_URI,
+                PROJECTION,
+                selection.toString(),
                 selectionArgs.toArray(new String[0]),
                 null
         );
@@ -538,12 +1722,235 @@ public class ContactosPlugin implements
 
     // region Working with avatar (replacement of AsyncTask)
     private void getAvatar(final Contact contact, final boolean highRes, final MethodChannel.Result result) {
-        executor.execute(() -> {
+        final ContactosMetrics.Trace trace = metrics.begin("getAvatar", executor);
+        executeRead("getAvatar", trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
             byte[] avatar = loadContactPhotoHighRes(contact.identifier, highRes, contentResolver);
-            mainHandler.post(() -> result.success(avatar));
+            trace.mark(ContactosMetrics.Stage.AVATAR);
+            if (avatar != null) trace.addAvatarBytes(avatar.length);
+            reply(() -> {
+                trace.mark(ContactosMetrics.Stage.POST);
+                result.success(avatar);
+                trace.finish(true);
+            });
+        });
+    }
+
+    // Conditional form of getAvatar. Answers {"etag", "notModified", "avatar"}; when
+    // the current etag equals ifNoneMatch the photo stream is never opened.
+    private void getAvatarIfNoneMatch(
+            final String identifier,
+            final boolean highRes,
+            final String ifNoneMatch,
+            final MethodChannel.Result result
+    ) {
+        final ContactosMetrics.Trace trace = metrics.begin("getAvatar", executor);
+        executeRead("getAvatar", trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            String etag = identifier != null
+                    ? readAvatarEtags(Collections.singletonList(identifier), highRes).get(identifier)
+                    : null;
+            trace.mark(ContactosMetrics.Stage.QUERY);
+            final HashMap<String, Object> response;
+            if (etag != null && etag.equals(ifNoneMatch)) {
+                response = avatarResponse(etag, true, null);
+            } else {
+                byte[] avatar = etag != null ? loadContactPhotoHighRes(identifier, highRes, contentResolver) : null;
+                trace.mark(ContactosMetrics.Stage.AVATAR);
+                if (avatar != null) trace.addAvatarBytes(avatar.length);
+                response = avatarResponse(etag, false, avatar);
+            }
+            reply(() -> {
+                trace.mark(ContactosMetrics.Stage.POST);
+                result.success(response);
+                trace.finish(true);
+            });
+        });
+    }
+
+    // Batch form: one etag query per chunk, then photos only for the contacts whose
+    // etag differs from the one the caller holds. Thumbnails are returned as stored,
+    // like getContacts(withThumbnails) returns them.
+    private void getAvatars(
+            final List<String> identifiers,
+            final boolean highRes,
+            final Map<String, String> ifNoneMatch,
+            final MethodChannel.Result result
+    ) {
+        final ContactosMetrics.Trace trace = metrics.begin("getAvatars", executor);
+        executeRead("getAvatars", trace, result, () -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            final HashMap<String, Object> response = new HashMap<>();
+            if (identifiers == null || identifiers.isEmpty()) {
+                reply(() -> {
+                    trace.mark(ContactosMetrics.Stage.POST);
+                    result.success(response);
+                    trace.finish(true);
+                });
+                return;
+            }
+            HashMap<String, String> etags = readAvatarEtags(identifiers, highRes);
+            trace.mark(ContactosMetrics.Stage.QUERY);
+
+            ArrayList<Contact> changed = new ArrayList<>();
+            for (String identifier : identifiers) {
+                String etag = etags.get(identifier);
+                String known = ifNoneMatch != null ? ifNoneMatch.get(identifier) : null;
+                if (etag != null && etag.equals(known)) {
+                    response.put(identifier, avatarResponse(etag, true, null));
+                } else if (etag == null) {
+                    response.put(identifier, avatarResponse(null, false, null));
+                } else {
+                    changed.add(new Contact(identifier));
+                }
+            }
+            if (!highRes) {
+                loadThumbnails(changed, trace);
+            } else {
+                for (Contact c : changed) {
+                    byte[] avatar = loadContactPhotoHighRes(c.identifier, true, contentResolver);
+                    c.avatar = (avatar != null) ? avatar : Contact.NO_AVATAR;
+                    c.avatarEtag = etags.get(c.identifier);
+                    trace.addAvatarBytes(c.avatar.length);
+                }
+            }
+            for (Contact c : changed) {
+                byte[] avatar = c.avatar.length > 0 ? c.avatar : null;
+                response.put(c.identifier, avatarResponse(c.avatarEtag, false, avatar));
+            }
+            trace.mark(ContactosMetrics.Stage.AVATAR);
+            reply(() -> {
+                trace.mark(ContactosMetrics.Stage.POST);
+                result.success(response);
+                trace.finish(true);
+            });
         });
     }
 
+    private static HashMap<String, Object> avatarResponse(String etag, boolean notModified, byte[] avatar) {
+        HashMap<String, Object> response = new HashMap<>(4);
+        response.put("etag", etag);
+        response.put("notModified", notModified);
+        response.put("avatar", avatar);
+        return response;
+    }
+
+    // Version tag of a contact's avatar, built from columns the provider already
+    // keeps: the photo row (changes when another photo becomes the contact's own),
+    // its DATA_VERSION (bumped on every rewrite of the row) and the display photo
+    // file. Thumbnail and full-size tags differ, as their bytes do.
+    static String avatarEtag(boolean highRes, long photoId, long dataVersion, long photoFileId) {
+        return (highRes ? "h" : "t") + photoId + "." + dataVersion + "." + photoFileId;
+    }
+
+    private static final String[] AVATAR_ETAG_PROJECTION = {
+            ContactsContract.Data.CONTACT_ID,
+            ContactsContract.Data._ID,
+            ContactsContract.Data.DATA_VERSION,
+            ContactsContract.Data.PHOTO_FILE_ID,
+    };
+
+    private static final String[] THUMBNAIL_PROJECTION = {
+            ContactsContract.Data.CONTACT_ID,
+            ContactsContract.Data._ID,
+            ContactsContract.Data.DATA_VERSION,
+            ContactsContract.Data.PHOTO_FILE_ID,
+            CommonDataKinds.Photo.PHOTO,
+    };
+
+    // Etags for the given contacts, keyed by identifier. Reads no photo bytes;
+    // contacts without a photo are absent.
+    private HashMap<String, String> readAvatarEtags(List<String> identifiers, boolean highRes) {
+        HashMap<String, String> etags = new HashMap<>();
+        ArrayList<String> chunk = new ArrayList<>(Math.min(identifiers.size(), CONTACT_ID_CHUNK_SIZE));
+        for (String identifier : identifiers) {
+            if (TextUtils.isEmpty(identifier)) continue;
+            chunk.add(identifier);
+            if (chunk.size() == CONTACT_ID_CHUNK_SIZE) {
+                readAvatarEtags(chunk, highRes, etags);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) readAvatarEtags(chunk, highRes, etags);
+        return etags;
+    }
+
+    private void readAvatarEtags(List<String> contactIds, boolean highRes, HashMap<String, String> etags) {
+        Cursor cursor = queryPhotoRows(contactIds, AVATAR_ETAG_PROJECTION);
+        if (cursor == null) return;
+        try {
+            while (cursor.moveToNext()) {
+                etags.put(String.valueOf(cursor.getLong(0)),
+                        avatarEtag(highRes, cursor.getLong(1), cursor.getLong(2), cursor.getLong(3)));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // The contacts' own photo rows, i.e. the ones openContactPhotoInputStream would read.
+    private Cursor queryPhotoRows(List<String> contactIds, String[] projection) {
+        StringBuilder selection = new StringBuilder(ContactsContract.Data.CONTACT_ID).append(" IN (");
+        for (int i = 0; i < contactIds.size(); i++) {
+            selection.append(i == 0 ? "?" : ",?");
+        }
+        selection.append(") AND ").append(ContactsContract.Data.MIMETYPE).append("=?")
+                .append(" AND ").append(ContactsContract.Data._ID).append("=").append(ContactsContract.Data.PHOTO_ID);
+        ArrayList<String> selectionArgs = new ArrayList<>(contactIds);
+        selectionArgs.add(CommonDataKinds.Photo.CONTENT_ITEM_TYPE);
+
+        return contentResolver.query(
+                ContactsContract.Data.CONTENT_URI,
+                projection,
+                selection.toString(),
+                selectionArgs.toArray(new String[0]),
+                null
+        );
+    }
+
+    // Thumbnails are stored inline in the Photo row, so they are read for many
+    // contacts per query instead of opening one photo stream per contact. The
+    // bytes are attached as stored, with their etag. Contacts without a photo get NO_AVATAR.
+    private void loadThumbnails(ArrayList<Contact> contacts, ContactosMetrics.Trace trace) {
+        LongIndexMap index = new LongIndexMap(contacts.size());
+        ArrayList<String> chunk = new ArrayList<>(CONTACT_ID_CHUNK_SIZE);
+        for (int i = 0; i < contacts.size(); i++) {
+            Contact contact = contacts.get(i);
+            contact.avatar = Contact.NO_AVATAR;
+            if (TextUtils.isEmpty(contact.identifier)) continue;
+            index.put(Long.parseLong(contact.identifier), i);
+            chunk.add(contact.identifier);
+            if (chunk.size() == CONTACT_ID_CHUNK_SIZE) {
+                readThumbnails(chunk, contacts, index, trace);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) readThumbnails(chunk, contacts, index, trace);
+    }
+
+    private void readThumbnails(
+            List<String> contactIds,
+            ArrayList<Contact> contacts,
+            LongIndexMap index,
+            ContactosMetrics.Trace trace
+    ) {
+        Cursor cursor = queryPhotoRows(contactIds, THUMBNAIL_PROJECTION);
+        if (cursor == null) return;
+        try {
+            while (cursor.moveToNext()) {
+                int position = index.get(cursor.getLong(0));
+                byte[] thumbnail = cursor.getBlob(4);
+                if (position == LongIndexMap.MISSING || thumbnail == null || thumbnail.length == 0) continue;
+                Contact contact = contacts.get(position);
+                contact.avatar = thumbnail;
+                contact.avatarEtag = avatarEtag(false, cursor.getLong(1), cursor.getLong(2), cursor.getLong(3));
+                trace.addAvatarBytes(thumbnail.length);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
     private static byte[] loadContactPhotoHighRes(
             final String identifier,
             final boolean photoHighResolution,
@@ -576,263 +1983,479 @@ public class ContactosPlugin implements
     // endregion
 
     // region CRUD: addContact, deleteContact, updateContact
-    private boolean addContact(Contact contact) {
+    private interface ContactWrite {
+        // One of the WRITE_ outcomes.
+        int apply();
+    }
+
+    // Runs a write on the executor, so batches never block the calling thread and
+    // stay ordered with reads queued before them.
+    private void writeContact(
+            final String method,
+            final ContactWrite write,
+            final String errorMessage,
+            final MethodChannel.Result result
+    ) {
+        final ContactosMetrics.Trace trace = metrics.begin(method, executor);
+        final ContactosRuntime runtime = this.runtime;
+        executor.execute(() -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            final int outcome = write.apply();
+            // Provider timestamps are coarse; don't rely on them to notice our own writes.
+            runtime.dropIndexes();
+            trace.mark(ContactosMetrics.Stage.WRITE);
+            trace.finish(outcome == WRITE_OK);
+            reply(() -> replyWrite(result, outcome, errorMessage));
+        });
+    }
+
+    // Commits everything queued by enqueueMutation. Answers each request once the
+    // write that absorbed it is committed, then the caller (if any) with the
+    // number of writes performed.
+    private void flushMutations(final MethodChannel.Result result) {
+        mainHandler.removeCallbacks(scheduledFlush);
+        final ContactosMetrics.Trace trace = metrics.begin("flushMutations", executor);
+        final ContactosRuntime runtime = this.runtime;
+        // Captured: disposeInstance clears the field before a final flush runs.
+        final ContentResolver resolver = contentResolver;
+        executor.execute(() -> {
+            trace.mark(ContactosMetrics.Stage.QUEUE);
+            final ArrayList<MutationQueue.Mutation> batch = mutations.drain();
+            applyMutations(resolver, batch);
+            runtime.dropIndexes();
+            trace.mark(ContactosMetrics.Stage.WRITE);
+            trace.addContacts(batch.size());
+            trace.finish(true);
+            reply(() -> {
+                if (result != null) result.success(batch.size());
+            });
+        });
+    }
+
+    // Commits mutations in transactions of at most IMPORT_OPERATIONS_PER_BATCH
+    // operations. No operation allows a yield, so a failed transaction left
+    // nothing behind and its mutations are retried one by one to find the culprit.
+    private void applyMutations(ContentResolver resolver, ArrayList<MutationQueue.Mutation> batch) {
+        ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+        ArrayList<ContentProviderOperation> scratch = new ArrayList<>();
+        ArrayList<MutationQueue.Mutation> chunk = new ArrayList<>();
+        for (MutationQueue.Mutation mutation : batch) {
+            mutation.contact.avatar = mutation.photo.prepare(mutation.contact.avatar);
+            mutation.photo = PhotoOptions.NONE;
+            mutation.inlinePhoto = PhotoWriter.fitsInline(mutation.contact.avatar);
+
+            scratch.clear();
+            appendMutationOperations(scratch, mutation);
+            if (!chunk.isEmpty() && ops.size() + scratch.size() > IMPORT_OPERATIONS_PER_BATCH) {
+                commitMutations(resolver, ops, chunk);
+            }
+            mutation.firstOperation = ops.size();
+            // Rebuilt in place so back references point at this batch's positions.
+            appendMutationOperations(ops, mutation);
+            chunk.add(mutation);
+        }
+        if (!chunk.isEmpty()) commitMutations(resolver, ops, chunk);
+    }
+
+    private static void appendMutationOperations(ArrayList<ContentProviderOperation> ops, MutationQueue.Mutation mutation) {
+        switch (mutation.type) {
+            case MutationQueue.ADD:
+                appendInsertOperations(ops, mutation.contact, mutation.inlinePhoto);
+                break;
+            case MutationQueue.UPDATE:
+                appendUpdateOperations(ops, mutation.contact, mutation.inlinePhoto);
+                break;
+            default:
+                appendDeleteOperations(ops, mutation.contact);
+                break;
+        }
+    }
+
+    private void commitMutations(
+            ContentResolver resolver,
+            ArrayList<ContentProviderOperation> ops,
+            ArrayList<MutationQueue.Mutation> chunk
+    ) {
+        ContentProviderResult[] results;
         try {
-            ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+            results = resolver.applyBatch(ContactsContract.AUTHORITY, ops);
+        } catch (Exception batchError) {
+            // Nothing of the transaction was committed; replay it one mutation at a time.
+            for (MutationQueue.Mutation mutation : chunk) {
+                int outcome;
+                switch (mutation.type) {
+                    case MutationQueue.ADD:
+                        outcome = addContact(resolver, mutation.contact, mutation.photo);
+                        break;
+                    case MutationQueue.UPDATE:
+                        outcome = updateContact(resolver, mutation.contact, mutation.photo);
+                        break;
+                    default:
+                        outcome = deleteContact(resolver, mutation.contact);
+                        break;
+                }
+                completeMutation(mutation, outcome);
+            }
+            ops.clear();
+            chunk.clear();
+            return;
+        }
+        // Committed: from here on only photos can fail, and they never undo the batch.
+        for (MutationQueue.Mutation mutation : chunk) {
+            boolean photoWritten = true;
+            try {
+                if (!mutation.inlinePhoto && mutation.type == MutationQueue.ADD) {
+                    long rawContactId = ContentUris.parseId(results[mutation.firstOperation].uri);
+                    photoWritten = PhotoWriter.write(resolver, rawContactId, mutation.contact.avatar);
+                } else if (!mutation.inlinePhoto && mutation.type == MutationQueue.UPDATE) {
+                    photoWritten = PhotoWriter.writeForContact(
+                            resolver, Long.parseLong(mutation.contact.identifier), mutation.contact.avatar);
+                }
+            } catch (RuntimeException e) {
+                Log.e(LOG_TAG, "Failed to write the photo of a committed contact", e);
+                photoWritten = false;
+            }
+            completeMutation(mutation, photoWritten ? WRITE_OK : WRITE_PHOTO_FAILED);
+        }
+        ops.clear();
+        chunk.clear();
+    }
 
-            ContentProviderOperation.Builder op = ContentProviderOperation
-                    .newInsert(ContactsContract.RawContacts.CONTENT_URI)
-                    .withValue(ContactsContract.RawContacts.ACCOUNT_TYPE, null)
-                    .withValue(ContactsContract.RawContacts.ACCOUNT_NAME, null);
-            ops.add(op.build());
+    private void completeMutation(MutationQueue.Mutation mutation, final int outcome) {
+        final String error = mutation.type == MutationQueue.ADD ? ADD_FAILED
+                : mutation.type == MutationQueue.UPDATE ? UPDATE_FAILED
+                : DELETE_FAILED;
+        for (final MethodChannel.Result result : mutation.results) {
+            reply(() -> replyWrite(result, outcome, error));
+        }
+    }
 
-            // Name
-            op = ContentProviderOperation
-                    .newInsert(ContactsContract.Data.CONTENT_URI)
-                    .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, 0)
-                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE)
-                    .withValue(StructuredName.GIVEN_NAME, contact.givenName)
-                    .withValue(StructuredName.MIDDLE_NAME, contact.middleName)
-                    .withValue(StructuredName.FAMILY_NAME, contact.familyName)
-                    .withValue(StructuredName.PREFIX, contact.prefix)
-                    .withValue(StructuredName.SUFFIX, contact.suffix);
-            ops.add(op.build());
+    private static void replyWrite(MethodChannel.Result result, int outcome, String errorMessage) {
+        if (outcome == WRITE_OK) {
+            result.success(null);
+        } else {
+            result.error(null, outcome == WRITE_PHOTO_FAILED ? PHOTO_FAILED : errorMessage, null);
+        }
+    }
+
+    // Optional photoMaxDimension and photoJpegQuality arguments of addContact and
+    // updateContact; see PhotoWriter#prepare.
+    static final class PhotoOptions {
+        static final PhotoOptions NONE = new PhotoOptions(0, 0);
+
+        final int maxDimension;
+        final int jpegQuality;
+
+        private PhotoOptions(int maxDimension, int jpegQuality) {
+            this.maxDimension = maxDimension;
+            this.jpegQuality = jpegQuality;
+        }
+
+        static PhotoOptions fromCall(MethodCall call) {
+            Integer maxDimension = call.argument("photoMaxDimension");
+            Integer jpegQuality = call.argument("photoJpegQuality");
+            return new PhotoOptions(
+                    maxDimension != null ? maxDimension : 0,
+                    jpegQuality != null ? jpegQuality : 0
+            );
+        }
+
+        byte[] prepare(byte[] photo) {
+            return PhotoWriter.prepare(photo, maxDimension, jpegQuality);
+        }
+    }
+
+    // Photos too large for the batch are streamed to the new raw contact afterwards.
+    private static int addContact(ContentResolver resolver, Contact contact, PhotoOptions photo) {
+        boolean inlinePhoto;
+        ContentProviderResult[] results;
+        try {
+            contact.avatar = photo.prepare(contact.avatar);
+            inlinePhoto = PhotoWriter.fitsInline(contact.avatar);
+            ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+            appendInsertOperations(ops, contact, inlinePhoto);
+            results = resolver.applyBatch(ContactsContract.AUTHORITY, ops);
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "Exception encountered while adding contact: ", e);
+            return WRITE_FAILED;
+        }
+        if (inlinePhoto) return WRITE_OK;
+        return PhotoWriter.write(resolver, ContentUris.parseId(results[0].uri), contact.avatar)
+                ? WRITE_OK : WRITE_PHOTO_FAILED;
+    }
 
-            // Note
+    // Appends the inserts for a new raw contact. Back references are relative to the
+    // position in ops, so several contacts can share one applyBatch call. Without
+    // inlinePhoto no Photo row is added; the caller streams the photo instead.
+    // No operation allows a yield, so a batch always commits or rolls back whole.
+    static void appendInsertOperations(ArrayList<ContentProviderOperation> ops, Contact contact, boolean inlinePhoto) {
+        final int rawContact = ops.size();
+        ContentProviderOperation.Builder op = ContentProviderOperation
+                .newInsert(ContactsContract.RawContacts.CONTENT_URI)
+                .withValue(ContactsContract.RawContacts.ACCOUNT_TYPE, null)
+                .withValue(ContactsContract.RawContacts.ACCOUNT_NAME, null);
+        ops.add(op.build());
+
+        // Name
+        op = ContentProviderOperation
+                .newInsert(ContactsContract.Data.CONTENT_URI)
+                .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContact)
+                .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE)
+                .withValue(StructuredName.GIVEN_NAME, contact.givenName)
+                .withValue(StructuredName.MIDDLE_NAME, contact.middleName)
+                .withValue(StructuredName.FAMILY_NAME, contact.familyName)
+                .withValue(StructuredName.PREFIX, contact.prefix)
+                .withValue(StructuredName.SUFFIX, contact.suffix);
+        ops.add(op.build());
+
+        // Note
+        op = ContentProviderOperation
+                .newInsert(ContactsContract.Data.CONTENT_URI)
+                .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContact)
+                .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Note.CONTENT_ITEM_TYPE)
+                .withValue(CommonDataKinds.Note.NOTE, contact.note);
+        ops.add(op.build());
+
+        // Organization
+        op = ContentProviderOperation
+                .newInsert(ContactsContract.Data.CONTENT_URI)
+                .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContact)
+                .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Organization.CONTENT_ITEM_TYPE)
+                .withValue(Organization.COMPANY, contact.company)
+                .withValue(Organization.TITLE, contact.jobTitle);
+        ops.add(op.build());
+
+        // Photo
+        if (inlinePhoto) {
             op = ContentProviderOperation
                     .newInsert(ContactsContract.Data.CONTENT_URI)
-                    .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, 0)
-                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Note.CONTENT_ITEM_TYPE)
-                    .withValue(CommonDataKinds.Note.NOTE, contact.note);
+                    .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContact)
+                    .withValue(ContactsContract.Data.IS_SUPER_PRIMARY, 1)
+                    .withValue(ContactsContract.CommonDataKinds.Photo.PHOTO, contact.avatar)
+                    .withValue(ContactsContract.Data.MIMETYPE, ContactsContract.CommonDataKinds.Photo.CONTENT_ITEM_TYPE);
             ops.add(op.build());
+        }
 
-            // Organization
+        // Phones
+        for (Item phone : contact.phones) {
             op = ContentProviderOperation
                     .newInsert(ContactsContract.Data.CONTENT_URI)
-                    .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, 0)
-                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Organization.CONTENT_ITEM_TYPE)
-                    .withValue(Organization.COMPANY, contact.company)
-                    .withValue(Organization.TITLE, contact.jobTitle);
+                    .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContact)
+                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Phone.CONTENT_ITEM_TYPE)
+                    .withValue(CommonDataKinds.Phone.NUMBER, phone.value);
+
+            if (phone.type == CommonDataKinds.Phone.TYPE_CUSTOM) {
+                op.withValue(CommonDataKinds.Phone.TYPE, CommonDataKinds.BaseTypes.TYPE_CUSTOM);
+                op.withValue(CommonDataKinds.Phone.LABEL, phone.label);
+            } else {
+                op.withValue(CommonDataKinds.Phone.TYPE, phone.type);
+            }
             ops.add(op.build());
+        }
 
-            // Photo
+        // E-mail
+        for (Item email : contact.emails) {
             op = ContentProviderOperation
                     .newInsert(ContactsContract.Data.CONTENT_URI)
-                    .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, 0)
-                    .withValue(ContactsContract.Data.IS_SUPER_PRIMARY, 1)
-                    .withValue(ContactsContract.CommonDataKinds.Photo.PHOTO, contact.avatar)
-                    .withValue(ContactsContract.Data.MIMETYPE, ContactsContract.CommonDataKinds.Photo.CONTENT_ITEM_TYPE);
+                    .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContact)
+                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Email.CONTENT_ITEM_TYPE)
+                    .withValue(CommonDataKinds.Email.ADDRESS, email.value)
+                    .withValue(CommonDataKinds.Email.TYPE, email.type);
             ops.add(op.build());
-            op.withYieldAllowed(true);
-
-            // Phones
-            for (Item phone : contact.phones) {
-                op = ContentProviderOperation
-                        .newInsert(ContactsContract.Data.CONTENT_URI)
-                        .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, 0)
-                        .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Phone.CONTENT_ITEM_TYPE)
-                        .withValue(CommonDataKinds.Phone.NUMBER, phone.value);
-
-                if (phone.type == CommonDataKinds.Phone.TYPE_CUSTOM) {
-                    op.withValue(CommonDataKinds.Phone.TYPE, CommonDataKinds.BaseTypes.TYPE_CUSTOM);
-                    op.withValue(CommonDataKinds.Phone.LABEL, phone.label);
-                } else {
-                    op.withValue(CommonDataKinds.Phone.TYPE, phone.type);
-                }
-                ops.add(op.build());
-            }
-
-            // E-mail
-            for (Item email : contact.emails) {
-                op = ContentProviderOperation
-                        .newInsert(ContactsContract.Data.CONTENT_URI)
-                        .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, 0)
-                        .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Email.CONTENT_ITEM_TYPE)
-                        .withValue(CommonDataKinds.Email.ADDRESS, email.value)
-                        .withValue(CommonDataKinds.Email.TYPE, email.type);
-                ops.add(op.build());
-            }
-
-            // Addresses
-            for (PostalAddress address : contact.postalAddresses) {
-                op = ContentProviderOperation
-                        .newInsert(ContactsContract.Data.CONTENT_URI)
-                        .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, 0)
-                        .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.StructuredPostal.CONTENT_ITEM_TYPE)
-                        .withValue(CommonDataKinds.StructuredPostal.TYPE, address.type)
-                        .withValue(CommonDataKinds.StructuredPostal.LABEL, address.label)
-                        .withValue(CommonDataKinds.StructuredPostal.STREET, address.street)
-                        .withValue(CommonDataKinds.StructuredPostal.CITY, address.city)
-                        .withValue(CommonDataKinds.StructuredPostal.REGION, address.region)
-                        .withValue(CommonDataKinds.StructuredPostal.POSTCODE, address.postcode)
-                        .withValue(CommonDataKinds.StructuredPostal.COUNTRY, address.country);
-                ops.add(op.build());
-            }
-
-            // Birthday
+        }
+
+        // Addresses
+        for (PostalAddress address : contact.postalAddresses) {
             op = ContentProviderOperation
                     .newInsert(ContactsContract.Data.CONTENT_URI)
-                    .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, 0)
-                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Event.CONTENT_ITEM_TYPE)
-                    .withValue(CommonDataKinds.Event.TYPE, CommonDataKinds.Event.TYPE_BIRTHDAY)
-                    .withValue(CommonDataKinds.Event.START_DATE, contact.birthday);
+                    .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContact)
+                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.StructuredPostal.CONTENT_ITEM_TYPE)
+                    .withValue(CommonDataKinds.StructuredPostal.TYPE, address.type)
+                    .withValue(CommonDataKinds.StructuredPostal.LABEL, address.label)
+                    .withValue(CommonDataKinds.StructuredPostal.STREET, address.street)
+                    .withValue(CommonDataKinds.StructuredPostal.CITY, address.city)
+                    .withValue(CommonDataKinds.StructuredPostal.REGION, address.region)
+                    .withValue(CommonDataKinds.StructuredPostal.POSTCODE, address.postcode)
+                    .withValue(CommonDataKinds.StructuredPostal.COUNTRY, address.country);
             ops.add(op.build());
-
-            contentResolver.applyBatch(ContactsContract.AUTHORITY, ops);
-            return true;
-        } catch (Exception e) {
-            return false;
         }
+
+        // Birthday
+        op = ContentProviderOperation
+                .newInsert(ContactsContract.Data.CONTENT_URI)
+                .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContact)
+                .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Event.CONTENT_ITEM_TYPE)
+                .withValue(CommonDataKinds.Event.TYPE, CommonDataKinds.Event.TYPE_BIRTHDAY)
+                .withValue(CommonDataKinds.Event.START_DATE, contact.birthday);
+        ops.add(op.build());
     }
 
-    private boolean deleteContact(Contact contact) {
+    private static int deleteContact(ContentResolver resolver, Contact contact) {
         try {
             ArrayList<ContentProviderOperation> ops = new ArrayList<>();
-            ops.add(ContentProviderOperation
-                    .newDelete(ContactsContract.RawContacts.CONTENT_URI)
-                    .withSelection(
-                            ContactsContract.RawContacts.CONTACT_ID + "=?",
-                            new String[]{String.valueOf(contact.identifier)}
-                    )
-                    .build());
-            contentResolver.applyBatch(ContactsContract.AUTHORITY, ops);
-            return true;
+            appendDeleteOperations(ops, contact);
+            resolver.applyBatch(ContactsContract.AUTHORITY, ops);
+            return WRITE_OK;
         } catch (Exception e) {
-            return false;
+            return WRITE_FAILED;
         }
     }
 
-    private boolean updateContact(Contact contact) {
+    static void appendDeleteOperations(ArrayList<ContentProviderOperation> ops, Contact contact) {
+        ops.add(ContentProviderOperation
+                .newDelete(ContactsContract.RawContacts.CONTENT_URI)
+                .withSelection(
+                        ContactsContract.RawContacts.CONTACT_ID + "=?",
+                        new String[]{String.valueOf(contact.identifier)}
+                )
+                .build());
+    }
+
+    private static int updateContact(ContentResolver resolver, Contact contact, PhotoOptions photo) {
+        long contactId;
+        boolean inlinePhoto;
         try {
+            contactId = Long.parseLong(contact.identifier);
+            contact.avatar = photo.prepare(contact.avatar);
+            inlinePhoto = PhotoWriter.fitsInline(contact.avatar);
             ArrayList<ContentProviderOperation> ops = new ArrayList<>();
-            ContentProviderOperation.Builder op;
-
-            // Removed old data (except for the name)
-            op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
-                    .withSelection(
-                            ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
-                            new String[]{contact.identifier, CommonDataKinds.Organization.CONTENT_ITEM_TYPE}
-                    );
-            ops.add(op.build());
+            appendUpdateOperations(ops, contact, inlinePhoto);
+            resolver.applyBatch(ContactsContract.AUTHORITY, ops);
+        } catch (Exception e) {
+            Log.e("TAG", "Exception encountered while updating contact: ", e);
+            return WRITE_FAILED;
+        }
+        if (inlinePhoto) return WRITE_OK;
+        return PhotoWriter.writeForContact(resolver, contactId, contact.avatar) ? WRITE_OK : WRITE_PHOTO_FAILED;
+    }
 
-            op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
-                    .withSelection(
-                            ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
-                            new String[]{contact.identifier, CommonDataKinds.Phone.CONTENT_ITEM_TYPE}
-                    );
-            ops.add(op.build());
+    // Replaces every field of an existing contact: its data rows are deleted and
+    // written again, except the name, which is updated in place. Without
+    // inlinePhoto no Photo row is added; the caller streams the photo instead.
+    static void appendUpdateOperations(ArrayList<ContentProviderOperation> ops, Contact contact, boolean inlinePhoto) {
+        ContentProviderOperation.Builder op;
+
+        // Removed old data (except for the name)
+        op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
+                .withSelection(
+                        ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
+                        new String[]{contact.identifier, CommonDataKinds.Organization.CONTENT_ITEM_TYPE}
+                );
+        ops.add(op.build());
 
-            op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
-                    .withSelection(
-                            ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
-                            new String[]{contact.identifier, CommonDataKinds.Email.CONTENT_ITEM_TYPE}
-                    );
-            ops.add(op.build());
+        op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
+                .withSelection(
+                        ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
+                        new String[]{contact.identifier, CommonDataKinds.Phone.CONTENT_ITEM_TYPE}
+                );
+        ops.add(op.build());
 
-            op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
-                    .withSelection(
-                            ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
-                            new String[]{contact.identifier, CommonDataKinds.Note.CONTENT_ITEM_TYPE}
-                    );
-            ops.add(op.build());
+        op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
+                .withSelection(
+                        ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
+                        new String[]{contact.identifier, CommonDataKinds.Email.CONTENT_ITEM_TYPE}
+                );
+        ops.add(op.build());
 
-            op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
-                    .withSelection(
-                            ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
-                            new String[]{contact.identifier, CommonDataKinds.StructuredPostal.CONTENT_ITEM_TYPE}
-                    );
-            ops.add(op.build());
+        op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
+                .withSelection(
+                        ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
+                        new String[]{contact.identifier, CommonDataKinds.Note.CONTENT_ITEM_TYPE}
+                );
+        ops.add(op.build());
 
-            // Photo
-            op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
-                    .withSelection(
-                            ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
-                            new String[]{contact.identifier, CommonDataKinds.Photo.CONTENT_ITEM_TYPE}
-                    );
-            ops.add(op.build());
+        op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
+                .withSelection(
+                        ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
+                        new String[]{contact.identifier, CommonDataKinds.StructuredPostal.CONTENT_ITEM_TYPE}
+                );
+        ops.add(op.build());
 
-            // Update name
-            op = ContentProviderOperation.newUpdate(ContactsContract.Data.CONTENT_URI)
-                    .withSelection(
-                            ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
-                            new String[]{contact.identifier, CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE}
-                    )
-                    .withValue(StructuredName.GIVEN_NAME, contact.givenName)
-                    .withValue(StructuredName.MIDDLE_NAME, contact.middleName)
-                    .withValue(StructuredName.FAMILY_NAME, contact.familyName)
-                    .withValue(StructuredName.PREFIX, contact.prefix)
-                    .withValue(StructuredName.SUFFIX, contact.suffix);
+        // Photo
+        op = ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
+                .withSelection(
+                        ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
+                        new String[]{contact.identifier, CommonDataKinds.Photo.CONTENT_ITEM_TYPE}
+                );
+        ops.add(op.build());
+
+        // Update name
+        op = ContentProviderOperation.newUpdate(ContactsContract.Data.CONTENT_URI)
+                .withSelection(
+                        ContactsContract.Data.CONTACT_ID + "=? AND " + ContactsContract.Data.MIMETYPE + "=?",
+                        new String[]{contact.identifier, CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE}
+                )
+                .withValue(StructuredName.GIVEN_NAME, contact.givenName)
+                .withValue(StructuredName.MIDDLE_NAME, contact.middleName)
+                .withValue(StructuredName.FAMILY_NAME, contact.familyName)
+                .withValue(StructuredName.PREFIX, contact.prefix)
+                .withValue(StructuredName.SUFFIX, contact.suffix);
+        ops.add(op.build());
+
+        // Add new organization
+        op = ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
+                .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Organization.CONTENT_ITEM_TYPE)
+                .withValue(ContactsContract.Data.RAW_CONTACT_ID, contact.identifier)
+                .withValue(Organization.TYPE, Organization.TYPE_WORK)
+                .withValue(Organization.COMPANY, contact.company)
+                .withValue(Organization.TITLE, contact.jobTitle);
+        ops.add(op.build());
+
+        // Note
+        op = ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
+                .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Note.CONTENT_ITEM_TYPE)
+                .withValue(ContactsContract.Data.RAW_CONTACT_ID, contact.identifier)
+                .withValue(CommonDataKinds.Note.NOTE, contact.note);
+        ops.add(op.build());
+
+        // Photo; a large one is streamed after the batch
+        if (inlinePhoto) {
+            op = ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
+                    .withValue(ContactsContract.Data.RAW_CONTACT_ID, contact.identifier)
+                    .withValue(ContactsContract.Data.IS_SUPER_PRIMARY, 1)
+                    .withValue(CommonDataKinds.Photo.PHOTO, contact.avatar)
+                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Photo.CONTENT_ITEM_TYPE);
             ops.add(op.build());
+        }
 
-            // Add new organization
+        // Phone's
+        for (Item phone : contact.phones) {
             op = ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
-                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Organization.CONTENT_ITEM_TYPE)
+                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Phone.CONTENT_ITEM_TYPE)
                     .withValue(ContactsContract.Data.RAW_CONTACT_ID, contact.identifier)
-                    .withValue(Organization.TYPE, Organization.TYPE_WORK)
-                    .withValue(Organization.COMPANY, contact.company)
-                    .withValue(Organization.TITLE, contact.jobTitle);
+                    .withValue(Phone.NUMBER, phone.value);
+
+            if (phone.type == CommonDataKinds.Phone.TYPE_CUSTOM) {
+                op.withValue(CommonDataKinds.Phone.TYPE, CommonDataKinds.BaseTypes.TYPE_CUSTOM);
+                op.withValue(CommonDataKinds.Phone.LABEL, phone.label);
+            } else {
+                op.withValue(CommonDataKinds.Phone.TYPE, phone.type);
+            }
             ops.add(op.build());
+        }
 
-            // Note
+        // Email
+        for (Item email : contact.emails) {
             op = ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
-                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Note.CONTENT_ITEM_TYPE)
+                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Email.CONTENT_ITEM_TYPE)
                     .withValue(ContactsContract.Data.RAW_CONTACT_ID, contact.identifier)
-                    .withValue(CommonDataKinds.Note.NOTE, contact.note);
+                    .withValue(CommonDataKinds.Email.ADDRESS, email.value)
+                    .withValue(CommonDataKinds.Email.TYPE, email.type);
             ops.add(op.build());
+        }
 
-            // Photo
+        // Addresses
+        for (PostalAddress address : contact.postalAddresses) {
             op = ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
+                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.StructuredPostal.CONTENT_ITEM_TYPE)
                     .withValue(ContactsContract.Data.RAW_CONTACT_ID, contact.identifier)
-                    .withValue(ContactsContract.Data.IS_SUPER_PRIMARY, 1)
-                    .withValue(CommonDataKinds.Photo.PHOTO, contact.avatar)
-                    .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Photo.CONTENT_ITEM_TYPE);
+                    .withValue(CommonDataKinds.StructuredPostal.TYPE, address.type)
+                    .withValue(StructuredPostal.STREET, address.street)
+                    .withValue(StructuredPostal.CITY, address.city)
+                    .withValue(StructuredPostal.REGION, address.region)
+                    .withValue(StructuredPostal.POSTCODE, address.postcode)
+                    .withValue(StructuredPostal.COUNTRY, address.country);
             ops.add(op.build());
-
-            // Phone's
-            for (Item phone : contact.phones) {
-                op = ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
-                        .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Phone.CONTENT_ITEM_TYPE)
-                        .withValue(ContactsContract.Data.RAW_CONTACT_ID, contact.identifier)
-                        .withValue(Phone.NUMBER, phone.value);
-
-                if (phone.type == CommonDataKinds.Phone.TYPE_CUSTOM) {
-                    op.withValue(CommonDataKinds.Phone.TYPE, CommonDataKinds.BaseTypes.TYPE_CUSTOM);
-                    op.withValue(CommonDataKinds.Phone.LABEL, phone.label);
-                } else {
-                    op.withValue(CommonDataKinds.Phone.TYPE, phone.type);
-                }
-                ops.add(op.build());
-            }
-
-            // Email
-            for (Item email : contact.emails) {
-                op = ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
-                        .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.Email.CONTENT_ITEM_TYPE)
-                        .withValue(ContactsContract.Data.RAW_CONTACT_ID, contact.identifier)
-                        .withValue(CommonDataKinds.Email.ADDRESS, email.value)
-                        .withValue(CommonDataKinds.Email.TYPE, email.type);
-                ops.add(op.build());
-            }
-
-            // Addresses
-            for (PostalAddress address : contact.postalAddresses) {
-                op = ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
-                        .withValue(ContactsContract.Data.MIMETYPE, CommonDataKinds.StructuredPostal.CONTENT_ITEM_TYPE)
-                        .withValue(ContactsContract.Data.RAW_CONTACT_ID, contact.identifier)
-                        .withValue(CommonDataKinds.StructuredPostal.TYPE, address.type)
-                        .withValue(StructuredPostal.STREET, address.street)
-                        .withValue(StructuredPostal.CITY, address.city)
-                        .withValue(StructuredPostal.REGION, address.region)
-                        .withValue(StructuredPostal.POSTCODE, address.postcode)
-                        .withValue(StructuredPostal.COUNTRY, address.country);
-                ops.add(op.build());
-            }
-
-            contentResolver.applyBatch(ContactsContract.AUTHORITY, ops);
-            return true;
-        } catch (Exception e) {
-            Log.e("TAG", "Exception encountered while updating contact: ", e);
-            return false;
         }
     }
     // endregion
@@ -861,13 +2484,31 @@ public class ContactosPlugin implements
             }
         }
 
+        // Hands the pending result over to a worker, so it is answered exactly once.
+        MethodChannel.Result takeResult() {
+            MethodChannel.Result pending = this.result;
+            this.result = null;
+            return pending;
+        }
+
+        // Reads the edited or created contact on the executor and answers with it.
+        void finishWithContact(final String identifier) {
+            final MethodChannel.Result pending = takeResult();
+            if (pending == null) return;
+            final boolean labels = this.localizedLabels;
+            executeRead("openContactForm", null, pending, () -> {
+                final HashMap contact = getContactByIdentifier(identifier, labels);
+                reply(() -> pending.success(contact));
+            });
+        }
+
         @Override
         public boolean onActivityResult(int requestCode, int resultCode, Intent intent) {
             if (requestCode == REQUEST_OPEN_EXISTING_CONTACT || requestCode == REQUEST_OPEN_CONTACT_FORM) {
                 try {
                     if (intent != null && intent.getData() != null) {
                         Uri ur = intent.getData();
-                        finishWithResult(getContactByIdentifier(ur.getLastPathSegment()));
+                        finishWithContact(ur.getLastPathSegment());
                     } else {
                         finishWithResult(FORM_OPERATION_CANCELED);
                     }
@@ -891,15 +2532,21 @@ public class ContactosPlugin implements
                     finishWithResult(FORM_COULD_NOT_BE_OPEN);
                     return true;
                 }
-                Cursor cursor = contentResolver.query(contactUri, null, null, null, null);
-                if (cursor != null && cursor.moveToFirst()) {
-                    String id = contactUri.getLastPathSegment();
-                    getContacts("openDeviceContactPicker", id, false, false, false, this.localizedLabels, this.result);
-                } else {
-                    Log.e(LOG_TAG, "onActivityResult: cursor.moveToFirst() == false");
-                    finishWithResult(FORM_OPERATION_CANCELED);
-                }
-                if (cursor != null) cursor.close();
+                final MethodChannel.Result pending = takeResult();
+                if (pending == null) return true;
+                final boolean labels = this.localizedLabels;
+                executeRead("openDeviceContactPicker", null, pending, () -> {
+                    Cursor cursor = contentResolver.query(contactUri, null, null, null, null);
+                    boolean found = cursor != null && cursor.moveToFirst();
+                    if (cursor != null) cursor.close();
+                    if (found) {
+                        String id = contactUri.getLastPathSegment();
+                        getContacts("openDeviceContactPicker", id, false, false, false, labels, null, false, pending);
+                    } else {
+                        Log.e(LOG_TAG, "onActivityResult: cursor.moveToFirst() == false");
+                        reply(() -> pending.success(FORM_OPERATION_CANCELED));
+                    }
+                });
                 return true;
             }
 
@@ -907,22 +2554,35 @@ public class ContactosPlugin implements
             return false;
         }
 
+        // Checks that the contact exists on the executor, then opens the editor
+        // back on the main thread.
         void openExistingContact(Contact contact) {
-            String identifier = contact.identifier;
-            try {
-                HashMap contactMapFromDevice = getContactByIdentifier(identifier);
-                if (contactMapFromDevice != null) {
-                    Uri uri = Uri.withAppendedPath(ContactsContract.Contacts.CONTENT_URI, identifier);
-                    Intent intent = new Intent(Intent.ACTION_EDIT);
-                    intent.setDataAndType(uri, ContactsContract.Contacts.CONTENT_ITEM_TYPE);
-                    intent.putExtra("finishActivityOnSaveCompleted", true);
-                    startIntent(intent, REQUEST_OPEN_EXISTING_CONTACT);
-                } else {
-                    finishWithResult(FORM_COULD_NOT_BE_OPEN);
+            final String identifier = contact.identifier;
+            final boolean labels = this.localizedLabels;
+            executor.execute(() -> {
+                boolean exists;
+                try {
+                    exists = getContactByIdentifier(identifier, labels) != null;
+                } catch (Exception e) {
+                    exists = false;
                 }
-            } catch (Exception e) {
-                finishWithResult(FORM_COULD_NOT_BE_OPEN);
-            }
+                final boolean found = exists;
+                mainHandler.post(() -> {
+                    if (!found) {
+                        finishWithResult(FORM_COULD_NOT_BE_OPEN);
+                        return;
+                    }
+                    try {
+                        Uri uri = Uri.withAppendedPath(ContactsContract.Contacts.CONTENT_URI, identifier);
+                        Intent intent = new Intent(Intent.ACTION_EDIT);
+                        intent.setDataAndType(uri, ContactsContract.Contacts.CONTENT_ITEM_TYPE);
+                        intent.putExtra("finishActivityOnSaveCompleted", true);
+                        startIntent(intent, REQUEST_OPEN_EXISTING_CONTACT);
+                    } catch (Exception e) {
+                        finishWithResult(FORM_COULD_NOT_BE_OPEN);
+                    }
+                });
+            });
         }
 
         void openContactForm() {
@@ -945,20 +2605,13 @@ public class ContactosPlugin implements
             // Overridden in the successor ContactosDelegate
         }
 
-        HashMap getContactByIdentifier(String identifier) {
-            Cursor cursor = contentResolver.query(
-                    ContactsContract.Data.CONTENT_URI,
-                    PROJECTION,
-                    ContactsContract.RawContacts.CONTACT_ID + " = ?",
-                    new String[]{identifier},
-                    null
-            );
-            ArrayList<Contact> matchingContacts;
-            try {
-                matchingContacts = getContactsFrom(cursor, localizedLabels);
-            } finally {
-                if (cursor != null) cursor.close();
-            }
+        // Runs on the executor.
+        HashMap getContactByIdentifier(String identifier, boolean localizedLabels) {
+            ContactosMetrics.Trace trace = metrics.begin("getContactByIdentifier", executor);
+            ArrayList<Contact> matchingContacts =
+                    getContactsByIds(Collections.singletonList(identifier), localizedLabels, trace);
+            trace.addContacts(matchingContacts.size());
+            trace.finish(true);
             if (!matchingContacts.isEmpty()) {
                 return matchingContacts.get(0).toMap();
             }
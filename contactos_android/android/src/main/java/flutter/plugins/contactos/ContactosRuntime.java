@@ -0,0 +1,110 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Process-wide state shared by every plugin instance: the worker pools, the
+ * provider observer, metrics and in-memory caches. An app running a main and a
+ * background engine gets one of each instead of one per engine.
+ *
+ * Reference counted: each engine acquires it when attached and releases it
+ * when detached; the last release shuts the pools down, and the next acquire
+ * starts a fresh runtime.
+ ***/
+final class ContactosRuntime {
+    // Per-kind queries of a parallel read. Kept apart from the executor, which runs
+    // on a single thread and blocks on these; idle threads time out.
+    static final int FAN_OUT_THREADS =
+            Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+
+    private static ContactosRuntime shared;
+
+    // Thread pool for asynchronous operations (replacement for AsyncTask)
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            0,
+            10,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(1000)
+    );
+
+    final ThreadPoolExecutor fanOutExecutor = new ThreadPoolExecutor(
+            FAN_OUT_THREADS,
+            FAN_OUT_THREADS,
+            30,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>()
+    );
+
+    // Per-method counters and stage timings, exposed through getStats
+    final ContactosMetrics metrics = new ContactosMetrics();
+
+    final ContentResolver contentResolver;
+    final ContactsObserver contactsObserver;
+
+    // Name index for searchContacts, rebuilt when the provider data moves on.
+    // Only touched on the executor.
+    ContactSearchIndex searchIndex;
+
+    // Birthdays for getUpcomingBirthdays, sorted by day of the year. Only touched on the executor.
+    BirthdayIndex birthdayIndex;
+
+    // Per-contact fingerprints of recent versioned getContacts answers.
+    final ContactVersions contactVersions = new ContactVersions();
+
+    // Whether the provider accepts ContactFilter's subqueries; null until the first
+    // filter that needs one. Only touched on the executor.
+    Boolean filterSubqueries;
+
+    // Starred and frequent contacts for getFavorites, dropped on any provider change.
+    final FavoritesCache favorites;
+
+    // Guarded by ContactosRuntime.class.
+    private int references;
+
+    private ContactosRuntime(Context context) {
+        fanOutExecutor.allowCoreThreadTimeOut(true);
+        contentResolver = context.getApplicationContext().getContentResolver();
+        contactsObserver = new ContactsObserver(contentResolver, new Handler(Looper.getMainLooper()));
+        favorites = new FavoritesCache(contactsObserver);
+    }
+
+    static synchronized ContactosRuntime acquire(Context context) {
+        if (shared == null) shared = new ContactosRuntime(context);
+        shared.references++;
+        return shared;
+    }
+
+    // Work already queued still runs; nothing new is accepted once the last engine is gone.
+    static synchronized void release(ContactosRuntime runtime) {
+        if (--runtime.references > 0) return;
+        if (shared == runtime) shared = null;
+        runtime.executor.shutdown();
+        runtime.fanOutExecutor.shutdown();
+        runtime.favorites.close();
+    }
+
+    boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    // Called after our own writes, which provider timestamps may not reflect yet.
+    void dropIndexes() {
+        searchIndex = null;
+        birthdayIndex = null;
+        favorites.invalidate();
+        contactVersions.invalidate();
+    }
+}
@@ -0,0 +1,54 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.provider.ContactsContract;
+
+import java.util.ArrayList;
+
+/***
+ * One provider registration fanned out to any number of listeners, so every
+ * engine watching for changes costs one ContentObserver in total. Registered
+ * with the first listener and dropped with the last.
+ *
+ * Main thread only; listeners run on the main thread.
+ ***/
+final class ContactsObserver {
+    private final ContentResolver contentResolver;
+    private final ContentObserver observer;
+    private final ArrayList<Runnable> listeners = new ArrayList<>(2);
+
+    ContactsObserver(ContentResolver contentResolver, Handler mainHandler) {
+        this.contentResolver = contentResolver;
+        this.observer = new ContentObserver(mainHandler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                // A listener may remove itself while being notified.
+                for (Runnable listener : new ArrayList<>(listeners)) listener.run();
+            }
+        };
+    }
+
+    void add(Runnable listener) {
+        if (listeners.contains(listener)) return;
+        if (listeners.isEmpty()) {
+            contentResolver.registerContentObserver(ContactsContract.Contacts.CONTENT_URI, true, observer);
+        }
+        listeners.add(listener);
+    }
+
+    void remove(Runnable listener) {
+        if (listeners.remove(listener) && listeners.isEmpty()) {
+            contentResolver.unregisterContentObserver(observer);
+        }
+    }
+
+    int size() {
+        return listeners.size();
+    }
+}
@@ -0,0 +1,219 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/***
+ * Finds likely duplicate contacts without comparing every pair.
+ *
+ * Each contact is indexed under its normalized phone numbers, lowercased
+ * emails and folded name. Only contacts sharing a bucket are scored, and
+ * pairs above the threshold are merged into groups with a union-find, so the
+ * work grows with the number of shared keys rather than with n².
+ ***/
+final class DuplicateDetector {
+    static final int REASON_PHONE = 1;
+    static final int REASON_EMAIL = 1 << 1;
+    static final int REASON_NAME = 1 << 2;
+
+    static final double DEFAULT_MIN_SCORE = 0.5;
+
+    // Shared switchboards and placeholder names would otherwise produce quadratic buckets.
+    private static final int MAX_BUCKET_SIZE = 64;
+    // Trailing digits compared, so "+1 555 0100" and "555-0100" with a trunk prefix match.
+    private static final int PHONE_SUFFIX_DIGITS = 9;
+    private static final int MIN_PHONE_DIGITS = 6;
+
+    private static final double PHONE_WEIGHT = 0.6;
+    private static final double EMAIL_WEIGHT = 0.7;
+    private static final double NAME_WEIGHT = 0.5;
+
+    private DuplicateDetector() {
+    }
+
+    static ArrayList<HashMap<String, Object>> find(List<Contact> contacts, double minScore) {
+        HashMap<String, ArrayList<Integer>> phones = new HashMap<>();
+        HashMap<String, ArrayList<Integer>> emails = new HashMap<>();
+        HashMap<String, ArrayList<Integer>> names = new HashMap<>();
+        for (int i = 0; i < contacts.size(); i++) {
+            Contact contact = contacts.get(i);
+            for (Item phone : contact.phones) index(phones, phoneKey(phone.value), i);
+            for (Item email : contact.emails) index(emails, emailKey(email.value), i);
+            index(names, nameKey(contact), i);
+        }
+
+        HashMap<Long, Integer> pairs = new HashMap<>();
+        collectPairs(phones, REASON_PHONE, pairs);
+        collectPairs(emails, REASON_EMAIL, pairs);
+        collectPairs(names, REASON_NAME, pairs);
+
+        int[] parent = new int[contacts.size()];
+        for (int i = 0; i < parent.length; i++) parent[i] = i;
+        LinkedHashMap<Integer, Group> groups = new LinkedHashMap<>();
+        ArrayList<long[]> accepted = new ArrayList<>();
+        for (Map.Entry<Long, Integer> pair : pairs.entrySet()) {
+            if (score(pair.getValue()) < minScore) continue;
+            long key = pair.getKey();
+            union(parent, (int) (key >>> 32), (int) key);
+            accepted.add(new long[]{key, pair.getValue()});
+        }
+        // Deterministic output regardless of hash iteration order.
+        Collections.sort(accepted, (x, y) -> Long.compare(x[0], y[0]));
+        for (long[] pair : accepted) {
+            int a = (int) (pair[0] >>> 32);
+            int b = (int) pair[0];
+            int root = find(parent, a);
+            Group group = groups.get(root);
+            if (group == null) {
+                group = new Group();
+                groups.put(root, group);
+            }
+            group.add(contacts.get(a).identifier, contacts.get(b).identifier, (int) pair[1]);
+        }
+
+        ArrayList<Group> sorted = new ArrayList<>(groups.values());
+        Collections.sort(sorted, (x, y) -> Double.compare(y.score, x.score));
+        ArrayList<HashMap<String, Object>> result = new ArrayList<>(sorted.size());
+        for (Group group : sorted) result.add(group.toMap());
+        return result;
+    }
+
+    // 1 - Π(1 - w): independent signals reinforce each other without exceeding 1.
+    static double score(int reasons) {
+        double miss = 1;
+        if ((reasons & REASON_PHONE) != 0) miss *= 1 - PHONE_WEIGHT;
+        if ((reasons & REASON_EMAIL) != 0) miss *= 1 - EMAIL_WEIGHT;
+        if ((reasons & REASON_NAME) != 0) miss *= 1 - NAME_WEIGHT;
+        return 1 - miss;
+    }
+
+    static String phoneKey(String phone) {
+        if (phone == null) return null;
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') digits.append(c);
+        }
+        if (digits.length() < MIN_PHONE_DIGITS) return null;
+        return digits.length() > PHONE_SUFFIX_DIGITS ? digits.substring(digits.length() - PHONE_SUFFIX_DIGITS) : digits.toString();
+    }
+
+    static String emailKey(String email) {
+        if (email == null) return null;
+        String key = email.trim().toLowerCase(Locale.ROOT);
+        return key.indexOf('@') > 0 ? key : null;
+    }
+
+    // Case- and accent-insensitive, with tokens sorted so "Doe Jane" matches "Jane Doe".
+    static String nameKey(Contact contact) {
+        String name = contact.givenName != null || contact.familyName != null
+                ? (contact.givenName != null ? contact.givenName : "") + " "
+                + (contact.familyName != null ? contact.familyName : "")
+                : contact.displayName;
+        if (name == null) return null;
+        String folded = Normalizer.normalize(name, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        ArrayList<String> tokens = new ArrayList<>();
+        for (String token : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        if (tokens.isEmpty()) return null;
+        Collections.sort(tokens);
+        StringBuilder key = new StringBuilder(folded.length());
+        for (String token : tokens) {
+            if (key.length() > 0) key.append(' ');
+            key.append(token);
+        }
+        return key.toString();
+    }
+
+    private static void index(HashMap<String, ArrayList<Integer>> buckets, String key, int contact) {
+        if (key == null) return;
+        ArrayList<Integer> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>(2);
+            buckets.put(key, bucket);
+        }
+        // A contact listing the same number twice lands in the bucket once.
+        if (bucket.isEmpty() || bucket.get(bucket.size() - 1) != contact) bucket.add(contact);
+    }
+
+    private static void collectPairs(HashMap<String, ArrayList<Integer>> buckets, int reason, HashMap<Long, Integer> pairs) {
+        for (ArrayList<Integer> bucket : buckets.values()) {
+            int size = bucket.size();
+            if (size < 2 || size > MAX_BUCKET_SIZE) continue;
+            for (int i = 0; i < size; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    int a = Math.min(bucket.get(i), bucket.get(j));
+                    int b = Math.max(bucket.get(i), bucket.get(j));
+                    long key = ((long) a << 32) | b;
+                    Integer reasons = pairs.get(key);
+                    pairs.put(key, reasons == null ? reason : reasons | reason);
+                }
+            }
+        }
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+    }
+
+    static List<String> reasonNames(int reasons) {
+        ArrayList<String> names = new ArrayList<>(3);
+        if ((reasons & REASON_PHONE) != 0) names.add("phone");
+        if ((reasons & REASON_EMAIL) != 0) names.add("email");
+        if ((reasons & REASON_NAME) != 0) names.add("name");
+        return names;
+    }
+
+    private static final class Group {
+        final ArrayList<String> identifiers = new ArrayList<>();
+        final ArrayList<HashMap<String, Object>> pairs = new ArrayList<>();
+        int reasons;
+        double score;
+
+        void add(String a, String b, int pairReasons) {
+            if (!identifiers.contains(a)) identifiers.add(a);
+            if (!identifiers.contains(b)) identifiers.add(b);
+            double pairScore = score(pairReasons);
+            reasons |= pairReasons;
+            score = Math.max(score, pairScore);
+            HashMap<String, Object> pair = new HashMap<>();
+            pair.put("identifiers", Arrays.asList(a, b));
+            pair.put("score", pairScore);
+            pair.put("reasons", reasonNames(pairReasons));
+            pairs.add(pair);
+        }
+
+        HashMap<String, Object> toMap() {
+            HashMap<String, Object> result = new HashMap<>();
+            result.put("identifiers", identifiers);
+            result.put("score", score);
+            result.put("reasons", reasonNames(reasons));
+            result.put("pairs", pairs);
+            return result;
+        }
+    }
+}
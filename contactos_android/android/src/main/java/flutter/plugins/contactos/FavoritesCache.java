@@ -0,0 +1,76 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import java.util.HashMap;
+import java.util.List;
+
+/***
+ * Last answer of getFavorites, with and without frequently contacted people.
+ * Both lists are a few dozen rows at most, so they stay in memory until the
+ * contacts observer reports any change.
+ *
+ * A result is only kept when the observer was already listening before its
+ * query started, so a change can never slip in between reading and caching.
+ ***/
+final class FavoritesCache {
+    private final ContactsObserver observer;
+    private final Runnable invalidate = this::invalidate;
+
+    // Guarded by this.
+    private boolean watching;
+    private int generation;
+    private List<HashMap<String, Object>> starred;
+    private List<HashMap<String, Object>> strequent;
+
+    FavoritesCache(ContactsObserver observer) {
+        this.observer = observer;
+    }
+
+    // Main thread only.
+    void watch() {
+        observer.add(invalidate);
+        synchronized (this) {
+            watching = true;
+        }
+    }
+
+    // Main thread only.
+    void close() {
+        observer.remove(invalidate);
+        invalidate();
+        synchronized (this) {
+            watching = false;
+        }
+    }
+
+    synchronized boolean isWatching() {
+        return watching;
+    }
+
+    // Pass to put() so that a result read across a change is dropped.
+    synchronized int generation() {
+        return generation;
+    }
+
+    synchronized List<HashMap<String, Object>> get(boolean includeFrequent) {
+        return includeFrequent ? strequent : starred;
+    }
+
+    synchronized void put(boolean includeFrequent, int generation, List<HashMap<String, Object>> favorites) {
+        if (!watching || generation != this.generation) return;
+        if (includeFrequent) {
+            strequent = favorites;
+        } else {
+            starred = favorites;
+        }
+    }
+
+    synchronized void invalidate() {
+        generation++;
+        starred = null;
+        strequent = null;
+    }
+}
@@ -26,9 +26,9 @@ public class Item {
         this.type = type;
     }
 
-    HashMap<String, String> toMap() {
-        HashMap<String, String> result = new HashMap<>();
-        result.put("label", label);
+    HashMap<String, Object> toMap(StringDictionary dictionary) {
+        HashMap<String, Object> result = new HashMap<>(4);
+        result.put("label", StringDictionary.encode(dictionary, label));
         result.put("value", value);
         result.put("type", String.valueOf(type));
         return result;
@@ -42,56 +42,26 @@ public class Item {
     }
 
     public static String getPhoneLabel(Resources resources, int type, Cursor cursor, boolean localizedLabels) {
-        if (localizedLabels) {
-            CharSequence localizedLabel = CommonDataKinds.Phone.getTypeLabel(resources, type, "");
-            return localizedLabel.toString().toLowerCase();
-        } else {
-            switch (type) {
-                case CommonDataKinds.Phone.TYPE_HOME:
-                    return "home";
-                case CommonDataKinds.Phone.TYPE_WORK:
-                    return "work";
-                case CommonDataKinds.Phone.TYPE_MOBILE:
-                    return "mobile";
-                case CommonDataKinds.Phone.TYPE_FAX_WORK:
-                    return "fax work";
-                case CommonDataKinds.Phone.TYPE_FAX_HOME:
-                    return "fax home";
-                case CommonDataKinds.Phone.TYPE_MAIN:
-                    return "main";
-                case CommonDataKinds.Phone.TYPE_COMPANY_MAIN:
-                    return "company";
-                case CommonDataKinds.Phone.TYPE_PAGER:
-                    return "pager";
-                case CommonDataKinds.Phone.TYPE_CUSTOM:
-                    if (cursor.getString(cursor.getColumnIndex(CommonDataKinds.Phone.LABEL)) != null) {
-                        return cursor.getString(cursor.getColumnIndex(CommonDataKinds.Phone.LABEL)).toLowerCase();
-                    } else return "";
-                default:
-                    return "other";
-            }
-        }
+        String customLabel = type == CommonDataKinds.Phone.TYPE_CUSTOM
+                ? cursor.getString(cursor.getColumnIndex(CommonDataKinds.Phone.LABEL))
+                : null;
+        return getPhoneLabel(resources, type, customLabel, localizedLabels);
+    }
+
+    // Variant for callers that already resolved the LABEL column once per cursor.
+    static String getPhoneLabel(Resources resources, int type, String customLabel, boolean localizedLabels) {
+        return LabelTables.get(resources, localizedLabels).phone(type, customLabel);
     }
 
     public static String getEmailLabel(Resources resources, int type, Cursor cursor, boolean localizedLabels) {
-        if (localizedLabels) {
-            CharSequence localizedLabel = CommonDataKinds.Email.getTypeLabel(resources, type, "");
-            return localizedLabel.toString().toLowerCase();
-        } else {
-            switch (type) {
-                case CommonDataKinds.Email.TYPE_HOME:
-                    return "home";
-                case CommonDataKinds.Email.TYPE_WORK:
-                    return "work";
-                case CommonDataKinds.Email.TYPE_MOBILE:
-                    return "mobile";
-                case CommonDataKinds.Email.TYPE_CUSTOM:
-                    if (cursor.getString(cursor.getColumnIndex(CommonDataKinds.Email.LABEL)) != null) {
-                        return cursor.getString(cursor.getColumnIndex(CommonDataKinds.Email.LABEL)).toLowerCase();
-                    } else return "";
-                default:
-                    return "other";
-            }
-        }
+        String customLabel = type == CommonDataKinds.Email.TYPE_CUSTOM
+                ? cursor.getString(cursor.getColumnIndex(CommonDataKinds.Email.LABEL))
+                : null;
+        return getEmailLabel(resources, type, customLabel, localizedLabels);
+    }
+
+    // Variant for callers that already resolved the LABEL column once per cursor.
+    static String getEmailLabel(Resources resources, int type, String customLabel, boolean localizedLabels) {
+        return LabelTables.get(resources, localizedLabels).email(type, customLabel);
     }
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import android.content.res.Resources;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static android.provider.ContactsContract.CommonDataKinds.Email;
+import static android.provider.ContactsContract.CommonDataKinds.Phone;
+import static android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
+
+/***
+ * Phone, email and postal labels resolved once per locale. A type maps to its
+ * label through a plain array lookup, and custom labels are lowercased once and
+ * shared across rows, so aggregating a row allocates no label string.
+ *
+ * The localized tables are rebuilt when the configured locale changes; the raw
+ * English tables are shared by every locale.
+ ***/
+final class LabelTables {
+    // Distinct custom labels kept per table; beyond that they are lowercased per row.
+    private static final int MAX_CUSTOM_LABELS = 512;
+
+    private static final LabelTables RAW = new LabelTables(null, rawPhoneLabels(), rawEmailLabels(), rawPostalLabels());
+    private static volatile LabelTables localized;
+
+    private final Locale locale;
+    private final String[] phoneLabels;
+    private final String[] emailLabels;
+    private final String[] postalLabels;
+    private final ConcurrentHashMap<String, String> customLabels = new ConcurrentHashMap<>();
+
+    private LabelTables(Locale locale, String[] phoneLabels, String[] emailLabels, String[] postalLabels) {
+        this.locale = locale;
+        this.phoneLabels = phoneLabels;
+        this.emailLabels = emailLabels;
+        this.postalLabels = postalLabels;
+    }
+
+    // Cheap enough to call once per cursor; the locale check picks up configuration changes.
+    static LabelTables get(Resources resources, boolean localizedLabels) {
+        if (!localizedLabels || resources == null) return RAW;
+        Locale current = resources.getConfiguration().locale;
+        LabelTables tables = localized;
+        if (tables == null || !tables.locale.equals(current)) {
+            tables = new LabelTables(
+                    current,
+                    localizedLabels(resources, Phone.TYPE_MMS, Kind.PHONE),
+                    localizedLabels(resources, Email.TYPE_MOBILE, Kind.EMAIL),
+                    localizedLabels(resources, StructuredPostal.TYPE_OTHER, Kind.POSTAL)
+            );
+            localized = tables;
+        }
+        return tables;
+    }
+
+    String phone(int type, String customLabel) {
+        if (type == Phone.TYPE_CUSTOM && locale == null) return lowerCustom(customLabel);
+        return lookup(phoneLabels, type);
+    }
+
+    String email(int type, String customLabel) {
+        if (type == Email.TYPE_CUSTOM && locale == null) return lowerCustom(customLabel);
+        return lookup(emailLabels, type);
+    }
+
+    // Raw postal custom labels keep their case, as they always have.
+    String postal(int type, String customLabel) {
+        if (type == StructuredPostal.TYPE_CUSTOM && locale == null) return customLabel != null ? customLabel : "";
+        return lookup(postalLabels, type);
+    }
+
+    private String lookup(String[] labels, int type) {
+        if (type >= 0 && type < labels.length && labels[type] != null) return labels[type];
+        // Raw labels call anything unknown "other". Localized labels use the platform's
+        // label for an unknown type, which is its "custom" label, kept in the last slot.
+        return locale == null ? "other" : labels[labels.length - 1];
+    }
+
+    private String lowerCustom(String customLabel) {
+        if (customLabel == null) return "";
+        String label = customLabels.get(customLabel);
+        if (label != null) return label;
+        label = customLabel.toLowerCase();
+        if (customLabels.size() < MAX_CUSTOM_LABELS) {
+            String previous = customLabels.putIfAbsent(customLabel, label);
+            if (previous != null) label = previous;
+        }
+        return label;
+    }
+
+    private enum Kind {PHONE, EMAIL, POSTAL}
+
+    // Index maxType + 1 holds the label for unknown types, which the platform
+    // resolves to the same text as TYPE_CUSTOM without a custom label.
+    private static String[] localizedLabels(Resources resources, int maxType, Kind kind) {
+        String[] labels = new String[maxType + 2];
+        for (int type = 0; type < labels.length; type++) {
+            int lookupType = type <= maxType ? type : -1;
+            CharSequence label;
+            switch (kind) {
+                case PHONE:
+                    label = Phone.getTypeLabel(resources, lookupType, "");
+                    break;
+                case EMAIL:
+                    label = Email.getTypeLabel(resources, lookupType, "");
+                    break;
+                default:
+                    label = StructuredPostal.getTypeLabel(resources, lookupType, "");
+                    break;
+            }
+            labels[type] = label.toString().toLowerCase();
+        }
+        return labels;
+    }
+
+    private static String[] rawPhoneLabels() {
+        String[] labels = new String[Phone.TYPE_MMS + 1];
+        labels[Phone.TYPE_HOME] = "home";
+        labels[Phone.TYPE_WORK] = "work";
+        labels[Phone.TYPE_MOBILE] = "mobile";
+        labels[Phone.TYPE_FAX_WORK] = "fax work";
+        labels[Phone.TYPE_FAX_HOME] = "fax home";
+        labels[Phone.TYPE_MAIN] = "main";
+        labels[Phone.TYPE_COMPANY_MAIN] = "company";
+        labels[Phone.TYPE_PAGER] = "pager";
+        return labels;
+    }
+
+    private static String[] rawEmailLabels() {
+        String[] labels = new String[Email.TYPE_MOBILE + 1];
+        labels[Email.TYPE_HOME] = "home";
+        labels[Email.TYPE_WORK] = "work";
+        labels[Email.TYPE_MOBILE] = "mobile";
+        return labels;
+    }
+
+    private static String[] rawPostalLabels() {
+        String[] labels = new String[StructuredPostal.TYPE_OTHER + 1];
+        labels[StructuredPostal.TYPE_HOME] = "home";
+        labels[StructuredPostal.TYPE_WORK] = "work";
+        return labels;
+    }
+}
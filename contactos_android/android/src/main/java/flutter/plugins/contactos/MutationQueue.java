@@ -0,0 +1,88 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/***
+ * Pending writes of the opt-in write-behind path, in arrival order.
+ *
+ * Successive updates of one contact collapse into the latest one, and a
+ * delete replaces a pending update of the same contact. Adds are never
+ * merged. Every request keeps its Result, so each caller still hears when
+ * the write that absorbed its request has been committed.
+ *
+ * Thread-safe: requests arrive on the method-call thread and are drained on
+ * the executor.
+ ***/
+final class MutationQueue {
+    static final int ADD = 0;
+    static final int UPDATE = 1;
+    static final int DELETE = 2;
+
+    static final class Mutation {
+        final int type;
+        Contact contact;
+        ContactosPlugin.PhotoOptions photo;
+        final ArrayList<MethodChannel.Result> results = new ArrayList<>(1);
+
+        // Set while the mutation is applied.
+        int firstOperation;
+        boolean inlinePhoto = true;
+
+        Mutation(int type, Contact contact, ContactosPlugin.PhotoOptions photo) {
+            this.type = type;
+            this.contact = contact;
+            this.photo = photo;
+        }
+    }
+
+    private final ArrayList<Mutation> pending = new ArrayList<>();
+    // Last pending mutation per contact identifier; adds have none.
+    private final HashMap<String, Mutation> latest = new HashMap<>();
+
+    // Returns true when the queue was empty, i.e. a flush needs scheduling.
+    synchronized boolean enqueue(int type, Contact contact, ContactosPlugin.PhotoOptions photo, MethodChannel.Result result) {
+        boolean wasEmpty = pending.isEmpty();
+        String identifier = type == ADD ? null : contact.identifier;
+        Mutation previous = identifier != null ? latest.get(identifier) : null;
+        if (previous != null && previous.type == UPDATE && type == UPDATE) {
+            // updateContact writes the whole contact, so the newest state is all that matters.
+            previous.contact = contact;
+            previous.photo = photo;
+            previous.results.add(result);
+            return wasEmpty;
+        }
+        if (previous != null && type == DELETE) {
+            // An update followed by a delete is just the delete; two deletes are one.
+            pending.remove(previous);
+            Mutation delete = new Mutation(DELETE, contact, photo);
+            delete.results.addAll(previous.results);
+            delete.results.add(result);
+            pending.add(delete);
+            latest.put(identifier, delete);
+            return wasEmpty;
+        }
+        Mutation mutation = new Mutation(type, contact, photo);
+        mutation.results.add(result);
+        pending.add(mutation);
+        if (identifier != null) latest.put(identifier, mutation);
+        return wasEmpty;
+    }
+
+    synchronized ArrayList<Mutation> drain() {
+        ArrayList<Mutation> drained = new ArrayList<>(pending);
+        pending.clear();
+        latest.clear();
+        return drained;
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+}
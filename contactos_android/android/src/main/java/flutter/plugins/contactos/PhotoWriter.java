@@ -0,0 +1,147 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.provider.ContactsContract;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/***
+ * Writes full-size contact photos. Small photos still go inline as the
+ * Photo.PHOTO blob of the write batch; larger ones are streamed to the raw
+ * contact's display photo through a file descriptor after the batch, so the
+ * bytes never pass through the binder transaction, and the provider derives
+ * the thumbnail row from the stored file.
+ ***/
+final class PhotoWriter {
+    private static final String LOG_TAG = "contacts";
+
+    // Comfortably below the binder transaction buffer that the whole batch shares.
+    static final int INLINE_LIMIT = 64 * 1024;
+    static final int DEFAULT_JPEG_QUALITY = 90;
+
+    private PhotoWriter() {
+    }
+
+    static boolean fitsInline(byte[] photo) {
+        return photo == null || photo.length <= INLINE_LIMIT;
+    }
+
+    // Downscales so the longer side is at most maxDimension and re-encodes as JPEG.
+    // Non-positive options are ignored; with neither set, or when the bytes can't
+    // be decoded, the photo is returned as given.
+    static byte[] prepare(byte[] photo, int maxDimension, int jpegQuality) {
+        if (photo == null || photo.length == 0 || (maxDimension <= 0 && jpegQuality <= 0)) return photo;
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(photo, 0, photo.length, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return photo;
+        int longest = Math.max(bounds.outWidth, bounds.outHeight);
+        boolean downscale = maxDimension > 0 && longest > maxDimension;
+        if (!downscale && jpegQuality <= 0) return photo;
+
+        // Power-of-two subsampling while decoding keeps the full-size bitmap out of memory.
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        if (downscale) {
+            while (longest / (options.inSampleSize * 2) >= maxDimension) options.inSampleSize *= 2;
+        }
+        Bitmap bitmap = BitmapFactory.decodeByteArray(photo, 0, photo.length, options);
+        if (bitmap == null) return photo;
+
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (downscale && Math.max(width, height) > maxDimension) {
+            float ratio = (float) maxDimension / Math.max(width, height);
+            Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                    Math.max(1, Math.round(width * ratio)), Math.max(1, Math.round(height * ratio)), true);
+            if (scaled != bitmap) bitmap.recycle();
+            bitmap = scaled;
+        }
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        int quality = jpegQuality > 0 ? Math.min(jpegQuality, 100) : DEFAULT_JPEG_QUALITY;
+        boolean encoded = bitmap.compress(Bitmap.CompressFormat.JPEG, quality, stream);
+        bitmap.recycle();
+        return encoded ? stream.toByteArray() : photo;
+    }
+
+    // Streams the photo into the display photo of the contact's first raw contact.
+    // Contact ids and raw contact ids are distinct sequences, so the raw id is looked up.
+    static boolean writeForContact(ContentResolver resolver, long contactId, byte[] photo) {
+        long rawContactId = rawContactIdOf(resolver, contactId);
+        if (rawContactId < 0) {
+            Log.e(LOG_TAG, "No raw contact for contact " + contactId);
+            return false;
+        }
+        return write(resolver, rawContactId, photo);
+    }
+
+    // Lowest raw contact id aggregated into the contact, or -1 when there is none
+    // or the provider refuses the query.
+    static long rawContactIdOf(ContentResolver resolver, long contactId) {
+        Cursor cursor;
+        try {
+            cursor = resolver.query(
+                    ContactsContract.RawContacts.CONTENT_URI,
+                    new String[]{ContactsContract.RawContacts._ID},
+                    ContactsContract.RawContacts.CONTACT_ID + "=?",
+                    new String[]{String.valueOf(contactId)},
+                    ContactsContract.RawContacts._ID
+            );
+        } catch (RuntimeException e) {
+            Log.e(LOG_TAG, "Failed to look up the raw contact of " + contactId, e);
+            return -1;
+        }
+        if (cursor == null) return -1;
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Streams the photo into RawContacts.DisplayPhoto of the given raw contact.
+    // Runs after the contact was committed, so failures are reported, never thrown.
+    static boolean write(ContentResolver resolver, long rawContactId, byte[] photo) {
+        Uri uri = Uri.withAppendedPath(
+                ContentUris.withAppendedId(ContactsContract.RawContacts.CONTENT_URI, rawContactId),
+                ContactsContract.RawContacts.DisplayPhoto.CONTENT_DIRECTORY
+        );
+        AssetFileDescriptor descriptor = null;
+        try {
+            descriptor = resolver.openAssetFileDescriptor(uri, "rw");
+            if (descriptor == null) return false;
+            OutputStream output = descriptor.createOutputStream();
+            try {
+                output.write(photo);
+            } finally {
+                output.close();
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.e(LOG_TAG, "Failed to write the display photo", e);
+            return false;
+        } finally {
+            if (descriptor != null) {
+                try {
+                    descriptor.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
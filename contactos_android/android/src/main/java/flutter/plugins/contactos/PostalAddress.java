@@ -9,7 +9,6 @@ import android.content.res.Resources;
 import android.database.Cursor;
 import android.os.Build;
 
-import static android.provider.ContactsContract.CommonDataKinds;
 import static android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
 
 import java.util.HashMap;
@@ -30,14 +29,14 @@ public class PostalAddress {
         this.type = type;
     }
 
-    HashMap<String, String> toMap() {
-        HashMap<String, String> result = new HashMap<>();
-        result.put("label", label);
+    HashMap<String, Object> toMap(StringDictionary dictionary) {
+        HashMap<String, Object> result = new HashMap<>(10);
+        result.put("label", StringDictionary.encode(dictionary, label));
         result.put("street", street);
-        result.put("city", city);
+        result.put("city", StringDictionary.encode(dictionary, city));
         result.put("postcode", postcode);
-        result.put("region", region);
-        result.put("country", country);
+        result.put("region", StringDictionary.encode(dictionary, region));
+        result.put("country", StringDictionary.encode(dictionary, country));
         result.put("type", String.valueOf(type));
         return result;
     }
@@ -54,20 +53,14 @@ public class PostalAddress {
     }
 
     public static String getLabel(Resources resources, int type, Cursor cursor, boolean localizedLabels) {
-        if (localizedLabels) {
-            CharSequence localizedLabel = CommonDataKinds.StructuredPostal.getTypeLabel(resources, type, "");
-            return localizedLabel.toString().toLowerCase();
-        } else {
-            switch (cursor.getInt(cursor.getColumnIndex(StructuredPostal.TYPE))) {
-                case StructuredPostal.TYPE_HOME:
-                    return "home";
-                case StructuredPostal.TYPE_WORK:
-                    return "work";
-                case StructuredPostal.TYPE_CUSTOM:
-                    final String label = cursor.getString(cursor.getColumnIndex(StructuredPostal.LABEL));
-                    return label != null ? label : "";
-            }
-            return "other";
-        }
+        String customLabel = type == StructuredPostal.TYPE_CUSTOM
+                ? cursor.getString(cursor.getColumnIndex(StructuredPostal.LABEL))
+                : null;
+        return getLabel(resources, type, customLabel, localizedLabels);
+    }
+
+    // Variant for callers that already resolved the LABEL column once per cursor.
+    static String getLabel(Resources resources, int type, String customLabel, boolean localizedLabels) {
+        return LabelTables.get(resources, localizedLabels).postal(type, customLabel);
     }
 }
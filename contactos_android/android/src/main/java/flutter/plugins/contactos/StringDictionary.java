@@ -0,0 +1,47 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/***
+ * Per-response dictionary for repeated strings. Encoded fields carry an index
+ * into {@link #strings()} instead of the string itself, so a value shared by
+ * thousands of contacts crosses the channel once.
+ ***/
+final class StringDictionary {
+    private final HashMap<String, Integer> indices = new HashMap<>();
+    private final ArrayList<String> strings = new ArrayList<>();
+
+    // Null stays null so absent values need no entry.
+    Integer encode(String value) {
+        if (value == null) return null;
+        Integer index = indices.get(value);
+        if (index == null) {
+            index = strings.size();
+            indices.put(value, index);
+            strings.add(value);
+        }
+        return index;
+    }
+
+    // Plain value when no dictionary is in use.
+    static Object encode(StringDictionary dictionary, String value) {
+        return dictionary != null ? dictionary.encode(value) : value;
+    }
+
+    ArrayList<String> strings() {
+        return strings;
+    }
+
+    // Wire shape: {"strings": [...], "contacts": [...]}.
+    HashMap<String, Object> wrap(ArrayList<?> contacts) {
+        HashMap<String, Object> response = new HashMap<>(4);
+        response.put("strings", strings);
+        response.put("contacts", contacts);
+        return response;
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+
+/***
+ * Deduplicates low-cardinality column values (accounts, companies, cities)
+ * while a cursor is aggregated. Values are copied into a reused char buffer
+ * and looked up by content, so a repeated value costs no String allocation
+ * and every contact shares one instance of it.
+ *
+ * Not thread-safe; each aggregation uses its own pool.
+ ***/
+final class StringPool {
+    // Past this many distinct values a column is not low-cardinality; new values are no longer kept.
+    private static final int MAX_ENTRIES = 4096;
+
+    private final CharArrayBuffer buffer = new CharArrayBuffer(64);
+    private String[] table = new String[64];
+    private int size;
+
+    String get(Cursor cursor, int column) {
+        if (cursor.isNull(column)) return null;
+        cursor.copyStringToBuffer(column, buffer);
+        return lookup(buffer.data, buffer.sizeCopied);
+    }
+
+    // For values that are already strings: duplicates are dropped in favour of the pooled instance.
+    String intern(String value) {
+        if (value == null) return null;
+        int mask = table.length - 1;
+        int slot = mix(value.hashCode()) & mask;
+        String entry;
+        while ((entry = table[slot]) != null) {
+            if (entry.equals(value)) return entry;
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, value);
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private String lookup(char[] data, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) hash = 31 * hash + data[i];
+        int mask = table.length - 1;
+        int slot = mix(hash) & mask;
+        String entry;
+        while ((entry = table[slot]) != null) {
+            if (matches(entry, data, length)) return entry;
+            slot = (slot + 1) & mask;
+        }
+        String value = new String(data, 0, length);
+        insert(slot, value);
+        return value;
+    }
+
+    private void insert(int slot, String value) {
+        if (size >= MAX_ENTRIES) return;
+        table[slot] = value;
+        if (++size * 2 > table.length) grow();
+    }
+
+    private static boolean matches(String entry, char[] data, int length) {
+        if (entry.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (entry.charAt(i) != data[i]) return false;
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        String[] old = table;
+        table = new String[old.length * 2];
+        int mask = table.length - 1;
+        for (String entry : old) {
+            if (entry == null) continue;
+            int slot = mix(entry.hashCode()) & mask;
+            while (table[slot] != null) slot = (slot + 1) & mask;
+            table[slot] = entry;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import android.util.Base64;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import static android.provider.ContactsContract.CommonDataKinds.Email;
+import static android.provider.ContactsContract.CommonDataKinds.Phone;
+import static android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
+
+/***
+ * Pull parser for vCard 2.1, 3.0 and 4.0 streams.
+ *
+ * Cards are read one at a time, so memory is bounded by the largest card.
+ * A card that cannot be understood raises {@link CardException} after the
+ * reader has moved past its END line, letting the caller record the error
+ * and continue with the next card.
+ ***/
+final class VCardParser implements Closeable {
+
+    static final class CardException extends IOException {
+        final int card;
+
+        CardException(int card, String message) {
+            super(message);
+            this.card = card;
+        }
+    }
+
+    private final BufferedReader reader;
+    private String pending;
+    private int cards;
+
+    VCardParser(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    // 1-based index of the card returned (or rejected) by the last call to next().
+    int cardIndex() {
+        return cards;
+    }
+
+    // Returns the next card, or null at the end of the stream.
+    Contact next() throws IOException {
+        ArrayList<String> lines = null;
+        String line;
+        while ((line = readUnfolded()) != null) {
+            if (line.isEmpty()) continue;
+            String upper = line.toUpperCase(Locale.ROOT);
+            if (lines == null) {
+                if (upper.equals("BEGIN:VCARD")) {
+                    lines = new ArrayList<>();
+                    cards++;
+                }
+                continue;
+            }
+            if (upper.equals("END:VCARD")) return toContact(lines);
+            if (upper.equals("BEGIN:VCARD")) {
+                // Missing END: reject the open card and restart on this line.
+                pending = line;
+                throw new CardException(cards, "Card is missing END:VCARD");
+            }
+            lines.add(line);
+        }
+        if (lines != null) throw new CardException(cards, "Card is missing END:VCARD");
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Joins RFC folded lines and 2.1 quoted-printable soft breaks.
+    private String readUnfolded() throws IOException {
+        String line = pending != null ? pending : reader.readLine();
+        pending = null;
+        if (line == null) return null;
+        StringBuilder joined = null;
+        while (true) {
+            boolean softBreak = line.endsWith("=") && isQuotedPrintable(joined != null ? joined : line);
+            String next = reader.readLine();
+            if (next != null && !next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+                if (joined == null) joined = new StringBuilder(line);
+                joined.append(next, 1, next.length());
+            } else if (next != null && softBreak) {
+                if (joined == null) joined = new StringBuilder(line);
+                joined.setLength(joined.length() - 1);
+                joined.append(next);
+            } else {
+                pending = next;
+                return joined != null ? joined.toString() : line;
+            }
+            line = next;
+        }
+    }
+
+    private static boolean isQuotedPrintable(CharSequence line) {
+        int colon = indexOf(line, ':');
+        String head = (colon < 0 ? line : line.subSequence(0, colon)).toString().toUpperCase(Locale.ROOT);
+        return head.contains("QUOTED-PRINTABLE");
+    }
+
+    private static int indexOf(CharSequence value, char c) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private Contact toContact(ArrayList<String> lines) throws CardException {
+        Contact contact = new Contact(null);
+        String formattedName = null;
+        for (String line : lines) {
+            int colon = valueSeparator(line);
+            if (colon < 0) throw new CardException(cards, "Malformed line: " + abbreviate(line));
+            String[] head = line.substring(0, colon).split(";");
+            String name = head[0];
+            int dot = name.lastIndexOf('.');
+            if (dot >= 0) name = name.substring(dot + 1);
+            name = name.toUpperCase(Locale.ROOT);
+            Params params = new Params(head);
+            String raw = line.substring(colon + 1);
+
+            switch (name) {
+                case "FN":
+                    formattedName = text(raw, params);
+                    break;
+                case "N": {
+                    String[] parts = components(decoded(raw, params), 5);
+                    contact.familyName = emptyToNull(parts[0]);
+                    contact.givenName = emptyToNull(parts[1]);
+                    contact.middleName = emptyToNull(parts[2]);
+                    contact.prefix = emptyToNull(parts[3]);
+                    contact.suffix = emptyToNull(parts[4]);
+                    break;
+                }
+                case "ORG":
+                    contact.company = emptyToNull(components(decoded(raw, params), 2)[0]);
+                    break;
+                case "TITLE":
+                    contact.jobTitle = emptyToNull(text(raw, params));
+                    break;
+                case "NOTE":
+                    contact.note = emptyToNull(text(raw, params));
+                    break;
+                case "BDAY":
+                    contact.birthday = birthday(decoded(raw, params));
+                    break;
+                case "TEL": {
+                    String number = text(raw, params);
+                    if (number.startsWith("tel:")) number = number.substring(4);
+                    if (!number.isEmpty()) {
+                        contact.addPhone(new Item(params.customLabel, number, params.phoneType()));
+                    }
+                    break;
+                }
+                case "EMAIL": {
+                    String address = text(raw, params);
+                    if (!address.isEmpty()) {
+                        contact.addEmail(new Item(params.customLabel, address, params.emailType()));
+                    }
+                    break;
+                }
+                case "ADR": {
+                    String[] parts = components(decoded(raw, params), 7);
+                    contact.addPostalAddress(new PostalAddress(
+                            params.customLabel,
+                            emptyToNull(parts[2]),
+                            emptyToNull(parts[3]),
+                            emptyToNull(parts[5]),
+                            emptyToNull(parts[4]),
+                            emptyToNull(parts[6]),
+                            params.postalType()
+                    ));
+                    break;
+                }
+                case "PHOTO":
+                    contact.avatar = photo(raw, params);
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (contact.givenName == null && contact.familyName == null) contact.givenName = emptyToNull(formattedName);
+        contact.displayName = formattedName;
+        return contact;
+    }
+
+    // First ':' outside a quoted parameter value.
+    private static int valueSeparator(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (c == ':' && !quoted) return i;
+        }
+        return -1;
+    }
+
+    // Raw value with any 2.1 transfer encoding removed; escapes are left in place.
+    private String decoded(String raw, Params params) throws CardException {
+        return params.quotedPrintable ? decodeQuotedPrintable(raw, params.charset) : raw;
+    }
+
+    private String text(String raw, Params params) throws CardException {
+        return components(decoded(raw, params), 1)[0];
+    }
+
+    private String decodeQuotedPrintable(String raw, String charsetName) throws CardException {
+        Charset charset = StandardCharsets.UTF_8;
+        if (charsetName != null) {
+            try {
+                charset = Charset.forName(charsetName);
+            } catch (IllegalArgumentException e) {
+                throw new CardException(cards, "Unsupported charset " + charsetName);
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '=' && i + 2 < raw.length()) {
+                int high = Character.digit(raw.charAt(i + 1), 16);
+                int low = Character.digit(raw.charAt(i + 2), 16);
+                if (high < 0 || low < 0) throw new CardException(cards, "Bad quoted-printable sequence");
+                bytes.write(high << 4 | low);
+                i += 2;
+            } else {
+                bytes.write(c);
+            }
+        }
+        return new String(bytes.toByteArray(), charset);
+    }
+
+    // Splits a structured value on unescaped ';' and unescapes each component.
+    private static String[] components(String value, int count) {
+        String[] parts = new String[count];
+        StringBuilder current = new StringBuilder();
+        int index = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                current.append(unescape(value.charAt(++i)));
+            } else if (c == ';' && index < count - 1) {
+                parts[index++] = current.toString();
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        parts[index] = current.toString();
+        for (int i = index + 1; i < count; i++) parts[i] = "";
+        return parts;
+    }
+
+    private static String unescape(char c) {
+        return c == 'n' || c == 'N' ? "\n" : String.valueOf(c);
+    }
+
+    private byte[] photo(String raw, Params params) throws CardException {
+        String data = null;
+        if (raw.startsWith("data:")) {
+            int comma = raw.indexOf(',');
+            if (comma > 0 && raw.substring(0, comma).endsWith(";base64")) data = raw.substring(comma + 1);
+        } else if (params.base64) {
+            data = raw;
+        }
+        if (data == null) return Contact.NO_AVATAR;
+        try {
+            return Base64.decode(data, Base64.DEFAULT);
+        } catch (IllegalArgumentException e) {
+            throw new CardException(cards, "Bad PHOTO encoding");
+        }
+    }
+
+    // Normalizes 4.0 basic dates (19850412, --0412) to the provider's extended form.
+    private static String birthday(String value) {
+        String date = value;
+        int time = date.indexOf('T');
+        if (time >= 0) date = date.substring(0, time);
+        if (date.matches("\\d{8}")) {
+            return date.substring(0, 4) + "-" + date.substring(4, 6) + "-" + date.substring(6);
+        }
+        if (date.matches("--\\d{4}")) return "--" + date.substring(2, 4) + "-" + date.substring(4);
+        return emptyToNull(components(date, 1)[0]);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static String abbreviate(String line) {
+        return line.length() > 40 ? line.substring(0, 40) + "..." : line;
+    }
+
+    private static final class Params {
+        final ArrayList<String> types = new ArrayList<>(2);
+        String customLabel;
+        String charset;
+        boolean quotedPrintable;
+        boolean base64;
+
+        Params(String[] head) {
+            for (int i = 1; i < head.length; i++) {
+                String param = head[i];
+                int eq = param.indexOf('=');
+                String key = eq < 0 ? "TYPE" : param.substring(0, eq).toUpperCase(Locale.ROOT);
+                String value = eq < 0 ? param : param.substring(eq + 1);
+                switch (key) {
+                    case "TYPE":
+                        for (String type : value.replace("\"", "").split(",")) addType(type);
+                        break;
+                    case "ENCODING": {
+                        String encoding = value.toUpperCase(Locale.ROOT);
+                        quotedPrintable |= encoding.equals("QUOTED-PRINTABLE");
+                        base64 |= encoding.equals("B") || encoding.equals("BASE64");
+                        break;
+                    }
+                    case "CHARSET":
+                        charset = value;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private void addType(String type) {
+            if (type.isEmpty()) return;
+            String upper = type.toUpperCase(Locale.ROOT);
+            if (upper.equals("QUOTED-PRINTABLE")) {
+                quotedPrintable = true;
+            } else if (upper.equals("BASE64")) {
+                base64 = true;
+            } else if (upper.startsWith("X-") && type.length() > 2) {
+                customLabel = type.substring(2);
+            } else {
+                types.add(upper);
+            }
+        }
+
+        int phoneType() {
+            boolean fax = types.contains("FAX");
+            if (types.contains("CELL")) return Phone.TYPE_MOBILE;
+            if (fax) return types.contains("WORK") ? Phone.TYPE_FAX_WORK : Phone.TYPE_FAX_HOME;
+            if (types.contains("PAGER")) return Phone.TYPE_PAGER;
+            if (types.contains("HOME")) return Phone.TYPE_HOME;
+            if (types.contains("WORK")) return Phone.TYPE_WORK;
+            if (customLabel != null) return Phone.TYPE_CUSTOM;
+            if (types.contains("VOICE") || types.contains("MAIN")) return Phone.TYPE_MAIN;
+            return Phone.TYPE_OTHER;
+        }
+
+        int emailType() {
+            if (types.contains("HOME")) return Email.TYPE_HOME;
+            if (types.contains("WORK")) return Email.TYPE_WORK;
+            if (customLabel != null) return Email.TYPE_CUSTOM;
+            return Email.TYPE_OTHER;
+        }
+
+        int postalType() {
+            if (types.contains("HOME")) return StructuredPostal.TYPE_HOME;
+            if (types.contains("WORK")) return StructuredPostal.TYPE_WORK;
+            if (customLabel != null) return StructuredPostal.TYPE_CUSTOM;
+            return StructuredPostal.TYPE_OTHER;
+        }
+    }
+}
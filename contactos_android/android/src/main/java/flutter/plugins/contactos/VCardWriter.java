@@ -0,0 +1,261 @@
+// Copyright 2025 Anton Ustinoff<a.a.ustinoff@gmail.com>. All rights reserved.
+// Use of this source code is governed by the license found in the LICENSE
+// file.
+
+package flutter.plugins.contactos;
+
+import android.content.res.Resources;
+import android.database.Cursor;
+import android.provider.ContactsContract;
+import android.util.Base64;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static android.provider.ContactsContract.CommonDataKinds.Email;
+import static android.provider.ContactsContract.CommonDataKinds.Phone;
+import static android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
+
+/***
+ * Writes contacts as vCard 3.0 or 4.0 records through a fixed-size buffer.
+ *
+ * {@link #exportFrom} walks a Data cursor ordered by CONTACT_ID and emits each
+ * contact as soon as its last row has been read, so only one contact is held
+ * in memory regardless of the size of the address book.
+ ***/
+final class VCardWriter implements Closeable {
+    static final String VERSION_3 = "3.0";
+    static final String VERSION_4 = "4.0";
+
+    private static final int BUFFER_CHARS = 16 * 1024;
+    // RFC 6350 3.2 / RFC 2425 5.8.1: lines SHOULD NOT exceed 75 octets.
+    private static final int MAX_LINE_OCTETS = 75;
+    private static final int PROGRESS_EVERY = 250;
+
+    interface ProgressListener {
+        void onProgress(int contacts, int rows, int totalRows);
+    }
+
+    private final Writer out;
+    private final boolean v4;
+    private int written;
+
+    VCardWriter(OutputStream stream, String version) {
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_CHARS);
+        this.v4 = VERSION_4.equals(version);
+    }
+
+    // Streams every contact in the cursor and closes it. Photo rows are embedded
+    // when the cursor projects Photo.PHOTO; labels are kept unlocalized.
+    int exportFrom(Cursor cursor, Resources resources, ProgressListener listener) throws IOException {
+        try {
+            ContactAggregator aggregator = new ContactAggregator(cursor, resources, false);
+            int mimeTypeColumn = cursor.getColumnIndex(ContactsContract.Data.MIMETYPE);
+            int photoColumn = cursor.getColumnIndex(ContactsContract.CommonDataKinds.Photo.PHOTO);
+            int totalRows = cursor.getCount();
+            int rows = 0;
+
+            Contact contact = null;
+            long contactId = Long.MIN_VALUE;
+            while (cursor.moveToNext()) {
+                long id = aggregator.currentContactId();
+                if (contact == null || id != contactId) {
+                    if (contact != null) {
+                        write(contact);
+                        if (listener != null && written % PROGRESS_EVERY == 0) {
+                            listener.onProgress(written, rows, totalRows);
+                        }
+                    }
+                    contact = aggregator.newContact(id);
+                    contactId = id;
+                }
+                if (photoColumn >= 0 && contact.avatar.length == 0
+                        && ContactsContract.CommonDataKinds.Photo.CONTENT_ITEM_TYPE.equals(cursor.getString(mimeTypeColumn))) {
+                    byte[] photo = cursor.getBlob(photoColumn);
+                    if (photo != null) contact.avatar = photo;
+                } else {
+                    aggregator.applyRow(contact);
+                }
+                rows++;
+            }
+            if (contact != null) write(contact);
+            out.flush();
+            if (listener != null) listener.onProgress(written, rows, totalRows);
+            return written;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    void write(Contact contact) throws IOException {
+        line("BEGIN:VCARD");
+        line(v4 ? "VERSION:4.0" : "VERSION:3.0");
+        line("FN:" + escape(formattedName(contact)));
+        line("N:" + escape(contact.familyName) + ";" + escape(contact.givenName) + ";" + escape(contact.middleName)
+                + ";" + escape(contact.prefix) + ";" + escape(contact.suffix));
+        if (notEmpty(contact.company)) line("ORG:" + escape(contact.company));
+        if (notEmpty(contact.jobTitle)) line("TITLE:" + escape(contact.jobTitle));
+        for (Item phone : contact.phones) {
+            String custom = phone.type == Phone.TYPE_CUSTOM ? phone.label : null;
+            line("TEL" + typeParam(phoneType(phone.type), custom) + ":" + escape(phone.value));
+        }
+        for (Item email : contact.emails) {
+            String custom = email.type == Email.TYPE_CUSTOM ? email.label : null;
+            line("EMAIL" + typeParam(emailType(email.type), custom) + ":" + escape(email.value));
+        }
+        for (PostalAddress address : contact.postalAddresses) {
+            String type = address.type == StructuredPostal.TYPE_HOME ? "home"
+                    : address.type == StructuredPostal.TYPE_WORK ? "work" : null;
+            String custom = address.type == StructuredPostal.TYPE_CUSTOM ? address.label : null;
+            line("ADR" + typeParam(type, custom) + ":;;" + escape(address.street) + ";" + escape(address.city)
+                    + ";" + escape(address.region) + ";" + escape(address.postcode) + ";" + escape(address.country));
+        }
+        if (notEmpty(contact.birthday)) line("BDAY:" + birthday(contact.birthday));
+        if (notEmpty(contact.note)) line("NOTE:" + escape(contact.note));
+        if (contact.avatar.length > 0) {
+            String mediaType = isPng(contact.avatar) ? "png" : "jpeg";
+            String data = Base64.encodeToString(contact.avatar, Base64.NO_WRAP);
+            line(v4 ? "PHOTO:data:image/" + mediaType + ";base64," + data
+                    : "PHOTO;ENCODING=b;TYPE=" + mediaType.toUpperCase(Locale.ROOT) + ":" + data);
+        }
+        line("END:VCARD");
+        written++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    // Writes a content line folded at 75 octets without splitting UTF-8 sequences.
+    private void line(String value) throws IOException {
+        int octets = 0;
+        int length = value.length();
+        for (int i = 0; i < length; ) {
+            int codePoint = value.codePointAt(i);
+            int charCount = Character.charCount(codePoint);
+            int size = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (octets + size > MAX_LINE_OCTETS) {
+                out.write("\r\n ");
+                octets = 1;
+            }
+            out.write(value, i, charCount);
+            octets += size;
+            i += charCount;
+        }
+        out.write("\r\n");
+    }
+
+    private String typeParam(String type, String customLabel) {
+        if (type != null) return ";TYPE=" + (v4 ? type : type.toUpperCase(Locale.ROOT));
+        if (customLabel == null) return "";
+        StringBuilder name = new StringBuilder("X-");
+        for (int i = 0; i < customLabel.length(); i++) {
+            char c = customLabel.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '-') name.append(c);
+        }
+        return name.length() > 2 ? ";TYPE=" + name : "";
+    }
+
+    private static String phoneType(int type) {
+        switch (type) {
+            case Phone.TYPE_HOME:
+                return "home";
+            case Phone.TYPE_MOBILE:
+                return "cell";
+            case Phone.TYPE_WORK:
+                return "work";
+            case Phone.TYPE_FAX_WORK:
+                return "work,fax";
+            case Phone.TYPE_FAX_HOME:
+                return "home,fax";
+            case Phone.TYPE_PAGER:
+                return "pager";
+            case Phone.TYPE_MAIN:
+                return "voice";
+            default:
+                return null;
+        }
+    }
+
+    private static String emailType(int type) {
+        switch (type) {
+            case Email.TYPE_HOME:
+                return "home";
+            case Email.TYPE_WORK:
+                return "work";
+            default:
+                return null;
+        }
+    }
+
+    // vCard 4.0 dates use the basic format (19850412, --0412); 3.0 keeps the provider value.
+    private String birthday(String value) {
+        if (!v4) return escape(value);
+        boolean noYear = value.startsWith("--");
+        String digits = (noYear ? value.substring(2) : value).replace("-", "");
+        return noYear ? "--" + digits : digits;
+    }
+
+    private static String formattedName(Contact contact) {
+        if (notEmpty(contact.displayName)) return contact.displayName;
+        StringBuilder name = new StringBuilder();
+        for (String part : new String[]{contact.givenName, contact.middleName, contact.familyName}) {
+            if (notEmpty(part)) {
+                if (name.length() > 0) name.append(' ');
+                name.append(part);
+            }
+        }
+        return name.toString();
+    }
+
+    private static boolean isPng(byte[] data) {
+        return data.length > 4 && (data[0] & 0xFF) == 0x89 && data[1] == 'P' && data[2] == 'N' && data[3] == 'G';
+    }
+
+    private static boolean notEmpty(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    private static String escape(String value) {
+        if (value == null) return "";
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '\\':
+                    replacement = "\\\\";
+                    break;
+                case ',':
+                    replacement = "\\,";
+                    break;
+                case ';':
+                    replacement = "\\;";
+                    break;
+                case '\n':
+                    replacement = "\\n";
+                    break;
+                case '\r':
+                    replacement = "";
+                    break;
+                default:
+                    replacement = null;
+            }
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) escaped.append(replacement);
+                else escaped.append(c);
+            }
+        }
+        return escaped == null ? value : escaped.toString();
+    }
+}
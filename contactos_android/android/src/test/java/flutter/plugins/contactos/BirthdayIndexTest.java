@@ -0,0 +1,79 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class BirthdayIndexTest {
+
+  @Test
+  public void parse_acceptsDatesWithAndWithoutYear() {
+    BirthdayIndex.Entry full = BirthdayIndex.parse("1", "Ada", "1815-12-10");
+    BirthdayIndex.Entry noYear = BirthdayIndex.parse("2", "Bo", "--03-07");
+    BirthdayIndex.Entry compact = BirthdayIndex.parse("3", "Cy", "19900704");
+    BirthdayIndex.Entry withTime = BirthdayIndex.parse("4", "Di", "1990-07-04T00:00:00Z");
+
+    assertThat(full.year).isEqualTo(1815);
+    assertThat(full.month).isEqualTo(12);
+    assertThat(full.day).isEqualTo(10);
+    assertThat(noYear.year).isEqualTo(0);
+    assertThat(noYear.month).isEqualTo(3);
+    assertThat(noYear.day).isEqualTo(7);
+    assertThat(compact.dayOfYear).isEqualTo(withTime.dayOfYear);
+    assertThat(BirthdayIndex.parse("5", "Ed", "--02-30")).isNull();
+    assertThat(BirthdayIndex.parse("6", "Fi", "next week")).isNull();
+    assertThat(BirthdayIndex.parse("7", "Gus", null)).isNull();
+  }
+
+  @Test
+  public void upcoming_wrapsAroundTheEndOfTheYear() {
+    BirthdayIndex index = index("1990-01-05", "--12-30", "1980-06-01", "--12-20");
+
+    List<HashMap<String, Object>> next = index.upcoming(2025, 12, 25, 3, -1);
+
+    assertThat(names(next)).containsExactly("--12-30", "1990-01-05", "1980-06-01").inOrder();
+    assertThat(next.get(0).get("daysUntil")).isEqualTo(5);
+    assertThat(next.get(0).get("age")).isNull();
+    assertThat(next.get(1).get("daysUntil")).isEqualTo(11);
+    assertThat(next.get(1).get("age")).isEqualTo(36);
+  }
+
+  @Test
+  public void upcoming_includesTodayAndStopsAtTheWindow() {
+    BirthdayIndex index = index("--05-01", "--05-03", "--05-20");
+
+    List<HashMap<String, Object>> next = index.upcoming(2025, 5, 1, 10, 7);
+
+    assertThat(names(next)).containsExactly("--05-01", "--05-03").inOrder();
+    assertThat(next.get(0).get("daysUntil")).isEqualTo(0);
+  }
+
+  @Test
+  public void upcoming_celebratesLeapDayOnFirstMarchInCommonYears() {
+    BirthdayIndex index = index("2000-02-29", "--03-02");
+
+    List<HashMap<String, Object>> next = index.upcoming(2025, 3, 1, 10, -1);
+
+    assertThat(names(next)).containsExactly("2000-02-29", "--03-02").inOrder();
+    assertThat(next.get(0).get("daysUntil")).isEqualTo(0);
+    assertThat(next.get(0).get("age")).isEqualTo(25);
+  }
+
+  private static BirthdayIndex index(String... birthdays) {
+    ArrayList<BirthdayIndex.Entry> entries = new ArrayList<>();
+    for (int i = 0; i < birthdays.length; i++) {
+      entries.add(BirthdayIndex.parse(String.valueOf(i), "Contact " + i, birthdays[i]));
+    }
+    return new BirthdayIndex(entries, 1L);
+  }
+
+  private static List<Object> names(List<HashMap<String, Object>> birthdays) {
+    ArrayList<Object> result = new ArrayList<>();
+    for (HashMap<String, Object> birthday : birthdays) result.add(birthday.get("birthday"));
+    return result;
+  }
+}
@@ -0,0 +1,80 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.database.MatrixCursor;
+import android.provider.ContactsContract.CommonDataKinds;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ContactAggregatorTest {
+
+  @Test
+  public void aggregate_groupsInterleavedRowsInFirstSeenOrder() {
+    MatrixCursor cursor = new MatrixCursor(SyntheticAddressBook.DATA_COLUMNS);
+    cursor.addRow(row(2, CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE, "Bob Two", "Bob", "Two"));
+    cursor.addRow(row(1, CommonDataKinds.Phone.CONTENT_ITEM_TYPE, "+100", "2", null));
+    cursor.addRow(row(2, CommonDataKinds.Phone.CONTENT_ITEM_TYPE, "+200", "0", "Dacha"));
+    cursor.addRow(row(1, CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE, "Ann One", "Ann", "One"));
+
+    ArrayList<Contact> contacts = new ContactAggregator(cursor, null, false).aggregate();
+
+    assertThat(contacts).hasSize(2);
+    assertThat(contacts.get(0).identifier).isEqualTo("2");
+    assertThat(contacts.get(0).givenName).isEqualTo("Bob");
+    assertThat(contacts.get(0).phones.get(0).label).isEqualTo("dacha");
+    assertThat(contacts.get(1).identifier).isEqualTo("1");
+    assertThat(contacts.get(1).phones.get(0).label).isEqualTo("mobile");
+  }
+
+  @Test
+  public void aggregate_sharesEmptyCollectionsAndAvatar() {
+    MatrixCursor cursor = new MatrixCursor(SyntheticAddressBook.DATA_COLUMNS);
+    cursor.addRow(row(1, CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE, "Ann One", "Ann", "One"));
+    cursor.addRow(row(2, CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE, "Bob Two", "Bob", "Two"));
+
+    ArrayList<Contact> contacts = new ContactAggregator(cursor, null, false).aggregate();
+
+    assertThat(contacts.get(0).emails).isSameInstanceAs(contacts.get(1).emails);
+    assertThat(contacts.get(0).postalAddresses).isSameInstanceAs(contacts.get(1).postalAddresses);
+    assertThat(contacts.get(0).avatar).isSameInstanceAs(Contact.NO_AVATAR);
+  }
+
+  @Test
+  public void aggregateKind_readsNarrowCursorWithoutMimeTypeAndMerges() {
+    MatrixCursor names = new MatrixCursor(new String[]{"contact_id", "display_name", "data2", "data3"});
+    names.addRow(new Object[]{1L, "Ann One", "Ann", "One"});
+    MatrixCursor phones = new MatrixCursor(new String[]{"contact_id", "display_name", "data1", "data2", "data3"});
+    phones.addRow(new Object[]{1L, "Ann One", "+100", "2", null});
+    phones.addRow(new Object[]{1L, "Ann One", "+101", "0", "Dacha"});
+
+    Contact ann = new ContactAggregator(names, null, false)
+        .aggregateKind(CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE).get(0);
+    Contact partial = new ContactAggregator(phones, null, false)
+        .aggregateKind(CommonDataKinds.Phone.CONTENT_ITEM_TYPE).get(0);
+    ContactAggregator.merge(ann, partial);
+
+    assertThat(ann.givenName).isEqualTo("Ann");
+    assertThat(ann.phones).hasSize(2);
+    assertThat(ann.phones.get(1).label).isEqualTo("dacha");
+  }
+
+  private static Object[] row(long contactId, String mimeType, Object data1, Object data2, Object data3) {
+    Object[] row = new Object[SyntheticAddressBook.DATA_COLUMNS.length];
+    row[SyntheticAddressBook.COLUMN_DATA_ID] = contactId * 100;
+    row[SyntheticAddressBook.COLUMN_RAW_CONTACT_ID] = contactId;
+    row[SyntheticAddressBook.COLUMN_CONTACT_ID] = contactId;
+    row[SyntheticAddressBook.COLUMN_MIMETYPE] = mimeType;
+    row[SyntheticAddressBook.COLUMN_DATA1] = data1;
+    row[SyntheticAddressBook.COLUMN_DATA1 + 1] = data2;
+    row[SyntheticAddressBook.COLUMN_DATA1 + 2] = data3;
+    return row;
+  }
+}
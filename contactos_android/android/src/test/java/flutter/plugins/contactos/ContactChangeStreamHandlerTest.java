@@ -0,0 +1,141 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.ContentResolver;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.ContactsContract;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.flutter.plugin.common.EventChannel;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ContactChangeStreamHandlerTest {
+
+  private static final long DEBOUNCE_MILLIS = 100;
+
+  private FakeContactsProvider provider;
+  private ContentResolver resolver;
+  private ExecutorService executor;
+  private ContactChangeStreamHandler handler;
+  private RecordingSink sink;
+
+  @Before
+  public void setUp() throws Exception {
+    provider = Robolectric.buildContentProvider(FakeContactsProvider.class)
+        .create(ContactsContract.AUTHORITY)
+        .get();
+    provider.load(new SyntheticAddressBook(7L, 50));
+    resolver = ApplicationProvider.getApplicationContext().getContentResolver();
+    executor = Executors.newSingleThreadExecutor();
+    handler = new ContactChangeStreamHandler(resolver, executor, new Handler(Looper.getMainLooper()));
+    sink = new RecordingSink();
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("debounceMillis", DEBOUNCE_MILLIS);
+    handler.onListen(args, sink);
+    // Provider timestamps have millisecond resolution; keep edits strictly after the baseline.
+    Thread.sleep(5);
+  }
+
+  @After
+  public void tearDown() {
+    handler.onCancel(null);
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void burstOfChanges_isCoalescedIntoOneEvent() throws Exception {
+    provider.touch(5);
+    provider.touch(5);
+    provider.touch(6);
+
+    HashMap<String, Object> event = awaitEvent();
+
+    assertThat(sink.events).hasSize(1);
+    assertThat((List<?>) event.get("changed")).containsExactly("5", "6");
+    assertThat((List<?>) event.get("deleted")).isEmpty();
+    assertThat(event.get("idsKnown")).isEqualTo(true);
+  }
+
+  @Test
+  public void deletedContact_isReportedAsDeleted() throws Exception {
+    resolver.delete(ContactsContract.RawContacts.CONTENT_URI, ContactsContract.RawContacts.CONTACT_ID + " = ?",
+        new String[]{"9"});
+
+    HashMap<String, Object> event = awaitEvent();
+
+    assertThat((List<?>) event.get("deleted")).containsExactly("9");
+  }
+
+  @Test
+  public void nextEvent_onlyCarriesNewChanges() throws Exception {
+    provider.touch(5);
+    awaitEvent();
+    sink.events.clear();
+    Thread.sleep(5);
+
+    provider.touch(8);
+    HashMap<String, Object> event = awaitEvent();
+
+    assertThat((List<?>) event.get("changed")).containsExactly("8");
+  }
+
+  @Test
+  public void cancelledStream_emitsNothing() throws Exception {
+    handler.onCancel(null);
+    provider.touch(5);
+
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(DEBOUNCE_MILLIS * 5));
+
+    assertThat(sink.events).isEmpty();
+  }
+
+  private HashMap<String, Object> awaitEvent() throws InterruptedException {
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(DEBOUNCE_MILLIS));
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (sink.events.isEmpty()) {
+      if (System.currentTimeMillis() > deadline) throw new AssertionError("No change event");
+      shadowOf(Looper.getMainLooper()).idle();
+      Thread.sleep(2);
+    }
+    return sink.events.get(0);
+  }
+
+  private static final class RecordingSink implements EventChannel.EventSink {
+    final List<HashMap<String, Object>> events = new ArrayList<>();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void success(Object event) {
+      events.add((HashMap<String, Object>) event);
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+      throw new AssertionError(errorMessage);
+    }
+
+    @Override
+    public void endOfStream() {
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ContactSearchIndexTest {
+
+  @Test
+  public void normalize_transliteratesAndFolds() {
+    assertThat(ContactSearchIndex.normalize("Пётр Йовович")).isEqualTo("petr yovovich");
+    assertThat(ContactSearchIndex.normalize("José MÜLLER")).isEqualTo("jose muller");
+  }
+
+  @Test
+  public void search_matchesAcrossScriptsAndTypos() {
+    ContactSearchIndex index = new ContactSearchIndex(Arrays.asList(
+        named("Ivan", "Petrov"),
+        named("Иван", "Сидоров"),
+        named("Ivana", "Smith"),
+        named("Jonathan", "Ive"),
+        named("Mary", "Jones")), 0, false);
+
+    assertThat(identifiers(index.search("ivan", 10)))
+        .containsExactly("Ivan Petrov", "Иван Сидоров", "Ivana Smith").inOrder();
+    assertThat(identifiers(index.search("сидоров", 10))).containsExactly("Иван Сидоров");
+    assertThat(identifiers(index.search("petorv", 10))).containsExactly("Ivan Petrov");
+    assertThat(identifiers(index.search("Иван petrov", 10))).containsExactly("Ivan Petrov");
+    assertThat(index.search("  ", 10)).isEmpty();
+  }
+
+  @Test
+  public void search_keepsOnlyTheBestLimitHits() {
+    ArrayList<Contact> contacts = new ArrayList<>();
+    for (int i = 0; i < 100; i++) contacts.add(named("Anna", "Smith" + i));
+    contacts.add(named("Annabel", "Lee"));
+    ContactSearchIndex index = new ContactSearchIndex(contacts, 0, false);
+
+    List<Contact> hits = index.search("anna", 5);
+
+    // Exact matches outrank the prefix match; equal scores keep address book order.
+    assertThat(identifiers(hits))
+        .containsExactly("Anna Smith0", "Anna Smith1", "Anna Smith2", "Anna Smith3", "Anna Smith4").inOrder();
+  }
+
+  @Test
+  public void prefixDistance_matchesPrefixesWithinTheBound() {
+    assertThat(ContactSearchIndex.prefixDistance("jhon", "johnson", 1)).isEqualTo(1);
+    assertThat(ContactSearchIndex.prefixDistance("zlda", "zelda", 1)).isEqualTo(1);
+    assertThat(ContactSearchIndex.prefixDistance("maria", "peter", 2)).isEqualTo(3);
+  }
+
+  private static List<String> identifiers(List<Contact> contacts) {
+    ArrayList<String> ids = new ArrayList<>(contacts.size());
+    for (Contact contact : contacts) ids.add(contact.identifier);
+    return ids;
+  }
+
+  private static Contact named(String given, String family) {
+    Contact contact = new Contact(given + " " + family);
+    contact.givenName = given;
+    contact.familyName = family;
+    return contact;
+  }
+}
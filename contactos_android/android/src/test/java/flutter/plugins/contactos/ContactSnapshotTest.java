@@ -0,0 +1,98 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.res.Resources;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ContactSnapshotTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private Resources resources;
+  private ArrayList<Contact> contacts;
+  private File file;
+
+  @Before
+  public void setUp() throws Exception {
+    resources = ApplicationProvider.getApplicationContext().getResources();
+    contacts = ContactosPlugin.getContactsFrom(new SyntheticAddressBook(11L, 300).newDataCursor(), resources, false);
+    file = new File(folder.getRoot(), "snapshots/contacts.snapshot");
+  }
+
+  @Test
+  public void writeThenRead_roundTripsEveryField() throws Exception {
+    ContactSnapshot.write(file, contacts, 1234L, "en/raw");
+
+    ContactSnapshot snapshot = ContactSnapshot.read(file, "en/raw");
+
+    assertThat(snapshot).isNotNull();
+    assertThat(snapshot.asOf).isEqualTo(1234L);
+    assertThat(maps(snapshot.contacts)).containsExactlyElementsIn(maps(contacts)).inOrder();
+  }
+
+  @Test
+  public void read_otherFingerprint_keepsFile() throws Exception {
+    ContactSnapshot.write(file, contacts, 1L, "en/raw");
+
+    assertThat(ContactSnapshot.read(file, "de/localized")).isNull();
+    assertThat(file.exists()).isTrue();
+  }
+
+  @Test
+  public void read_corruptedBody_discardsFile() throws Exception {
+    ContactSnapshot.write(file, contacts, 1L, "en/raw");
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(raf.length() / 2);
+      int value = raf.read();
+      raf.seek(raf.length() / 2);
+      raf.write(value ^ 0xFF);
+    }
+
+    assertThat(ContactSnapshot.read(file, "en/raw")).isNull();
+    assertThat(file.exists()).isFalse();
+  }
+
+  @Test
+  public void read_truncatedFile_discardsFile() throws Exception {
+    ContactSnapshot.write(file, contacts, 1L, "en/raw");
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(raf.length() - 10);
+    }
+
+    assertThat(ContactSnapshot.read(file, "en/raw")).isNull();
+    assertThat(file.exists()).isFalse();
+  }
+
+  @Test
+  public void read_missingFile_returnsNull() {
+    assertThat(ContactSnapshot.read(file, "en/raw")).isNull();
+  }
+
+  private static List<HashMap<String, Object>> maps(List<Contact> contacts) {
+    ArrayList<HashMap<String, Object>> maps = new ArrayList<>();
+    for (Contact contact : contacts) {
+      HashMap<String, Object> map = contact.toMap();
+      map.remove("avatar");
+      maps.add(map);
+    }
+    return maps;
+  }
+}
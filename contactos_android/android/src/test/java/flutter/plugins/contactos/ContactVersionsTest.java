@@ -0,0 +1,78 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+public class ContactVersionsTest {
+
+  @Test
+  public void fingerprint_ignoresMapOrderButNotContent() {
+    LinkedHashMap<String, Object> first = new LinkedHashMap<>();
+    first.put("givenName", "Ada");
+    first.put("phones", Arrays.asList("+1 555 0100", "+1 555 0101"));
+    first.put("avatar", new byte[]{1, 2, 3});
+    LinkedHashMap<String, Object> second = new LinkedHashMap<>();
+    second.put("avatar", new byte[]{1, 2, 3});
+    second.put("phones", Arrays.asList("+1 555 0100", "+1 555 0101"));
+    second.put("givenName", "Ada");
+
+    assertThat(ContactVersions.fingerprint(first)).isEqualTo(ContactVersions.fingerprint(second));
+
+    second.put("phones", Arrays.asList("+1 555 0101", "+1 555 0100"));
+    assertThat(ContactVersions.fingerprint(first)).isNotEqualTo(ContactVersions.fingerprint(second));
+    first.put("avatar", new byte[]{1, 2, 4});
+    second.put("phones", first.get("phones"));
+    assertThat(ContactVersions.fingerprint(first)).isNotEqualTo(ContactVersions.fingerprint(second));
+  }
+
+  @Test
+  public void diff_reportsAddedChangedAndRemoved() {
+    HashMap<String, Long> before = new HashMap<>();
+    before.put("1", 10L);
+    before.put("2", 20L);
+    before.put("3", 30L);
+    HashMap<String, Long> after = new HashMap<>();
+    after.put("1", 10L);
+    after.put("2", 21L);
+    after.put("4", 40L);
+
+    ContactVersions.Diff diff = ContactVersions.diff(before, after);
+
+    assertThat(diff.added).containsExactly("4");
+    assertThat(diff.changed).containsExactly("2");
+    assertThat(diff.removed).containsExactly("3");
+    assertThat(ContactVersions.diff(after, after).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void find_forgetsOldSnapshotsAndOtherOptions() {
+    ContactVersions versions = new ContactVersions();
+    ContactVersions.Snapshot oldest = versions.add(0, 1L, new HashMap<>());
+    for (int i = 0; i < ContactVersions.MAX_SNAPSHOTS - 1; i++) versions.add(0, 1L, new HashMap<>());
+    ContactVersions.Snapshot latest = versions.add(4, 1L, new HashMap<>());
+
+    assertThat(latest.version).isGreaterThan(oldest.version);
+    assertThat(versions.find(oldest.version, 0)).isNull();
+    assertThat(versions.find(latest.version, 4)).isSameInstanceAs(latest);
+    assertThat(versions.find(latest.version, 0)).isNull();
+  }
+
+  @Test
+  public void invalidate_keepsSnapshotsButNotTheirProviderVersion() {
+    ContactVersions versions = new ContactVersions();
+    ContactVersions.Snapshot snapshot = versions.add(0, 7L, new HashMap<>());
+
+    assertThat(versions.isCurrent(snapshot, 7L)).isTrue();
+    versions.invalidate();
+
+    assertThat(versions.isCurrent(snapshot, 7L)).isFalse();
+    assertThat(versions.find(snapshot.version, 0)).isSameInstanceAs(snapshot);
+    versions.confirm(snapshot, 8L);
+    assertThat(versions.isCurrent(snapshot, 8L)).isTrue();
+  }
+}
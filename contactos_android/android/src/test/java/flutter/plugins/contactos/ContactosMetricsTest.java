@@ -0,0 +1,80 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+public class ContactosMetricsTest {
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void toMap_reportsCountersHistogramsAndMarkedStages() throws Exception {
+    ContactosMetrics metrics = new ContactosMetrics();
+    ContactosMetrics.Trace ok = metrics.begin("getContacts", null);
+    Thread.sleep(2);
+    ok.mark(ContactosMetrics.Stage.QUERY);
+    ok.addRows(5);
+    ok.addContacts(2);
+    ok.finish(true);
+    ContactosMetrics.Trace failed = metrics.begin("getContacts", null);
+    failed.mark(ContactosMetrics.Stage.QUEUE);
+    failed.finish(false);
+
+    HashMap<String, Object> methods = (HashMap<String, Object>) metrics.toMap(null).get("methods");
+    HashMap<String, Object> stats = (HashMap<String, Object>) methods.get("getContacts");
+
+    assertThat(methods.keySet()).containsExactly("getContacts");
+    assertThat(stats.get("calls")).isEqualTo(2L);
+    assertThat(stats.get("errors")).isEqualTo(1L);
+    assertThat(stats.get("rowsScanned")).isEqualTo(5L);
+    assertThat(stats.get("contactsReturned")).isEqualTo(2L);
+    HashMap<String, Object> latency = (HashMap<String, Object>) stats.get("latency");
+    assertThat(latency.get("count")).isEqualTo(2L);
+    long buckets = 0;
+    for (long bucket : (List<Long>) latency.get("buckets")) buckets += bucket;
+    assertThat(buckets).isEqualTo(2L);
+    assertThat((Long) latency.get("maxMicros")).isAtLeast(2000L);
+    assertThat((Long) latency.get("p50Micros")).isAtMost((Long) latency.get("p99Micros"));
+    assertThat((Long) latency.get("p99Micros")).isAtMost((Long) latency.get("maxMicros"));
+    HashMap<String, Object> stages = (HashMap<String, Object>) stats.get("stages");
+    assertThat(stages).containsKey("query");
+    assertThat(stages).doesNotContainKey("aggregate");
+    assertThat(((HashMap<String, Object>) stages.get("query")).get("count")).isEqualTo(1L);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void toMapAndReset_reportsEverySampleExactlyOnce() {
+    ContactosMetrics metrics = new ContactosMetrics();
+    for (int i = 0; i < 3; i++) metrics.begin("getContacts", null).finish(true);
+    // Begun before the reset, finished after it: belongs to the next window.
+    ContactosMetrics.Trace inFlight = metrics.begin("getContacts", null);
+
+    HashMap<String, Object> first = metrics.toMapAndReset(null);
+    inFlight.finish(true);
+    HashMap<String, Object> second = metrics.toMapAndReset(null);
+
+    HashMap<String, Object> firstMethods = (HashMap<String, Object>) first.get("methods");
+    HashMap<String, Object> secondMethods = (HashMap<String, Object>) second.get("methods");
+    assertThat(((HashMap<String, Object>) firstMethods.get("getContacts")).get("calls")).isEqualTo(3L);
+    assertThat(((HashMap<String, Object>) secondMethods.get("getContacts")).get("calls")).isEqualTo(1L);
+    assertThat((Long) second.get("sinceMillis")).isAtLeast((Long) first.get("sinceMillis"));
+    assertThat((HashMap<String, Object>) metrics.toMap(null).get("methods")).isEmpty();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void reset_dropsRecordedSamples() {
+    ContactosMetrics metrics = new ContactosMetrics();
+    metrics.begin("getAvatar", null).finish(true);
+
+    metrics.reset();
+
+    assertThat((HashMap<String, Object>) metrics.toMap(null).get("methods")).isEmpty();
+    HashMap<String, Object> executor = (HashMap<String, Object>) metrics.toMap(null).get("executor");
+    assertThat(executor.get("maxQueueDepth")).isEqualTo(0L);
+  }
+}
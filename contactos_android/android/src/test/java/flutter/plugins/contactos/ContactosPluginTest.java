@@ -0,0 +1,1018 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Looper;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.CommonDataKinds.GroupMembership;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import io.flutter.plugin.common.MethodCall;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ContactosPluginTest {
+
+  private static final int CONTACTS = 200;
+
+  private FakeContactsProvider provider;
+  private SyntheticAddressBook book;
+  private ContactosPlugin plugin;
+
+  @Before
+  public void setUp() {
+    Context context = ApplicationProvider.getApplicationContext();
+    provider = Robolectric.buildContentProvider(FakeContactsProvider.class)
+        .create(ContactsContract.AUTHORITY)
+        .get();
+    book = new SyntheticAddressBook(7L, CONTACTS);
+    provider.load(book);
+    plugin = new ContactosPlugin();
+    plugin.initInstance(new FakeBinaryMessenger(), context);
+  }
+
+  @After
+  public void tearDown() {
+    plugin.disposeInstance();
+  }
+
+  @Test
+  public void getContacts_returnsEveryContact() throws Exception {
+    List<HashMap<String, Object>> contacts = call("getContacts", readArgs());
+
+    assertThat(contacts).hasSize(CONTACTS);
+    HashSet<Object> ids = new HashSet<>();
+    for (HashMap<String, Object> contact : contacts) ids.add(contact.get("identifier"));
+    assertThat(ids).hasSize(CONTACTS);
+  }
+
+  @Test
+  public void getContactsByIds_preservesRequestedOrder() throws Exception {
+    HashMap<String, Object> args = readArgs();
+    args.put("identifiers", Arrays.asList("42", "7", "999999", "13"));
+
+    List<HashMap<String, Object>> contacts = call("getContactsByIds", args);
+
+    assertThat(identifiers(contacts)).containsExactly("42", "7", "13").inOrder();
+  }
+
+  @Test
+  public void getContactsForPhone_resolvesThroughPhoneLookup() throws Exception {
+    String number = null;
+    Object contactId = null;
+    for (Object[] row : book.dataRows()) {
+      if (ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE.equals(row[SyntheticAddressBook.COLUMN_MIMETYPE])) {
+        number = (String) row[SyntheticAddressBook.COLUMN_DATA1];
+        contactId = String.valueOf(row[SyntheticAddressBook.COLUMN_CONTACT_ID]);
+        break;
+      }
+    }
+    HashMap<String, Object> args = readArgs();
+    args.put("phone", number);
+
+    List<HashMap<String, Object>> contacts = call("getContactsForPhone", args);
+
+    assertThat(identifiers(contacts)).contains(contactId);
+  }
+
+  @Test
+  public void getAvatar_readsThumbnailFromProvider() throws Exception {
+    String contactId = null;
+    for (Object[] row : book.dataRows()) {
+      if (ContactsContract.CommonDataKinds.Photo.CONTENT_ITEM_TYPE.equals(row[SyntheticAddressBook.COLUMN_MIMETYPE])) {
+        contactId = String.valueOf(row[SyntheticAddressBook.COLUMN_CONTACT_ID]);
+        break;
+      }
+    }
+    HashMap<String, Object> contact = new HashMap<>();
+    contact.put("identifier", contactId);
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("contact", contact);
+    args.put("photoHighResolution", false);
+
+    byte[] avatar = call("getAvatar", args);
+
+    assertThat(avatar).isNotNull();
+  }
+
+  @Test
+  public void getAvatar_ifNoneMatch_skipsUnchangedPhoto() throws Exception {
+    String contactId = contactsWithPhoto().get(0);
+    HashMap<String, Object> contact = new HashMap<>();
+    contact.put("identifier", contactId);
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("contact", contact);
+    args.put("photoHighResolution", false);
+    args.put("ifNoneMatch", null);
+
+    HashMap<String, Object> first = call("getAvatar", args);
+    String etag = (String) first.get("etag");
+    assertThat(etag).isNotNull();
+    assertThat(first.get("notModified")).isEqualTo(false);
+    assertThat((byte[]) first.get("avatar")).isNotNull();
+
+    args.put("ifNoneMatch", etag);
+    int queries = provider.queryCount;
+    HashMap<String, Object> unchanged = call("getAvatar", args);
+
+    // Only the etag query; the photo itself is not read.
+    assertThat(provider.queryCount - queries).isEqualTo(1);
+    assertThat(unchanged.get("notModified")).isEqualTo(true);
+    assertThat(unchanged.get("avatar")).isNull();
+
+    ContentValues photo = new ContentValues();
+    photo.put(ContactsContract.CommonDataKinds.Photo.PHOTO, SyntheticAddressBook.AVATAR_PNG);
+    ApplicationProvider.getApplicationContext().getContentResolver().update(
+        ContactsContract.Data.CONTENT_URI, photo,
+        ContactsContract.Data.CONTACT_ID + " = ? AND " + ContactsContract.Data.MIMETYPE + " = ?",
+        new String[]{contactId, ContactsContract.CommonDataKinds.Photo.CONTENT_ITEM_TYPE});
+
+    HashMap<String, Object> rewritten = call("getAvatar", args);
+    assertThat(rewritten.get("notModified")).isEqualTo(false);
+    assertThat(rewritten.get("etag")).isNotEqualTo(etag);
+    assertThat((byte[]) rewritten.get("avatar")).isNotNull();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void getAvatars_readsOnlyChangedPhotos() throws Exception {
+    List<String> withPhoto = contactsWithPhoto();
+    String stale = withPhoto.get(0);
+    String current = withPhoto.get(1);
+    String missing = "999999";
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("identifiers", Arrays.asList(stale, current, missing));
+    args.put("photoHighResolution", false);
+    args.put("ifNoneMatch", null);
+
+    HashMap<String, HashMap<String, Object>> first = call("getAvatars", args);
+    assertThat((byte[]) first.get(current).get("avatar")).isEqualTo(SyntheticAddressBook.AVATAR_PNG);
+    assertThat(first.get(missing).get("etag")).isNull();
+
+    HashMap<String, String> ifNoneMatch = new HashMap<>();
+    ifNoneMatch.put(stale, "t0.0.0");
+    ifNoneMatch.put(current, (String) first.get(current).get("etag"));
+    args.put("ifNoneMatch", ifNoneMatch);
+    int queries = provider.queryCount;
+    HashMap<String, HashMap<String, Object>> second = call("getAvatars", args);
+
+    // One etag query, then one thumbnail query for the single changed photo.
+    assertThat(provider.queryCount - queries).isEqualTo(2);
+    assertThat(second.get(current).get("notModified")).isEqualTo(true);
+    assertThat(second.get(current).get("avatar")).isNull();
+    assertThat(second.get(stale).get("notModified")).isEqualTo(false);
+    assertThat(second.get(stale).get("etag")).isEqualTo(first.get(stale).get("etag"));
+    assertThat((byte[]) second.get(stale).get("avatar")).isEqualTo(SyntheticAddressBook.AVATAR_PNG);
+    assertThat(second.get(missing).get("avatar")).isNull();
+  }
+
+  @Test
+  public void getAvatars_repliesWithErrorWhenThePhotoQueryFails() throws Exception {
+    provider.failingMimeType = ContactsContract.CommonDataKinds.Photo.CONTENT_ITEM_TYPE;
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("identifiers", contactsWithPhoto());
+    args.put("photoHighResolution", false);
+    args.put("ifNoneMatch", null);
+    RecordingResult result = new RecordingResult();
+
+    plugin.onMethodCall(new MethodCall("getAvatars", args), result);
+
+    assertThat(result.awaitError()).contains("Failing");
+  }
+
+  @Test
+  public void getContacts_withThumbnails_readsPhotosInOneQueryPerChunk() throws Exception {
+    HashSet<Object> withPhoto = new HashSet<>();
+    for (Object[] row : book.dataRows()) {
+      if (ContactsContract.CommonDataKinds.Photo.CONTENT_ITEM_TYPE.equals(row[SyntheticAddressBook.COLUMN_MIMETYPE])) {
+        withPhoto.add(String.valueOf(row[SyntheticAddressBook.COLUMN_CONTACT_ID]));
+      }
+    }
+    HashMap<String, Object> args = readArgs();
+    args.put("withThumbnails", true);
+    int queries = provider.queryCount;
+
+    List<HashMap<String, Object>> contacts = call("getContacts", args);
+
+    // One Data read plus one thumbnail query for all 200 contacts.
+    assertThat(provider.queryCount - queries).isEqualTo(2);
+    assertThat(withPhoto).isNotEmpty();
+    for (HashMap<String, Object> contact : contacts) {
+      byte[] avatar = (byte[]) contact.get("avatar");
+      if (withPhoto.contains(contact.get("identifier"))) {
+        assertThat(avatar).isEqualTo(SyntheticAddressBook.AVATAR_PNG);
+        assertThat(contact.get("avatarEtag")).isNotNull();
+      } else {
+        assertThat(avatar).isEmpty();
+        assertThat(contact.get("avatarEtag")).isNull();
+      }
+    }
+  }
+
+  @Test
+  public void searchContacts_ranksFuzzyMatchesAndReusesIndex() throws Exception {
+    call("addContact", newContact("Zelda", "+1 555 000 1111"));
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("query", "zlda");
+    args.put("limit", 3);
+
+    List<HashMap<String, Object>> hits = call("searchContacts", args);
+    assertThat(hits).isNotEmpty();
+    assertThat(hits.size()).isAtMost(3);
+    assertThat(hits.get(0).get("givenName")).isEqualTo("Zelda");
+
+    int queries = provider.queryCount;
+    args.put("query", "Zel");
+    List<HashMap<String, Object>> again = call("searchContacts", args);
+
+    // Only the two version checks; the name index is not rebuilt.
+    assertThat(provider.queryCount - queries).isEqualTo(2);
+    assertThat(again.get(0).get("givenName")).isEqualTo("Zelda");
+  }
+
+  @Test
+  public void getUpcomingBirthdays_readsOnlyBirthdaysAndReusesIndex() throws Exception {
+    HashSet<Object> withBirthday = new HashSet<>();
+    int birthdayRows = 0;
+    for (Object[] row : book.dataRows()) {
+      if (ContactsContract.CommonDataKinds.Event.CONTENT_ITEM_TYPE.equals(row[SyntheticAddressBook.COLUMN_MIMETYPE])) {
+        birthdayRows++;
+        withBirthday.add(String.valueOf(row[SyntheticAddressBook.COLUMN_CONTACT_ID]));
+      }
+    }
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("limit", 5);
+    long rows = rowsScannedBy("getUpcomingBirthdays");
+
+    List<HashMap<String, Object>> next = call("getUpcomingBirthdays", args);
+
+    assertThat(next).hasSize(5);
+    assertThat(rowsScannedBy("getUpcomingBirthdays") - rows).isEqualTo(birthdayRows);
+    int previous = 0;
+    for (HashMap<String, Object> birthday : next) {
+      assertThat(withBirthday).contains(birthday.get("identifier"));
+      assertThat((Integer) birthday.get("daysUntil")).isAtLeast(previous);
+      previous = (Integer) birthday.get("daysUntil");
+    }
+    int queries = provider.queryCount;
+    args.put("limit", CONTACTS);
+    List<HashMap<String, Object>> all = call("getUpcomingBirthdays", args);
+    // Only the two version checks; the birthday index is not rebuilt.
+    assertThat(provider.queryCount - queries).isEqualTo(2);
+    assertThat(all).hasSize(withBirthday.size());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void getFavorites_servesStarredFromCacheUntilAChange() throws Exception {
+    provider.star(3, true, 0);
+    provider.star(9, true, 0);
+    provider.star(4, false, 12);
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("includeFrequent", false);
+
+    List<HashMap<String, Object>> starred = call("getFavorites", args);
+    assertThat(identifiers(starred)).containsExactly("3", "9");
+    assertThat(starred.get(0).get("starred")).isEqualTo(true);
+    List<HashMap<String, Object>> strequent = call("getFavorites", null);
+    assertThat(identifiers(strequent)).containsExactly("3", "9", "4");
+    assertThat(strequent.get(2).get("starred")).isEqualTo(false);
+
+    // The first answers may be read before the observer is listening; from then on the cache holds.
+    call("getFavorites", args);
+    int queries = provider.queryCount;
+    args.put("limit", 1);
+    assertThat((List<?>) call("getFavorites", args)).hasSize(1);
+    assertThat(provider.queryCount).isEqualTo(queries);
+
+    provider.star(9, false, 0);
+    shadowOf(Looper.getMainLooper()).idle();
+    args.remove("limit");
+    assertThat(identifiers(call("getFavorites", args))).containsExactly("3");
+    assertThat(provider.queryCount).isEqualTo(queries + 1);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void getContacts_versioned_sendsOnlyWhatMovedSinceTheCallersVersion() throws Exception {
+    HashMap<String, Object> args = readArgs();
+    args.put("versioned", true);
+
+    HashMap<String, Object> full = call("getContacts", args);
+    assertThat((List<?>) full.get("contacts")).hasSize(CONTACTS);
+    long version = (Long) full.get("version");
+
+    // Nothing moved: the provider version answers without reading contacts.
+    args.put("sinceVersion", version);
+    int queries = provider.queryCount;
+    HashMap<String, Object> unchanged = call("getContacts", args);
+    assertThat(unchanged.get("unchanged")).isEqualTo(true);
+    assertThat(unchanged.get("version")).isEqualTo(version);
+    assertThat(provider.queryCount - queries).isEqualTo(2);
+
+    // A touch without a content change costs a read but still ships nothing.
+    provider.touch(7);
+    assertThat(((HashMap<String, Object>) call("getContacts", args)).get("unchanged")).isEqualTo(true);
+
+    HashMap<String, Object> removed = newContact("Ignored", null);
+    removed.put("identifier", "5");
+    call("deleteContact", removed);
+    call("addContact", newContact("Zelda", "+1 555 000 1111"));
+
+    HashMap<String, Object> diff = call("getContacts", args);
+    assertThat((Long) diff.get("version")).isGreaterThan(version);
+    List<HashMap<String, Object>> added = (List<HashMap<String, Object>>) diff.get("added");
+    assertThat(added).hasSize(1);
+    assertThat(added.get(0).get("givenName")).isEqualTo("Zelda");
+    assertThat((List<?>) diff.get("changed")).isEmpty();
+    assertThat((List<?>) diff.get("removed")).containsExactly("5");
+  }
+
+  @Test
+  public void addContact_commitsOneBatch() throws Exception {
+    int batches = provider.batchCount;
+
+    call("addContact", newContact("Zelda", "+1 555 000 1111"));
+
+    assertThat(provider.batchCount).isEqualTo(batches + 1);
+    HashMap<String, Object> args = readArgs();
+    args.put("query", "Zelda");
+    List<HashMap<String, Object>> contacts = call("getContacts", args);
+    assertThat(contacts).hasSize(1);
+  }
+
+  @Test
+  public void addContact_streamsLargePhotoOutsideTheBatch() throws Exception {
+    byte[] photo = new byte[PhotoWriter.INLINE_LIMIT + 1];
+    new Random(7L).nextBytes(photo);
+    HashMap<String, Object> contact = newContact("Zelda", "+1 555 000 1111");
+    contact.put("avatar", photo);
+
+    call("addContact", contact);
+
+    HashMap<String, Object> args = readArgs();
+    args.put("query", "Zelda");
+    List<HashMap<String, Object>> contacts = call("getContacts", args);
+    assertThat(contacts).hasSize(1);
+    // The fake gives a new raw contact the same ID as its contact.
+    long rawContactId = Long.parseLong((String) contacts.get(0).get("identifier"));
+    assertThat(provider.displayPhoto(rawContactId)).isEqualTo(photo);
+    try (Cursor cursor = ApplicationProvider.getApplicationContext().getContentResolver().query(
+        ContactsContract.Data.CONTENT_URI, new String[]{ContactsContract.Data._ID},
+        ContactsContract.Data.RAW_CONTACT_ID + " = ? AND " + ContactsContract.Data.MIMETYPE + " = ?",
+        new String[]{String.valueOf(rawContactId), ContactsContract.CommonDataKinds.Photo.CONTENT_ITEM_TYPE},
+        null)) {
+      assertThat(cursor.getCount()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void updateContact_streamsLargePhotoToTheContactsRawContact() throws Exception {
+    // Some contacts have a second raw contact, so later ids no longer line up.
+    long contactId = CONTACTS;
+    long rawContactId = rawContactIdOf(contactId);
+    assertThat(rawContactId).isNotEqualTo(contactId);
+    byte[] photo = new byte[PhotoWriter.INLINE_LIMIT + 1];
+    new Random(7L).nextBytes(photo);
+    HashMap<String, Object> contact = newContact("Zelda", "+1 555 000 1111");
+    contact.put("identifier", String.valueOf(contactId));
+    contact.put("avatar", photo);
+
+    call("updateContact", contact);
+
+    assertThat(provider.displayPhoto(rawContactId)).isEqualTo(photo);
+    assertThat(provider.displayPhoto(contactId)).isNull();
+  }
+
+  @Test
+  public void addContact_reportsARefusedPhotoWithoutFailingTheContact() throws Exception {
+    provider.refusePhotoWrites = true;
+    byte[] photo = new byte[PhotoWriter.INLINE_LIMIT + 1];
+    new Random(7L).nextBytes(photo);
+    HashMap<String, Object> contact = newContact("Zelda", "+1 555 000 1111");
+    contact.put("avatar", photo);
+    RecordingResult added = new RecordingResult();
+
+    plugin.onMethodCall(new MethodCall("addContact", contact), added);
+
+    assertThat(added.awaitError()).contains("photo");
+    HashMap<String, Object> args = readArgs();
+    args.put("query", "Zelda");
+    List<HashMap<String, Object>> contacts = call("getContacts", args);
+    assertThat(contacts).hasSize(1);
+  }
+
+  @Test
+  public void flushMutations_refusedPhotoDoesNotReplayTheCommittedBatch() throws Exception {
+    provider.refusePhotoWrites = true;
+    int batches = provider.batchCount;
+    byte[] photo = new byte[PhotoWriter.INLINE_LIMIT + 1];
+    new Random(7L).nextBytes(photo);
+    HashMap<String, Object> withPhoto = newContact("Zelda", "+1 555 000 1111");
+    withPhoto.put("avatar", photo);
+    RecordingResult photoAdded = new RecordingResult();
+    RecordingResult plainAdded = new RecordingResult();
+
+    plugin.onMethodCall(new MethodCall("enqueueMutation", mutation("add", withPhoto)), photoAdded);
+    plugin.onMethodCall(new MethodCall("enqueueMutation", mutation("add", newContact("Yorick", null))), plainAdded);
+    int written = call("flushMutations", null);
+
+    assertThat(written).isEqualTo(2);
+    assertThat(provider.batchCount).isEqualTo(batches + 1);
+    assertThat(photoAdded.awaitError()).contains("photo");
+    plainAdded.await();
+    for (String name : new String[]{"Zelda", "Yorick"}) {
+      HashMap<String, Object> args = readArgs();
+      args.put("query", name);
+      List<HashMap<String, Object>> contacts = call("getContacts", args);
+      assertThat(contacts).hasSize(1);
+    }
+  }
+
+  @Test
+  public void flushMutations_commitsQueuedWritesInOneBatch() throws Exception {
+    int batches = provider.batchCount;
+    RecordingResult added = new RecordingResult();
+    RecordingResult firstDelete = new RecordingResult();
+    RecordingResult secondDelete = new RecordingResult();
+    HashMap<String, Object> deleted = newContact("Ignored", null);
+    deleted.put("identifier", "5");
+
+    plugin.onMethodCall(new MethodCall("enqueueMutation", mutation("add", newContact("Zelda", "+1 555 000 1111"))), added);
+    plugin.onMethodCall(new MethodCall("enqueueMutation", mutation("delete", deleted)), firstDelete);
+    plugin.onMethodCall(new MethodCall("enqueueMutation", mutation("delete", deleted)), secondDelete);
+    int written = call("flushMutations", null);
+
+    assertThat(written).isEqualTo(2);
+    assertThat(provider.batchCount).isEqualTo(batches + 1);
+    added.await();
+    firstDelete.await();
+    secondDelete.await();
+    HashMap<String, Object> args = readArgs();
+    args.put("query", "Zelda");
+    assertThat((List<?>) call("getContacts", args)).hasSize(1);
+    args = readArgs();
+    args.put("identifiers", Arrays.asList("5", "6"));
+    assertThat(identifiers(call("getContactsByIds", args))).containsExactly("6");
+  }
+
+  @Test
+  public void disposeInstance_commitsQueuedMutations() throws Exception {
+    RecordingResult result = new RecordingResult();
+    plugin.onMethodCall(new MethodCall("enqueueMutation", mutation("add", newContact("Zelda", "+1 555 000 1111"))), result);
+
+    plugin.disposeInstance();
+
+    result.await();
+    try (Cursor cursor = ApplicationProvider.getApplicationContext().getContentResolver().query(
+        ContactsContract.Data.CONTENT_URI, new String[]{ContactsContract.Data._ID},
+        ContactsContract.Data.MIMETYPE + " = ? AND " + ContactsContract.CommonDataKinds.StructuredName.GIVEN_NAME + " = ?",
+        new String[]{ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE, "Zelda"},
+        null)) {
+      assertThat(cursor.getCount()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void enqueueMutation_flushesAfterTheDelay() throws Exception {
+    int batches = provider.batchCount;
+    RecordingResult first = new RecordingResult();
+    RecordingResult second = new RecordingResult();
+    HashMap<String, Object> arguments = mutation("add", newContact("Zelda", "+1 555 000 1111"));
+    arguments.put("flushDelayMillis", 50);
+
+    plugin.onMethodCall(new MethodCall("enqueueMutation", arguments), first);
+    plugin.onMethodCall(new MethodCall("enqueueMutation", mutation("add", newContact("Yusuf", null))), second);
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(50));
+
+    first.await();
+    second.await();
+    assertThat(provider.batchCount).isEqualTo(batches + 1);
+  }
+
+  @Test
+  public void secondEngine_sharesRuntimeAndOutlivesTheFirst() throws Exception {
+    ContactosPlugin background = new ContactosPlugin();
+    background.initInstance(new FakeBinaryMessenger(), ApplicationProvider.getApplicationContext());
+    RecordingResult result = new RecordingResult();
+    plugin.disposeInstance();
+
+    background.onMethodCall(new MethodCall("getContacts", readArgs()), result);
+    List<HashMap<String, Object>> contacts = result.await();
+
+    assertThat(contacts).hasSize(CONTACTS);
+    background.disposeInstance();
+  }
+
+  @Test
+  public void backgroundTaskQueue_writesAndRepliesWithoutMainThread() throws Exception {
+    plugin = new ContactosPlugin();
+    plugin.initInstance(new FakeBinaryMessenger(true), ApplicationProvider.getApplicationContext());
+    int batches = provider.batchCount;
+    RecordingResult result = new RecordingResult();
+
+    plugin.onMethodCall(new MethodCall("addContact", newContact("Yusuf", "+1 555 000 2222")), result);
+
+    // The main looper is never pumped, so the reply has to come from the worker.
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!result.isDone() && System.currentTimeMillis() < deadline) Thread.sleep(2);
+    assertThat(result.isDone()).isTrue();
+    assertThat(result.errorMessage).isNull();
+    assertThat(provider.batchCount).isEqualTo(batches + 1);
+  }
+
+  @Test
+  public void deleteContact_removesContact() throws Exception {
+    HashMap<String, Object> contact = newContact("Ignored", null);
+    contact.put("identifier", "5");
+
+    call("deleteContact", contact);
+
+    HashMap<String, Object> args = readArgs();
+    args.put("identifiers", Arrays.asList("5", "6"));
+    assertThat(identifiers(call("getContactsByIds", args))).containsExactly("6");
+  }
+
+  @Test
+  public void getContacts_withSnapshot_servesSecondReadFromDisk() throws Exception {
+    call("clearSnapshot", null);
+    HashMap<String, Object> args = readArgs();
+    args.put("useSnapshot", true);
+
+    List<HashMap<String, Object>> first = call("getContacts", args);
+    long rowsAfterFirst = rowsScanned();
+    List<HashMap<String, Object>> second = call("getContacts", args);
+
+    assertThat(second).containsExactlyElementsIn(first);
+    assertThat(rowsScanned()).isEqualTo(rowsAfterFirst);
+  }
+
+  @Test
+  public void getContacts_withSnapshot_reconcilesChangesInBackground() throws Exception {
+    call("clearSnapshot", null);
+    HashMap<String, Object> args = readArgs();
+    args.put("useSnapshot", true);
+    call("getContacts", args);
+
+    ApplicationProvider.getApplicationContext().getContentResolver().delete(
+        ContactsContract.RawContacts.CONTENT_URI, ContactsContract.RawContacts.CONTACT_ID + " = ?", new String[]{"9"});
+
+    // Served from the stale snapshot, then reconciled before the next read.
+    assertThat(identifiers(call("getContacts", args))).contains("9");
+    List<HashMap<String, Object>> reconciled = call("getContacts", args);
+    assertThat(identifiers(reconciled)).doesNotContain("9");
+    assertThat(reconciled).hasSize(CONTACTS - 1);
+  }
+
+  @Test
+  public void getContacts_withSnapshot_dropsSnapshotWhenReconcileFails() throws Exception {
+    call("clearSnapshot", null);
+    HashMap<String, Object> args = readArgs();
+    args.put("useSnapshot", true);
+    List<HashMap<String, Object>> first = call("getContacts", args);
+
+    provider.refuseContactsQueries = true;
+    assertThat(call("getContacts", args)).containsExactlyElementsIn(first);
+    provider.refuseContactsQueries = false;
+    long rowsBefore = rowsScanned();
+
+    // Queued behind the failed reconcile, which deleted the snapshot: a full read.
+    assertThat(call("getContacts", args)).containsExactlyElementsIn(first);
+    assertThat(rowsScanned()).isGreaterThan(rowsBefore);
+  }
+
+  @Test
+  public void getContacts_withFilter_restrictsByAccountInProvider() throws Exception {
+    HashSet<Object> expected = new HashSet<>();
+    for (Object[] row : book.dataRows()) {
+      if ("com.google".equals(row[SyntheticAddressBook.COLUMN_ACCOUNT_TYPE])) {
+        expected.add(String.valueOf(row[SyntheticAddressBook.COLUMN_CONTACT_ID]));
+      }
+    }
+    HashMap<String, Object> filter = new HashMap<>();
+    filter.put("accountType", "com.google");
+    HashMap<String, Object> args = readArgs();
+    args.put("filter", filter);
+
+    List<HashMap<String, Object>> contacts = call("getContacts", args);
+
+    assertThat(identifiers(contacts)).containsExactlyElementsIn(expected);
+    assertThat(contacts.size()).isLessThan(CONTACTS);
+  }
+
+  @Test
+  public void getContacts_withFilter_splitsByEmailPresence() throws Exception {
+    HashMap<String, Object> withEmail = new HashMap<>();
+    withEmail.put("hasEmail", true);
+    HashMap<String, Object> withoutEmail = new HashMap<>();
+    withoutEmail.put("hasEmail", false);
+    HashMap<String, Object> args = readArgs();
+
+    args.put("filter", withEmail);
+    List<Object> matching = identifiers(call("getContacts", args));
+    args.put("filter", withoutEmail);
+    List<Object> rest = identifiers(call("getContacts", args));
+
+    assertThat(matching).isNotEmpty();
+    assertThat(rest).containsNoneIn(matching);
+    assertThat(matching.size() + rest.size()).isEqualTo(CONTACTS);
+  }
+
+  @Test
+  public void getContacts_withFilter_resolvesGroupMembership() throws Exception {
+    for (long contactId : new long[]{3, 11}) {
+      ContentValues membership = new ContentValues();
+      membership.put(ContactsContract.Data.RAW_CONTACT_ID, rawContactIdOf(contactId));
+      membership.put(ContactsContract.Data.MIMETYPE, GroupMembership.CONTENT_ITEM_TYPE);
+      membership.put(GroupMembership.GROUP_ROW_ID, 77L);
+      ApplicationProvider.getApplicationContext().getContentResolver()
+          .insert(ContactsContract.Data.CONTENT_URI, membership);
+    }
+    HashMap<String, Object> filter = new HashMap<>();
+    filter.put("groupId", 77);
+    HashMap<String, Object> args = readArgs();
+    args.put("filter", filter);
+    // The first filtered read also probes whether the provider takes subqueries.
+    call("getContacts", args);
+    int queries = provider.queryCount;
+
+    assertThat(identifiers(call("getContacts", args))).containsExactly("3", "11");
+    // Membership is a subquery of the read itself, not a separate ID lookup.
+    assertThat(provider.queryCount - queries).isEqualTo(1);
+  }
+
+  @Test
+  public void getContacts_withFilter_fallsBackWhenTheProviderRejectsSubqueries() throws Exception {
+    for (long contactId : new long[]{3, 11}) {
+      ContentValues membership = new ContentValues();
+      membership.put(ContactsContract.Data.RAW_CONTACT_ID, rawContactIdOf(contactId));
+      membership.put(ContactsContract.Data.MIMETYPE, GroupMembership.CONTENT_ITEM_TYPE);
+      membership.put(GroupMembership.GROUP_ROW_ID, 77L);
+      ApplicationProvider.getApplicationContext().getContentResolver()
+          .insert(ContactsContract.Data.CONTENT_URI, membership);
+    }
+    List<HashMap<String, Object>> contacts = call("getContacts", readArgs());
+    List<Object> expected = new ArrayList<>();
+    for (HashMap<String, Object> contact : contacts) {
+      if (((List<?>) contact.get("emails")).isEmpty()) expected.add(contact.get("identifier"));
+    }
+    provider.rejectSubqueries = true;
+    HashMap<String, Object> withoutEmail = new HashMap<>();
+    withoutEmail.put("hasEmail", false);
+    HashMap<String, Object> args = readArgs();
+    args.put("filter", withoutEmail);
+
+    assertThat(identifiers(call("getContacts", args))).containsExactlyElementsIn(expected);
+    args.put("parallel", true);
+    assertThat(identifiers(call("getContacts", args))).containsExactlyElementsIn(expected);
+    HashMap<String, Object> group = new HashMap<>();
+    group.put("groupId", 77);
+    args.put("filter", group);
+    assertThat(identifiers(call("getContacts", args))).containsExactly("3", "11");
+  }
+
+  @Test
+  public void getContacts_inParallel_matchesSingleQueryRead() throws Exception {
+    List<HashMap<String, Object>> serial = call("getContacts", readArgs());
+    HashMap<String, Object> args = readArgs();
+    args.put("parallel", true);
+
+    List<HashMap<String, Object>> parallel = call("getContacts", args);
+
+    // Contacts spanning several accounts may report the account of a different raw contact.
+    for (HashMap<String, Object> contact : serial) {
+      contact.remove("androidAccountType");
+      contact.remove("androidAccountName");
+    }
+    for (HashMap<String, Object> contact : parallel) {
+      contact.remove("androidAccountType");
+      contact.remove("androidAccountName");
+    }
+    assertThat(parallel).containsExactlyElementsIn(serial);
+  }
+
+  @Test
+  public void getContacts_repliesWithErrorWhenTheProviderFails() throws Exception {
+    provider.failingMimeType = ContactsContract.CommonDataKinds.Email.CONTENT_ITEM_TYPE;
+    RecordingResult result = new RecordingResult();
+
+    plugin.onMethodCall(new MethodCall("getContacts", readArgs()), result);
+
+    assertThat(result.awaitError()).contains("Failing");
+    provider.failingMimeType = null;
+    List<HashMap<String, Object>> contacts = call("getContacts", readArgs());
+    assertThat(contacts).hasSize(CONTACTS);
+  }
+
+  @Test
+  public void getContacts_inParallel_repliesWithErrorWhenOneKindFails() throws Exception {
+    provider.failingMimeType = ContactsContract.CommonDataKinds.Email.CONTENT_ITEM_TYPE;
+    HashMap<String, Object> args = readArgs();
+    args.put("parallel", true);
+    RecordingResult result = new RecordingResult();
+
+    plugin.onMethodCall(new MethodCall("getContacts", args), result);
+
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!result.isDone() && System.currentTimeMillis() < deadline) {
+      shadowOf(Looper.getMainLooper()).idle();
+      Thread.sleep(2);
+    }
+    assertThat(result.isDone()).isTrue();
+    assertThat(result.errorMessage).contains("Failing");
+
+    // The executor survives and serves the next call.
+    provider.failingMimeType = null;
+    List<HashMap<String, Object>> contacts = call("getContacts", args);
+    assertThat(contacts).hasSize(CONTACTS);
+  }
+
+  @Test
+  public void getContacts_inParallel_appliesFilterToEveryKind() throws Exception {
+    HashMap<String, Object> filter = new HashMap<>();
+    filter.put("hasEmail", false);
+    HashMap<String, Object> args = readArgs();
+    args.put("filter", filter);
+    List<Object> serial = identifiers(call("getContacts", args));
+    args.put("parallel", true);
+
+    List<HashMap<String, Object>> parallel = call("getContacts", args);
+
+    assertThat(identifiers(parallel)).containsExactlyElementsIn(serial);
+    for (HashMap<String, Object> contact : parallel) {
+      assertThat((List<?>) contact.get("emails")).isEmpty();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void getContacts_withStringDictionary_decodesToPlainRead() throws Exception {
+    List<HashMap<String, Object>> plain = call("getContacts", readArgs());
+    HashMap<String, Object> args = readArgs();
+    args.put("stringDictionary", true);
+
+    HashMap<String, Object> response = call("getContacts", args);
+
+    List<String> strings = (List<String>) response.get("strings");
+    List<HashMap<String, Object>> contacts = (List<HashMap<String, Object>>) response.get("contacts");
+    assertThat(contacts).hasSize(plain.size());
+    assertThat(strings.size()).isLessThan(CONTACTS);
+    for (int i = 0; i < contacts.size(); i++) {
+      HashMap<String, Object> encoded = contacts.get(i);
+      Object accountType = encoded.get("androidAccountType");
+      assertThat(accountType == null ? null : strings.get((Integer) accountType))
+          .isEqualTo(plain.get(i).get("androidAccountType"));
+      Object company = encoded.get("company");
+      assertThat(company == null ? null : strings.get((Integer) company)).isEqualTo(plain.get(i).get("company"));
+    }
+  }
+
+  @Test
+  public void exportVCards_streamsEveryContactToFile() throws Exception {
+    File file = File.createTempFile("contacts", ".vcf");
+    file.deleteOnExit();
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("path", file.getPath());
+    args.put("version", "4.0");
+    args.put("withAvatars", true);
+
+    int written = call("exportVCards", args);
+
+    String vcards = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    assertThat(written).isEqualTo(CONTACTS);
+    assertThat(vcards.split("BEGIN:VCARD", -1).length - 1).isEqualTo(CONTACTS);
+    assertThat(vcards).contains("VERSION:4.0");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void importVCards_batchesWritesAndReportsBadCards() throws Exception {
+    StringBuilder vcards = new StringBuilder();
+    for (int i = 0; i < 120; i++) {
+      vcards.append("BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Imported ").append(i)
+          .append("\r\nN:").append(i).append(";Imported;;;\r\nTEL;TYPE=CELL:+1 555 ").append(1000 + i)
+          .append("\r\nEND:VCARD\r\n");
+      if (i == 60) vcards.append("BEGIN:VCARD\r\nVERSION:3.0\r\nbroken\r\nEND:VCARD\r\n");
+    }
+    File file = File.createTempFile("import", ".vcf");
+    file.deleteOnExit();
+    Files.write(file.toPath(), vcards.toString().getBytes(StandardCharsets.UTF_8));
+    int batches = provider.batchCount;
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("path", file.getPath());
+
+    HashMap<String, Object> summary = call("importVCards", args);
+
+    assertThat(summary.get("imported")).isEqualTo(120);
+    assertThat(summary.get("failed")).isEqualTo(1);
+    List<HashMap<String, Object>> errors = (List<HashMap<String, Object>>) summary.get("errors");
+    assertThat(errors.get(0).get("card")).isEqualTo(62);
+    // Seven operations per card, committed in batches of at most 400 operations.
+    assertThat(provider.batchCount - batches).isEqualTo(3);
+    HashMap<String, Object> query = readArgs();
+    query.put("query", "Imported");
+    assertThat((List<?>) call("getContacts", query)).hasSize(120);
+  }
+
+  @Test
+  public void importVCards_replaysAFailedBatchWithoutDuplicates() throws Exception {
+    StringBuilder vcards = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      String given = i == 12 ? "Rejected" : "Imported";
+      vcards.append("BEGIN:VCARD\r\nVERSION:3.0\r\nFN:").append(given).append(' ').append(i)
+          .append("\r\nN:").append(i).append(';').append(given).append(";;;\r\nEND:VCARD\r\n");
+    }
+    File file = File.createTempFile("import", ".vcf");
+    file.deleteOnExit();
+    Files.write(file.toPath(), vcards.toString().getBytes(StandardCharsets.UTF_8));
+    provider.rejectedGivenName = "Rejected";
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("path", file.getPath());
+
+    HashMap<String, Object> summary = call("importVCards", args);
+
+    assertThat(summary.get("imported")).isEqualTo(19);
+    assertThat(summary.get("failed")).isEqualTo(1);
+    HashMap<String, Object> query = readArgs();
+    query.put("query", "Imported");
+    assertThat((List<?>) call("getContacts", query)).hasSize(19);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void importVCards_streamsLargePhotosAfterTheBatch() throws Exception {
+    byte[] photo = new byte[PhotoWriter.INLINE_LIMIT + 1];
+    new Random(7L).nextBytes(photo);
+    File file = File.createTempFile("import", ".vcf");
+    file.deleteOnExit();
+    Files.write(file.toPath(), ("BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Imported 1\r\nN:1;Imported;;;\r\n"
+        + "PHOTO;ENCODING=b;TYPE=JPEG:" + Base64.getEncoder().encodeToString(photo) + "\r\n"
+        + "END:VCARD\r\n").getBytes(StandardCharsets.UTF_8));
+    int batches = provider.batchCount;
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("path", file.getPath());
+
+    HashMap<String, Object> summary = call("importVCards", args);
+
+    assertThat(summary.get("imported")).isEqualTo(1);
+    assertThat((List<?>) summary.get("errors")).isEmpty();
+    assertThat(provider.batchCount - batches).isEqualTo(1);
+    HashMap<String, Object> query = readArgs();
+    query.put("query", "Imported");
+    List<HashMap<String, Object>> contacts = call("getContacts", query);
+    assertThat(contacts).hasSize(1);
+    // The fake gives a new raw contact the same ID as its contact.
+    long rawContactId = Long.parseLong((String) contacts.get(0).get("identifier"));
+    assertThat(provider.displayPhoto(rawContactId)).isEqualTo(photo);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void importVCards_movesTheVersionSeenByVersionedReads() throws Exception {
+    HashMap<String, Object> args = readArgs();
+    args.put("versioned", true);
+    long version = (Long) ((HashMap<String, Object>) call("getContacts", args)).get("version");
+    File file = File.createTempFile("import", ".vcf");
+    file.deleteOnExit();
+    Files.write(file.toPath(), ("BEGIN:VCARD\r\nVERSION:3.0\r\nFN:Imported 1\r\nN:1;Imported;;;\r\n"
+        + "END:VCARD\r\n").getBytes(StandardCharsets.UTF_8));
+    HashMap<String, Object> importArgs = new HashMap<>();
+    importArgs.put("path", file.getPath());
+    call("importVCards", importArgs);
+
+    args.put("sinceVersion", version);
+    HashMap<String, Object> diff = call("getContacts", args);
+
+    assertThat(diff.get("unchanged")).isNull();
+    assertThat((Long) diff.get("version")).isGreaterThan(version);
+    List<HashMap<String, Object>> added = (List<HashMap<String, Object>>) diff.get("added");
+    assertThat(added).hasSize(1);
+    assertThat(added.get(0).get("givenName")).isEqualTo("Imported");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void getStats_withReset_startsANewWindow() throws Exception {
+    call("getContacts", readArgs());
+    HashMap<String, Object> reset = new HashMap<>();
+    reset.put("reset", true);
+
+    HashMap<String, Object> stats = call("getStats", reset);
+
+    HashMap<String, Object> methods = (HashMap<String, Object>) stats.get("methods");
+    HashMap<String, Object> getContacts = (HashMap<String, Object>) methods.get("getContacts");
+    assertThat(getContacts.get("calls")).isEqualTo(1L);
+    assertThat(((HashMap<String, Object>) getContacts.get("latency")).get("count")).isEqualTo(1L);
+    assertThat((HashMap<String, Object>) getContacts.get("stages")).containsKey("query");
+    assertThat((HashMap<String, Object>) ((HashMap<String, Object>) call("getStats", null)).get("methods")).isEmpty();
+
+    call("getContacts", readArgs());
+    call("resetStats", null);
+    assertThat((HashMap<String, Object>) ((HashMap<String, Object>) call("getStats", null)).get("methods")).isEmpty();
+  }
+
+  private <T> T call(String method, Object arguments) throws InterruptedException {
+    RecordingResult result = new RecordingResult();
+    plugin.onMethodCall(new MethodCall(method, arguments), result);
+    return result.await();
+  }
+
+  @SuppressWarnings("unchecked")
+  private long rowsScanned() throws InterruptedException {
+    HashMap<String, Object> stats = call("getStats", null);
+    HashMap<String, Object> methods = (HashMap<String, Object>) stats.get("methods");
+    return (Long) ((HashMap<String, Object>) methods.get("getContacts")).get("rowsScanned");
+  }
+
+  @SuppressWarnings("unchecked")
+  private long rowsScannedBy(String method) throws InterruptedException {
+    HashMap<String, Object> stats = call("getStats", null);
+    HashMap<String, Object> methods = (HashMap<String, Object>) stats.get("methods");
+    HashMap<String, Object> counters = (HashMap<String, Object>) methods.get(method);
+    return counters != null ? (Long) counters.get("rowsScanned") : 0;
+  }
+
+  private long rawContactIdOf(long contactId) {
+    for (Object[] row : book.dataRows()) {
+      if ((Long) row[SyntheticAddressBook.COLUMN_CONTACT_ID] == contactId) {
+        return (Long) row[SyntheticAddressBook.COLUMN_RAW_CONTACT_ID];
+      }
+    }
+    throw new IllegalArgumentException("Unknown contact " + contactId);
+  }
+
+  private List<String> contactsWithPhoto() {
+    LinkedHashSet<String> ids = new LinkedHashSet<>();
+    for (Object[] row : book.dataRows()) {
+      if (ContactsContract.CommonDataKinds.Photo.CONTENT_ITEM_TYPE.equals(row[SyntheticAddressBook.COLUMN_MIMETYPE])) {
+        ids.add(String.valueOf(row[SyntheticAddressBook.COLUMN_CONTACT_ID]));
+      }
+    }
+    return new ArrayList<>(ids);
+  }
+
+  private static HashMap<String, Object> readArgs() {
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("query", null);
+    args.put("withThumbnails", false);
+    args.put("photoHighResolution", false);
+    args.put("orderByGivenName", false);
+    args.put("androidLocalizedLabels", false);
+    return args;
+  }
+
+  private static HashMap<String, Object> newContact(String givenName, String phone) {
+    HashMap<String, Object> contact = new HashMap<>();
+    contact.put("givenName", givenName);
+    contact.put("avatar", new byte[0]);
+    ArrayList<HashMap<String, String>> phones = new ArrayList<>();
+    if (phone != null) {
+      HashMap<String, String> item = new HashMap<>();
+      item.put("label", "mobile");
+      item.put("value", phone);
+      item.put("type", "2");
+      phones.add(item);
+    }
+    contact.put("phones", phones);
+    return contact;
+  }
+
+  private static HashMap<String, Object> mutation(String type, HashMap<String, Object> contact) {
+    HashMap<String, Object> arguments = new HashMap<>();
+    arguments.put("type", type);
+    arguments.put("contact", contact);
+    return arguments;
+  }
+
+  private static List<Object> identifiers(List<HashMap<String, Object>> contacts) {
+    ArrayList<Object> ids = new ArrayList<>();
+    for (HashMap<String, Object> contact : contacts) ids.add(contact.get("identifier"));
+    return ids;
+  }
+}
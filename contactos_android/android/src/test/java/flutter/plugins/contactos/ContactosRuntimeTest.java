@@ -0,0 +1,51 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ContactosRuntimeTest {
+
+  @Test
+  public void acquire_sharesOneRuntimeUntilTheLastRelease() {
+    Context context = ApplicationProvider.getApplicationContext();
+    ContactosRuntime first = ContactosRuntime.acquire(context);
+    ContactosRuntime second = ContactosRuntime.acquire(context);
+
+    assertThat(second).isSameInstanceAs(first);
+    ContactosRuntime.release(first);
+    assertThat(second.isShutdown()).isFalse();
+    ContactosRuntime.release(second);
+    assertThat(first.isShutdown()).isTrue();
+    assertThat(first.fanOutExecutor.isShutdown()).isTrue();
+
+    ContactosRuntime next = ContactosRuntime.acquire(context);
+    assertThat(next).isNotSameInstanceAs(first);
+    ContactosRuntime.release(next);
+  }
+
+  @Test
+  public void contactsObserver_registersOncePerListenerSet() {
+    ContactosRuntime runtime = ContactosRuntime.acquire(ApplicationProvider.getApplicationContext());
+    Runnable a = () -> { };
+    Runnable b = () -> { };
+
+    runtime.contactsObserver.add(a);
+    runtime.contactsObserver.add(b);
+    runtime.contactsObserver.add(a);
+    assertThat(runtime.contactsObserver.size()).isEqualTo(2);
+    runtime.contactsObserver.remove(a);
+    runtime.contactsObserver.remove(b);
+    assertThat(runtime.contactsObserver.size()).isEqualTo(0);
+    ContactosRuntime.release(runtime);
+  }
+}
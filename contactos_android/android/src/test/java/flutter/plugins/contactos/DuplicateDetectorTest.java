@@ -0,0 +1,84 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+public class DuplicateDetectorTest {
+
+  @Test
+  public void phoneKey_ignoresFormattingAndCountryPrefix() {
+    assertThat(DuplicateDetector.phoneKey("+1 (555) 010-0123")).isEqualTo(DuplicateDetector.phoneKey("555 010 0123"));
+    assertThat(DuplicateDetector.phoneKey("112")).isNull();
+  }
+
+  @Test
+  public void nameKey_foldsCaseAccentsAndOrder() {
+    assertThat(DuplicateDetector.nameKey(named("José", "Müller")))
+        .isEqualTo(DuplicateDetector.nameKey(named("MULLER", "jose")));
+  }
+
+  @Test
+  public void find_groupsContactsSharingKeys() {
+    Contact a = named("Jane", "Doe");
+    a.addPhone(new Item("mobile", "+1 555 010 0123", 2));
+    Contact b = named("J.", "Doe");
+    b.addPhone(new Item("home", "555-010-0123", 1));
+    b.addEmail(new Item("work", "jane@example.com", 2));
+    Contact c = named("Janet", "Roe");
+    c.addEmail(new Item("home", "JANE@example.com ", 1));
+    Contact unrelated = named("Max", "Power");
+    unrelated.addPhone(new Item("mobile", "+1 555 999 0000", 2));
+
+    List<HashMap<String, Object>> groups = DuplicateDetector.find(Arrays.asList(a, b, c, unrelated), 0.5);
+
+    assertThat(groups).hasSize(1);
+    assertThat((List<?>) groups.get(0).get("identifiers")).containsExactly("Jane Doe", "J. Doe", "Janet Roe");
+    assertThat((List<?>) groups.get(0).get("reasons")).containsExactly("phone", "email");
+  }
+
+  @Test
+  public void find_combinesReasonsIntoHigherScore() {
+    Contact a = named("Jane", "Doe");
+    a.addPhone(new Item("mobile", "555 010 0123", 2));
+    Contact b = named("Doe", "Jane");
+    b.addPhone(new Item("mobile", "555 010 0123", 2));
+
+    List<HashMap<String, Object>> groups = DuplicateDetector.find(Arrays.asList(a, b), 0.5);
+
+    assertThat((Double) groups.get(0).get("score")).isGreaterThan(DuplicateDetector.score(DuplicateDetector.REASON_PHONE));
+  }
+
+  @Test
+  public void find_respectsMinScore() {
+    Contact a = named("Jane", "Doe");
+    Contact b = named("Jane", "Doe");
+
+    assertThat(DuplicateDetector.find(Arrays.asList(a, b), 0.5)).hasSize(1);
+    assertThat(DuplicateDetector.find(Arrays.asList(a, b), 0.9)).isEmpty();
+  }
+
+  @Test
+  public void find_skipsOversizedBuckets() {
+    List<Contact> contacts = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Contact contact = named("Caller", String.valueOf(i));
+      contact.addPhone(new Item("work", "+1 800 555 0000", 3));
+      contacts.add(contact);
+    }
+
+    assertThat(DuplicateDetector.find(contacts, 0.5)).isEmpty();
+  }
+
+  private static Contact named(String given, String family) {
+    Contact contact = new Contact(given + " " + family);
+    contact.givenName = given;
+    contact.familyName = family;
+    return contact;
+  }
+}
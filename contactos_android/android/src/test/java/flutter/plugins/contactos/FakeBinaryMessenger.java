@@ -0,0 +1,47 @@
+package flutter.plugins.contactos;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import io.flutter.plugin.common.BinaryMessenger;
+
+/** Messenger that only records handlers; tests call the plugin's handlers directly. */
+final class FakeBinaryMessenger implements BinaryMessenger {
+
+  final HashMap<String, BinaryMessageHandler> handlers = new HashMap<>();
+  /** Whether {@link #makeBackgroundTaskQueue()} succeeds, as on current embeddings. */
+  final boolean supportsTaskQueues;
+
+  FakeBinaryMessenger() {
+    this(false);
+  }
+
+  FakeBinaryMessenger(boolean supportsTaskQueues) {
+    this.supportsTaskQueues = supportsTaskQueues;
+  }
+
+  @Override
+  public TaskQueue makeBackgroundTaskQueue() {
+    if (!supportsTaskQueues) throw new UnsupportedOperationException("makeBackgroundTaskQueue not implemented.");
+    return new TaskQueue() {
+    };
+  }
+
+  @Override
+  public void send(String channel, ByteBuffer message) {
+  }
+
+  @Override
+  public void send(String channel, ByteBuffer message, BinaryReply callback) {
+  }
+
+  @Override
+  public void setMessageHandler(String channel, BinaryMessageHandler handler) {
+    handlers.put(channel, handler);
+  }
+
+  @Override
+  public void setMessageHandler(String channel, BinaryMessageHandler handler, TaskQueue taskQueue) {
+    handlers.put(channel, handler);
+  }
+}
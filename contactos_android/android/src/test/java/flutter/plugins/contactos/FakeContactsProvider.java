@@ -0,0 +1,508 @@
+package flutter.plugins.contactos;
+
+import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.content.UriMatcher;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.BaseColumns;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.CommonDataKinds;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory stand-in for the system contacts provider, registered under Robolectric with
+ * {@code Robolectric.buildContentProvider(FakeContactsProvider.class).create(ContactsContract.AUTHORITY)}.
+ *
+ * <p>It answers the URIs the plugin touches: the {@code Data} view, {@code Contacts} and their
+ * photo directories, {@code PhoneLookup}, {@code DeletedContacts} and {@code RawContacts}, and
+ * runs {@code applyBatch} in a single SQLite transaction. Aggregation is simplified: a contact is
+ * the set of raw contacts sharing a {@code contact_id}.
+ */
+public class FakeContactsProvider extends ContentProvider {
+
+  private static final int DATA = 1;
+  private static final int RAW_CONTACTS = 2;
+  private static final int RAW_CONTACT = 3;
+  private static final int CONTACTS = 4;
+  private static final int CONTACT = 5;
+  private static final int CONTACT_PHOTO = 6;
+  private static final int CONTACT_DISPLAY_PHOTO = 7;
+  private static final int PHONE_LOOKUP = 8;
+  private static final int DELETED_CONTACTS = 9;
+  private static final int RAW_CONTACT_DISPLAY_PHOTO = 10;
+  private static final int CONTACTS_STREQUENT = 11;
+
+  private static final UriMatcher MATCHER = new UriMatcher(UriMatcher.NO_MATCH);
+
+  static {
+    String authority = ContactsContract.AUTHORITY;
+    MATCHER.addURI(authority, "data", DATA);
+    MATCHER.addURI(authority, "raw_contacts", RAW_CONTACTS);
+    MATCHER.addURI(authority, "raw_contacts/#", RAW_CONTACT);
+    MATCHER.addURI(authority, "contacts", CONTACTS);
+    MATCHER.addURI(authority, "contacts/#", CONTACT);
+    MATCHER.addURI(authority, "contacts/strequent", CONTACTS_STREQUENT);
+    MATCHER.addURI(authority, "contacts/#/photo", CONTACT_PHOTO);
+    MATCHER.addURI(authority, "contacts/#/display_photo", CONTACT_DISPLAY_PHOTO);
+    MATCHER.addURI(authority, "phone_lookup/*", PHONE_LOOKUP);
+    MATCHER.addURI(authority, "deleted_contacts", DELETED_CONTACTS);
+    MATCHER.addURI(authority, "raw_contacts/#/display_photo", RAW_CONTACT_DISPLAY_PHOTO);
+  }
+
+  private static final String SCHEMA =
+      "CREATE TABLE raw_contacts ("
+          + "_id INTEGER PRIMARY KEY AUTOINCREMENT, contact_id INTEGER, account_type TEXT, account_name TEXT,"
+          + " starred INTEGER NOT NULL DEFAULT 0, times_contacted INTEGER NOT NULL DEFAULT 0,"
+          + " last_time_contacted INTEGER, last_updated INTEGER NOT NULL DEFAULT 0);"
+          + "CREATE INDEX raw_contacts_contact_id ON raw_contacts (contact_id);"
+          + "CREATE TABLE data ("
+          + "_id INTEGER PRIMARY KEY AUTOINCREMENT, raw_contact_id INTEGER NOT NULL, mimetype TEXT NOT NULL,"
+          + " is_primary INTEGER NOT NULL DEFAULT 0, is_super_primary INTEGER NOT NULL DEFAULT 0,"
+          + " data_version INTEGER NOT NULL DEFAULT 0,"
+          + " data1 TEXT, data2 TEXT, data3 TEXT, data4 TEXT, data5 TEXT, data6 TEXT, data7 TEXT, data8 TEXT,"
+          + " data9 TEXT, data10 TEXT, data11 TEXT, data12 TEXT, data13 TEXT, data14 TEXT, data15 BLOB);"
+          + "CREATE INDEX data_raw_contact_id ON data (raw_contact_id, mimetype);"
+          + "CREATE TABLE contacts ("
+          + "_id INTEGER PRIMARY KEY, display_name TEXT, starred INTEGER NOT NULL DEFAULT 0,"
+          + " has_phone_number INTEGER NOT NULL DEFAULT 0, contact_last_updated_timestamp INTEGER,"
+          + " times_contacted INTEGER NOT NULL DEFAULT 0, last_time_contacted INTEGER,"
+          + " photo_id INTEGER, photo_file_id INTEGER, lookup TEXT);"
+          + "CREATE TABLE deleted_contacts (contact_id INTEGER PRIMARY KEY, contact_deleted_timestamp INTEGER NOT NULL);"
+          + "CREATE VIEW view_data AS SELECT d.*, r.contact_id AS contact_id, r.account_type AS account_type,"
+          + " r.account_name AS account_name, c.display_name AS display_name, c.starred AS starred,"
+          + " c.has_phone_number AS has_phone_number,"
+          + " c.contact_last_updated_timestamp AS contact_last_updated_timestamp, c.photo_id AS photo_id,"
+          + " c.photo_file_id AS photo_file_id, c.lookup AS lookup"
+          + " FROM data d JOIN raw_contacts r ON r._id = d.raw_contact_id JOIN contacts c ON c._id = r.contact_id;";
+
+  // Like the real provider, every rewrite of a data row bumps its data_version. Kept out of
+  // SCHEMA because the trigger body contains a statement separator.
+  private static final String DATA_VERSION_TRIGGER =
+      "CREATE TRIGGER data_version AFTER UPDATE ON data WHEN NEW.data_version = OLD.data_version"
+          + " BEGIN UPDATE data SET data_version = OLD.data_version + 1 WHERE _id = NEW._id; END";
+
+  // Recomputes the aggregated contacts rows for the raw contacts matched by the trailing filter.
+  private static final String REFRESH_CONTACTS =
+      "INSERT OR REPLACE INTO contacts (_id, display_name, starred, has_phone_number,"
+          + " contact_last_updated_timestamp, times_contacted, last_time_contacted, photo_id, lookup)"
+          + " SELECT r.contact_id,"
+          + " (SELECT COALESCE(n.data1, TRIM(COALESCE(n.data2, '') || ' ' || COALESCE(n.data3, '')))"
+          + "   FROM data n JOIN raw_contacts nr ON nr._id = n.raw_contact_id"
+          + "   WHERE nr.contact_id = r.contact_id AND n.mimetype = '" + CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE + "'"
+          + "   ORDER BY n._id LIMIT 1),"
+          + " MAX(r.starred),"
+          + " EXISTS (SELECT 1 FROM data p JOIN raw_contacts pr ON pr._id = p.raw_contact_id"
+          + "   WHERE pr.contact_id = r.contact_id AND p.mimetype = '" + CommonDataKinds.Phone.CONTENT_ITEM_TYPE + "'),"
+          + " MAX(r.last_updated), MAX(r.times_contacted), MAX(r.last_time_contacted),"
+          + " (SELECT ph._id FROM data ph JOIN raw_contacts phr ON phr._id = ph.raw_contact_id"
+          + "   WHERE phr.contact_id = r.contact_id AND ph.mimetype = '" + CommonDataKinds.Photo.CONTENT_ITEM_TYPE + "'"
+          + "   AND ph.data15 IS NOT NULL ORDER BY ph.is_super_primary DESC, ph._id LIMIT 1),"
+          + " 'fake-' || r.contact_id"
+          + " FROM raw_contacts r WHERE ";
+
+  private SQLiteDatabase db;
+  private final Set<Long> dirtyContacts = new LinkedHashSet<>();
+  private boolean inBatch;
+  private long clock = 1_700_000_000_000L;
+
+  /** Number of {@code applyBatch} calls served, for asserting how writes are grouped. */
+  int batchCount;
+  /** Number of operations in the most recent {@code applyBatch} call. */
+  int lastBatchSize;
+  /** Number of queries served, for asserting round trips. */
+  int queryCount;
+  /** Data inserts with this given name fail, for exercising batch rollback. */
+  String rejectedGivenName;
+  /** Data queries for this mime type fail, for exercising error replies. */
+  String failingMimeType;
+  /** Data selections with a subquery are refused, as a strict selection grammar would. */
+  boolean rejectSubqueries;
+  /** Display photo writes are refused, as a provider without write access would. */
+  boolean refusePhotoWrites;
+  /** Contacts table queries fail, as they would for a provider that went away. */
+  boolean refuseContactsQueries;
+
+  @Override
+  public boolean onCreate() {
+    db = SQLiteDatabase.create(null);
+    for (String statement : SCHEMA.split(";")) {
+      if (!statement.trim().isEmpty()) db.execSQL(statement);
+    }
+    db.execSQL(DATA_VERSION_TRIGGER);
+    return true;
+  }
+
+  /** Bulk-loads a generated address book; row and contact IDs are kept as generated. */
+  void load(SyntheticAddressBook book) {
+    db.beginTransaction();
+    try {
+      Set<Long> rawContacts = new LinkedHashSet<>();
+      for (Object[] row : book.dataRows()) {
+        long rawContactId = (Long) row[SyntheticAddressBook.COLUMN_RAW_CONTACT_ID];
+        if (rawContacts.add(rawContactId)) {
+          ContentValues raw = new ContentValues();
+          raw.put(BaseColumns._ID, rawContactId);
+          raw.put(ContactsContract.RawContacts.CONTACT_ID, (Long) row[SyntheticAddressBook.COLUMN_CONTACT_ID]);
+          raw.put(ContactsContract.RawContacts.ACCOUNT_TYPE, (String) row[SyntheticAddressBook.COLUMN_ACCOUNT_TYPE]);
+          raw.put(ContactsContract.RawContacts.ACCOUNT_NAME, (String) row[SyntheticAddressBook.COLUMN_ACCOUNT_NAME]);
+          raw.put("last_updated", clock);
+          db.insertOrThrow("raw_contacts", null, raw);
+        }
+        ContentValues data = new ContentValues();
+        data.put(BaseColumns._ID, (Long) row[SyntheticAddressBook.COLUMN_DATA_ID]);
+        data.put(ContactsContract.Data.RAW_CONTACT_ID, rawContactId);
+        data.put(ContactsContract.Data.MIMETYPE, (String) row[SyntheticAddressBook.COLUMN_MIMETYPE]);
+        for (int i = 0; i < 10; i++) {
+          Object value = row[SyntheticAddressBook.COLUMN_DATA1 + i];
+          if (value != null) data.put("data" + (i + 1), value.toString());
+        }
+        byte[] photo = (byte[]) row[SyntheticAddressBook.COLUMN_DATA15];
+        if (photo != null) {
+          data.put("data15", photo);
+          data.put(ContactsContract.Data.IS_SUPER_PRIMARY, 1);
+        }
+        db.insertOrThrow("data", null, data);
+      }
+      db.execSQL(REFRESH_CONTACTS + "1 GROUP BY r.contact_id");
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+  }
+
+  /** Marks every raw contact of the given contact as modified now. */
+  void touch(long contactId) {
+    db.execSQL("UPDATE raw_contacts SET last_updated = ? WHERE contact_id = ?", new Object[]{tick(), contactId});
+    markDirty(contactId);
+    commitIfIdle();
+  }
+
+  /** Stars or unstars every raw contact of the given contact and records it as contacted. */
+  void star(long contactId, boolean starred, int timesContacted) {
+    db.execSQL("UPDATE raw_contacts SET starred = ?, times_contacted = ?, last_updated = ? WHERE contact_id = ?",
+        new Object[]{starred ? 1 : 0, timesContacted, tick(), contactId});
+    markDirty(contactId);
+    commitIfIdle();
+  }
+
+  @Override
+  public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+    queryCount++;
+    switch (MATCHER.match(uri)) {
+      case DATA:
+        if (failingMimeType != null && selectionArgs != null && Arrays.asList(selectionArgs).contains(failingMimeType)) {
+          throw new IllegalStateException("Failing " + failingMimeType);
+        }
+        if (rejectSubqueries && selection != null && selection.contains("SELECT")) {
+          throw new IllegalArgumentException("Invalid token SELECT");
+        }
+        return db.query("view_data", projection, selection, selectionArgs, null, null, sortOrder);
+      case CONTACTS:
+        if (refuseContactsQueries) throw new SecurityException("Contacts queries refused");
+        return db.query("contacts", projection, selection, selectionArgs, null, null, sortOrder);
+      case CONTACTS_STREQUENT:
+        // Starred contacts by name, then the rest by how often they were contacted.
+        return db.query("contacts", projection, and("starred = 1 OR times_contacted > 0", selection),
+            selectionArgs, null, null, "starred DESC, CASE WHEN starred = 1 THEN display_name END,"
+                + " times_contacted DESC, _id");
+      case CONTACT:
+        return db.query("contacts", projection, and(BaseColumns._ID + " = " + ContentUris.parseId(uri), selection),
+            selectionArgs, null, null, sortOrder);
+      case CONTACT_PHOTO: {
+        long contactId = Long.parseLong(uri.getPathSegments().get(1));
+        return db.query("view_data", projection,
+            "contact_id = ? AND mimetype = ? AND data15 IS NOT NULL",
+            new String[]{String.valueOf(contactId), CommonDataKinds.Photo.CONTENT_ITEM_TYPE},
+            null, null, "is_super_primary DESC, _id", "1");
+      }
+      case PHONE_LOOKUP:
+        return phoneLookup(uri.getLastPathSegment(), projection);
+      case DELETED_CONTACTS:
+        return db.query("deleted_contacts", projection, selection, selectionArgs, null, null, sortOrder);
+      case RAW_CONTACTS:
+        return db.query("raw_contacts", projection, selection, selectionArgs, null, null, sortOrder);
+      default:
+        throw new IllegalArgumentException("Unsupported URI: " + uri);
+    }
+  }
+
+  @Override
+  public String getType(Uri uri) {
+    return null;
+  }
+
+  @Override
+  public Uri insert(Uri uri, ContentValues values) {
+    switch (MATCHER.match(uri)) {
+      case RAW_CONTACTS: {
+        ContentValues raw = new ContentValues(values);
+        raw.put("last_updated", tick());
+        long id = db.insertOrThrow("raw_contacts", null, raw);
+        if (!values.containsKey(ContactsContract.RawContacts.CONTACT_ID)) {
+          db.execSQL("UPDATE raw_contacts SET contact_id = _id WHERE _id = ?", new Object[]{id});
+        }
+        markDirty(contactIdOfRaw(id));
+        commitIfIdle();
+        return ContentUris.withAppendedId(ContactsContract.RawContacts.CONTENT_URI, id);
+      }
+      case DATA: {
+        if (rejectedGivenName != null && rejectedGivenName.equals(values.getAsString(CommonDataKinds.StructuredName.GIVEN_NAME))
+            && CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE.equals(values.getAsString(ContactsContract.Data.MIMETYPE))) {
+          throw new IllegalArgumentException("Rejected " + rejectedGivenName);
+        }
+        long id = db.insertOrThrow("data", null, values);
+        Long rawContactId = values.getAsLong(ContactsContract.Data.RAW_CONTACT_ID);
+        touchRaw(rawContactId);
+        commitIfIdle();
+        return ContentUris.withAppendedId(ContactsContract.Data.CONTENT_URI, id);
+      }
+      default:
+        throw new IllegalArgumentException("Unsupported URI: " + uri);
+    }
+  }
+
+  @Override
+  public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+    switch (MATCHER.match(uri)) {
+      case DATA: {
+        List<Long> rawIds = rawContactsOfData(selection, selectionArgs);
+        int count = db.update("data", values, "_id IN (SELECT _id FROM view_data" + where(selection) + ")",
+            selectionArgs);
+        for (long rawId : rawIds) touchRaw(rawId);
+        commitIfIdle();
+        return count;
+      }
+      case RAW_CONTACTS: {
+        int count = db.update("raw_contacts", values, selection, selectionArgs);
+        touchAllDirty(selection, selectionArgs);
+        commitIfIdle();
+        return count;
+      }
+      default:
+        throw new IllegalArgumentException("Unsupported URI: " + uri);
+    }
+  }
+
+  @Override
+  public int delete(Uri uri, String selection, String[] selectionArgs) {
+    switch (MATCHER.match(uri)) {
+      case DATA: {
+        List<Long> rawIds = rawContactsOfData(selection, selectionArgs);
+        int count = db.delete("data", "_id IN (SELECT _id FROM view_data" + where(selection) + ")", selectionArgs);
+        for (long rawId : rawIds) touchRaw(rawId);
+        commitIfIdle();
+        return count;
+      }
+      case RAW_CONTACTS:
+      case RAW_CONTACT: {
+        String rawSelection = MATCHER.match(uri) == RAW_CONTACT
+            ? and(BaseColumns._ID + " = " + ContentUris.parseId(uri), selection) : selection;
+        ArrayList<Long> rawIds = new ArrayList<>();
+        try (Cursor cursor = db.query("raw_contacts", new String[]{BaseColumns._ID, "contact_id"},
+            rawSelection, selectionArgs, null, null, null)) {
+          while (cursor.moveToNext()) {
+            rawIds.add(cursor.getLong(0));
+            markDirty(cursor.getLong(1));
+          }
+        }
+        for (long rawId : rawIds) {
+          db.delete("data", "raw_contact_id = ?", new String[]{String.valueOf(rawId)});
+          db.delete("raw_contacts", "_id = ?", new String[]{String.valueOf(rawId)});
+        }
+        commitIfIdle();
+        return rawIds.size();
+      }
+      default:
+        throw new IllegalArgumentException("Unsupported URI: " + uri);
+    }
+  }
+
+  @Override
+  public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+      throws OperationApplicationException {
+    batchCount++;
+    lastBatchSize = operations.size();
+    db.beginTransaction();
+    inBatch = true;
+    try {
+      ContentProviderResult[] results = super.applyBatch(operations);
+      refreshDirty();
+      db.setTransactionSuccessful();
+      return results;
+    } finally {
+      // Rolled back writes leave nothing to refresh.
+      dirtyContacts.clear();
+      inBatch = false;
+      db.endTransaction();
+      notifyChanged();
+    }
+  }
+
+  @Override
+  public AssetFileDescriptor openAssetFile(Uri uri, String mode) throws FileNotFoundException {
+    if (MATCHER.match(uri) == RAW_CONTACT_DISPLAY_PHOTO && mode.contains("w")) {
+      if (refusePhotoWrites) throw new SecurityException("Photo writes refused for " + uri);
+      // Kept as a plain file; unlike the real provider no thumbnail row is derived from it.
+      ParcelFileDescriptor descriptor = ParcelFileDescriptor.open(
+          displayPhotoFile(Long.parseLong(uri.getPathSegments().get(1))),
+          ParcelFileDescriptor.MODE_READ_WRITE | ParcelFileDescriptor.MODE_CREATE | ParcelFileDescriptor.MODE_TRUNCATE);
+      return new AssetFileDescriptor(descriptor, 0, AssetFileDescriptor.UNKNOWN_LENGTH);
+    }
+    // Reads fall back to the Data thumbnail, as for a contact without a display photo.
+    throw new FileNotFoundException("No display photo for " + uri);
+  }
+
+  /** Bytes streamed to a raw contact's display photo, or null if none was written. */
+  byte[] displayPhoto(long rawContactId) throws IOException {
+    File file = displayPhotoFile(rawContactId);
+    return file.exists() ? Files.readAllBytes(file.toPath()) : null;
+  }
+
+  private File displayPhotoFile(long rawContactId) {
+    return new File(getContext().getCacheDir(), "display_photo_" + rawContactId);
+  }
+
+  private Cursor phoneLookup(String number, String[] projection) {
+    String[] columns = projection != null ? projection
+        : new String[]{BaseColumns._ID, ContactsContract.Contacts.DISPLAY_NAME};
+    MatrixCursor result = new MatrixCursor(columns);
+    String digits = digitsSuffix(number);
+    if (digits.isEmpty()) return result;
+
+    LinkedHashSet<Long> matches = new LinkedHashSet<>();
+    try (Cursor cursor = db.query("view_data", new String[]{"contact_id", "data1"}, "mimetype = ?",
+        new String[]{CommonDataKinds.Phone.CONTENT_ITEM_TYPE}, null, null, null)) {
+      while (cursor.moveToNext()) {
+        if (digits.equals(digitsSuffix(cursor.getString(1)))) matches.add(cursor.getLong(0));
+      }
+    }
+    for (long contactId : matches) {
+      String displayName = null;
+      try (Cursor cursor = db.query("contacts", new String[]{"display_name"}, "_id = ?",
+          new String[]{String.valueOf(contactId)}, null, null, null)) {
+        if (cursor.moveToFirst()) displayName = cursor.getString(0);
+      }
+      Object[] row = new Object[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        if (BaseColumns._ID.equals(columns[i]) || "contact_id".equals(columns[i])) {
+          row[i] = contactId;
+        } else if (ContactsContract.Contacts.DISPLAY_NAME.equals(columns[i])) {
+          row[i] = displayName;
+        }
+      }
+      result.addRow(row);
+    }
+    return result;
+  }
+
+  // Like the platform's loose phone matching: compare the trailing digits only.
+  private static String digitsSuffix(String number) {
+    if (number == null) return "";
+    StringBuilder digits = new StringBuilder();
+    for (int i = 0; i < number.length(); i++) {
+      char c = number.charAt(i);
+      if (c >= '0' && c <= '9') digits.append(c);
+    }
+    return digits.length() > 7 ? digits.substring(digits.length() - 7) : digits.toString();
+  }
+
+  private List<Long> rawContactsOfData(String selection, String[] selectionArgs) {
+    ArrayList<Long> rawIds = new ArrayList<>();
+    try (Cursor cursor = db.query(true, "view_data", new String[]{"raw_contact_id"}, selection, selectionArgs,
+        null, null, null, null)) {
+      while (cursor.moveToNext()) rawIds.add(cursor.getLong(0));
+    }
+    return rawIds;
+  }
+
+  private void touchAllDirty(String selection, String[] selectionArgs) {
+    try (Cursor cursor = db.query(true, "raw_contacts", new String[]{"_id"}, selection, selectionArgs,
+        null, null, null, null)) {
+      while (cursor.moveToNext()) touchRaw(cursor.getLong(0));
+    }
+  }
+
+  private void touchRaw(Long rawContactId) {
+    if (rawContactId == null) return;
+    db.execSQL("UPDATE raw_contacts SET last_updated = ? WHERE _id = ?", new Object[]{tick(), rawContactId});
+    Long contactId = contactIdOfRaw(rawContactId);
+    if (contactId != null) markDirty(contactId);
+  }
+
+  private Long contactIdOfRaw(long rawContactId) {
+    try (Cursor cursor = db.query("raw_contacts", new String[]{"contact_id"}, "_id = ?",
+        new String[]{String.valueOf(rawContactId)}, null, null, null)) {
+      return cursor.moveToFirst() ? cursor.getLong(0) : null;
+    }
+  }
+
+  private void markDirty(long contactId) {
+    dirtyContacts.add(contactId);
+  }
+
+  // Provider timestamps are wall-clock millis; keep them strictly increasing for tests.
+  private long tick() {
+    clock = Math.max(clock + 1, System.currentTimeMillis());
+    return clock;
+  }
+
+  private void commitIfIdle() {
+    if (inBatch) return;
+    refreshDirty();
+    notifyChanged();
+  }
+
+  private void refreshDirty() {
+    for (long contactId : dirtyContacts) {
+      String id = String.valueOf(contactId);
+      db.execSQL(REFRESH_CONTACTS + "r.contact_id = ? GROUP BY r.contact_id", new Object[]{contactId});
+      boolean exists;
+      try (Cursor cursor = db.query("raw_contacts", new String[]{"_id"}, "contact_id = ?", new String[]{id},
+          null, null, null, "1")) {
+        exists = cursor.moveToFirst();
+      }
+      if (exists) {
+        db.delete("deleted_contacts", "contact_id = ?", new String[]{id});
+      } else {
+        db.delete("contacts", "_id = ?", new String[]{id});
+        ContentValues deleted = new ContentValues();
+        deleted.put(ContactsContract.DeletedContacts.CONTACT_ID, contactId);
+        deleted.put(ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP, tick());
+        db.insertWithOnConflict("deleted_contacts", null, deleted, SQLiteDatabase.CONFLICT_REPLACE);
+      }
+    }
+    dirtyContacts.clear();
+  }
+
+  private void notifyChanged() {
+    if (getContext() != null) {
+      getContext().getContentResolver().notifyChange(ContactsContract.Contacts.CONTENT_URI, null);
+    }
+  }
+
+  private static String and(String clause, String selection) {
+    return selection == null || selection.isEmpty() ? clause : clause + " AND (" + selection + ")";
+  }
+
+  private static String where(String selection) {
+    return selection == null || selection.isEmpty() ? "" : " WHERE " + selection;
+  }
+}
@@ -0,0 +1,70 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.res.Resources;
+import android.provider.ContactsContract.CommonDataKinds.Email;
+import android.provider.ContactsContract.CommonDataKinds.Phone;
+import android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class LabelTablesTest {
+
+  @Test
+  public void raw_keepsEnglishLabelsAndSharesCustomLabels() {
+    LabelTables tables = LabelTables.get(null, false);
+
+    assertThat(tables.phone(Phone.TYPE_FAX_WORK, null)).isEqualTo("fax work");
+    assertThat(tables.phone(Phone.TYPE_MMS, null)).isEqualTo("other");
+    assertThat(tables.phone(99, null)).isEqualTo("other");
+    assertThat(tables.email(Email.TYPE_MOBILE, null)).isEqualTo("mobile");
+    assertThat(tables.postal(StructuredPostal.TYPE_CUSTOM, "Dacha")).isEqualTo("Dacha");
+    String first = tables.phone(Phone.TYPE_CUSTOM, new String("Dacha"));
+    assertThat(first).isEqualTo("dacha");
+    assertThat(tables.phone(Phone.TYPE_CUSTOM, new String("Dacha"))).isSameInstanceAs(first);
+  }
+
+  @Test
+  public void localized_matchesPlatformLabelsForEveryType() {
+    Resources resources = ApplicationProvider.getApplicationContext().getResources();
+    LabelTables tables = LabelTables.get(resources, true);
+
+    for (int type = -1; type <= Phone.TYPE_MMS + 1; type++) {
+      String expected = Phone.getTypeLabel(resources, type, "").toString().toLowerCase();
+      assertThat(tables.phone(type, "ignored")).isEqualTo(expected);
+    }
+    for (int type = -1; type <= Email.TYPE_MOBILE + 1; type++) {
+      String expected = Email.getTypeLabel(resources, type, "").toString().toLowerCase();
+      assertThat(tables.email(type, "ignored")).isEqualTo(expected);
+    }
+    for (int type = -1; type <= StructuredPostal.TYPE_OTHER + 1; type++) {
+      String expected = StructuredPostal.getTypeLabel(resources, type, "").toString().toLowerCase();
+      assertThat(tables.postal(type, "ignored")).isEqualTo(expected);
+    }
+    // Unlike raw labels, an unknown type reads as the platform's custom label, not "other".
+    assertThat(tables.phone(99, null)).isEqualTo(tables.phone(Phone.TYPE_CUSTOM, null));
+    assertThat(tables.email(99, null)).isEqualTo(tables.email(Email.TYPE_CUSTOM, null));
+    assertThat(tables.phone(Phone.TYPE_HOME, null)).isSameInstanceAs(tables.phone(Phone.TYPE_HOME, null));
+  }
+
+  @Test
+  public void localized_isRebuiltWhenLocaleChanges() {
+    Resources resources = ApplicationProvider.getApplicationContext().getResources();
+    LabelTables english = LabelTables.get(resources, true);
+    assertThat(LabelTables.get(resources, true)).isSameInstanceAs(english);
+
+    RuntimeEnvironment.setQualifiers("fr");
+    Resources french = ApplicationProvider.getApplicationContext().getResources();
+
+    assertThat(LabelTables.get(french, true)).isNotSameInstanceAs(english);
+  }
+}
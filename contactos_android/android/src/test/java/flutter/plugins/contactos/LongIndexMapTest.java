@@ -0,0 +1,38 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+public class LongIndexMapTest {
+
+  @Test
+  public void get_missingKey() {
+    LongIndexMap map = new LongIndexMap(4);
+
+    assertThat(map.get(42L)).isEqualTo(LongIndexMap.MISSING);
+  }
+
+  @Test
+  public void put_overwritesExistingKey() {
+    LongIndexMap map = new LongIndexMap(4);
+    map.put(7L, 1);
+    map.put(7L, 2);
+
+    assertThat(map.get(7L)).isEqualTo(2);
+    assertThat(map.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void put_growsPastExpectedSize() {
+    LongIndexMap map = new LongIndexMap(2);
+    for (int i = 0; i < 10_000; i++) {
+      map.put(i * 31L - 5_000, i);
+    }
+
+    assertThat(map.size()).isEqualTo(10_000);
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(map.get(i * 31L - 5_000)).isEqualTo(i);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class MutationQueueTest {
+
+  private static final ContactosPlugin.PhotoOptions PHOTO = ContactosPlugin.PhotoOptions.NONE;
+
+  @Test
+  public void enqueue_reportsWhenTheQueueWasEmpty() {
+    MutationQueue queue = new MutationQueue();
+
+    assertThat(queue.enqueue(MutationQueue.ADD, new Contact(null), PHOTO, new RecordingResult())).isTrue();
+    assertThat(queue.enqueue(MutationQueue.ADD, new Contact(null), PHOTO, new RecordingResult())).isFalse();
+    assertThat(queue.drain()).hasSize(2);
+    assertThat(queue.enqueue(MutationQueue.ADD, new Contact(null), PHOTO, new RecordingResult())).isTrue();
+  }
+
+  @Test
+  public void successiveUpdates_collapseIntoTheLatest() {
+    MutationQueue queue = new MutationQueue();
+    RecordingResult first = new RecordingResult();
+    RecordingResult second = new RecordingResult();
+    Contact latest = new Contact("7");
+
+    queue.enqueue(MutationQueue.UPDATE, new Contact("7"), PHOTO, first);
+    queue.enqueue(MutationQueue.UPDATE, new Contact("8"), PHOTO, new RecordingResult());
+    queue.enqueue(MutationQueue.UPDATE, latest, PHOTO, second);
+
+    ArrayList<MutationQueue.Mutation> drained = queue.drain();
+    assertThat(drained).hasSize(2);
+    assertThat(drained.get(0).contact).isSameInstanceAs(latest);
+    assertThat(drained.get(0).results).containsExactly(first, second).inOrder();
+  }
+
+  @Test
+  public void updateThenDelete_isJustTheDelete() {
+    MutationQueue queue = new MutationQueue();
+    RecordingResult update = new RecordingResult();
+    RecordingResult delete = new RecordingResult();
+
+    queue.enqueue(MutationQueue.UPDATE, new Contact("7"), PHOTO, update);
+    queue.enqueue(MutationQueue.ADD, new Contact(null), PHOTO, new RecordingResult());
+    queue.enqueue(MutationQueue.DELETE, new Contact("7"), PHOTO, delete);
+
+    ArrayList<MutationQueue.Mutation> drained = queue.drain();
+    assertThat(drained).hasSize(2);
+    assertThat(drained.get(0).type).isEqualTo(MutationQueue.ADD);
+    assertThat(drained.get(1).type).isEqualTo(MutationQueue.DELETE);
+    assertThat(drained.get(1).results).containsExactly(update, delete).inOrder();
+  }
+
+  @Test
+  public void updateAfterDelete_isKeptInOrder() {
+    MutationQueue queue = new MutationQueue();
+
+    queue.enqueue(MutationQueue.DELETE, new Contact("7"), PHOTO, new RecordingResult());
+    queue.enqueue(MutationQueue.UPDATE, new Contact("7"), PHOTO, new RecordingResult());
+    queue.enqueue(MutationQueue.ADD, new Contact(null), PHOTO, new RecordingResult());
+    queue.enqueue(MutationQueue.ADD, new Contact(null), PHOTO, new RecordingResult());
+
+    ArrayList<MutationQueue.Mutation> drained = queue.drain();
+    assertThat(drained).hasSize(4);
+    assertThat(drained.get(0).type).isEqualTo(MutationQueue.DELETE);
+    assertThat(drained.get(1).type).isEqualTo(MutationQueue.UPDATE);
+  }
+}
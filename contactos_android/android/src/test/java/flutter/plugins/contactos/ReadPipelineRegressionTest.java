@@ -0,0 +1,64 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+import static flutter.plugins.contactos.ReadPipelineBudget.LARGE;
+import static flutter.plugins.contactos.ReadPipelineBudget.SEED;
+import static flutter.plugins.contactos.ReadPipelineBudget.SMALL;
+import static flutter.plugins.contactos.ReadPipelineBudget.measure;
+import static flutter.plugins.contactos.ReadPipelineBudget.rowsPerMilli;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+
+/**
+ * Guards the read pipeline against per-row allocations and superlinear work with checks that do
+ * not depend on how fast the machine is: allocation is deterministic, and growth compares two
+ * sizes measured in the same run. Absolute throughput lives in
+ * {@link ReadPipelineThroughputBenchmark}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ReadPipelineRegressionTest {
+
+  private static ReadPipelineBudget budget;
+
+  @BeforeClass
+  public static void loadBaseline() throws IOException {
+    budget = ReadPipelineBudget.load();
+  }
+
+  @Test
+  public void allocationPerContact_staysWithinBaseline() {
+    BenchmarkHarness.Result result = measure(new SyntheticAddressBook(SEED, LARGE), LARGE);
+
+    double limit = budget.number("bytesPerContact") * budget.number("allocationTolerance");
+    assertWithMessage("bytes per contact, baseline %s", (long) budget.number("bytesPerContact"))
+        .that(result.bytesPerItem()).isAtMost(limit);
+  }
+
+  @Test
+  public void allocationPerContact_doesNotGrowWithSize() {
+    double small = measure(new SyntheticAddressBook(SEED, SMALL), SMALL).bytesPerItem();
+    double large = measure(new SyntheticAddressBook(SEED, LARGE), LARGE).bytesPerItem();
+
+    assertWithMessage("bytes per contact at %s contacts relative to %s", LARGE, SMALL)
+        .that(large / small).isAtMost(budget.number("maxAllocationGrowth"));
+  }
+
+  @Test
+  public void costPerRow_growsLinearly() {
+    SyntheticAddressBook small = new SyntheticAddressBook(SEED, SMALL);
+    SyntheticAddressBook large = new SyntheticAddressBook(SEED, LARGE);
+    // The large run goes second, so it never pays for the JIT warming up.
+    double smallRate = rowsPerMilli(small, measure(small, SMALL));
+    double largeRate = rowsPerMilli(large, measure(large, LARGE));
+
+    assertWithMessage("per-row cost at %s contacts relative to %s", LARGE, SMALL)
+        .that(smallRate / largeRate).isAtMost(budget.number("maxPerRowGrowth"));
+  }
+}
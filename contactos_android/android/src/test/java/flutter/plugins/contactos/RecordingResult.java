@@ -0,0 +1,65 @@
+package flutter.plugins.contactos;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/** Captures a method channel reply, pumping the main looper while background work finishes. */
+final class RecordingResult implements MethodChannel.Result {
+
+  private static final long TIMEOUT_MILLIS = 10_000;
+
+  private volatile boolean done;
+  volatile Object value;
+  volatile String errorMessage;
+  volatile boolean notImplemented;
+
+  @Override
+  public void success(Object result) {
+    value = result;
+    done = true;
+  }
+
+  @Override
+  public void error(String errorCode, String errorMessage, Object errorDetails) {
+    this.errorMessage = errorMessage;
+    done = true;
+  }
+
+  @Override
+  public void notImplemented() {
+    notImplemented = true;
+    done = true;
+  }
+
+  boolean isDone() {
+    return done;
+  }
+
+  /** Waits for the reply and returns its error message, failing on success and timeouts. */
+  String awaitError() throws InterruptedException {
+    waitForReply();
+    if (errorMessage == null) throw new AssertionError("Method succeeded with " + value);
+    return errorMessage;
+  }
+
+  /** Waits for the reply and returns the success value, failing on errors and timeouts. */
+  @SuppressWarnings("unchecked")
+  <T> T await() throws InterruptedException {
+    waitForReply();
+    if (errorMessage != null) throw new AssertionError("Method failed: " + errorMessage);
+    if (notImplemented) throw new AssertionError("Method not implemented");
+    return (T) value;
+  }
+
+  private void waitForReply() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (!done) {
+      if (System.currentTimeMillis() > deadline) throw new AssertionError("No reply within " + TIMEOUT_MILLIS + "ms");
+      shadowOf(Looper.getMainLooper()).idle();
+      Thread.sleep(2);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.database.MatrixCursor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class StringPoolTest {
+
+  @Test
+  public void get_returnsOneInstancePerDistinctValue() {
+    MatrixCursor cursor = new MatrixCursor(new String[]{"account_type"});
+    cursor.addRow(new Object[]{new String("com.google")});
+    cursor.addRow(new Object[]{null});
+    cursor.addRow(new Object[]{new String("com.google")});
+    cursor.addRow(new Object[]{""});
+    StringPool pool = new StringPool();
+
+    ArrayList<String> values = new ArrayList<>();
+    while (cursor.moveToNext()) values.add(pool.get(cursor, 0));
+
+    assertThat(values.get(0)).isEqualTo("com.google");
+    assertThat(values.get(1)).isNull();
+    assertThat(values.get(2)).isSameInstanceAs(values.get(0));
+    assertThat(values.get(3)).isEqualTo("");
+    assertThat(pool.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void intern_sharesInstancesAcrossGrowth() {
+    StringPool pool = new StringPool();
+    String first = pool.intern(new String("Acme"));
+    for (int i = 0; i < 1000; i++) pool.intern("company " + i);
+
+    assertThat(pool.intern(new String("Acme"))).isSameInstanceAs(first);
+    assertThat(pool.intern(null)).isNull();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void dictionary_encodesRepeatedFieldsAsIndices() {
+    Contact a = new Contact("1");
+    a.company = "Acme";
+    a.androidAccountType = "com.google";
+    a.addPhone(new Item("mobile", "+100", 2));
+    Contact b = new Contact("2");
+    b.company = "Acme";
+    b.androidAccountType = "com.google";
+    b.addPhone(new Item("mobile", "+200", 2));
+    StringDictionary dictionary = new StringDictionary();
+
+    HashMap<String, Object> first = a.toMap(dictionary);
+    HashMap<String, Object> second = b.toMap(dictionary);
+
+    List<String> strings = dictionary.strings();
+    assertThat(second.get("company")).isEqualTo(first.get("company"));
+    assertThat(strings.get((Integer) first.get("company"))).isEqualTo("Acme");
+    assertThat(strings.get((Integer) first.get("androidAccountType"))).isEqualTo("com.google");
+    assertThat(first.get("jobTitle")).isNull();
+    HashMap<String, Object> phone = ((List<HashMap<String, Object>>) second.get("phones")).get(0);
+    assertThat(strings.get((Integer) phone.get("label"))).isEqualTo("mobile");
+    assertThat(phone.get("value")).isEqualTo("+200");
+    assertThat(strings).hasSize(3);
+  }
+}
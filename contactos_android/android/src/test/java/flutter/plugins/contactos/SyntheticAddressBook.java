@@ -0,0 +1,230 @@
+package flutter.plugins.contactos;
+
+import android.database.MatrixCursor;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.CommonDataKinds;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Seeded generator of {@link ContactsContract.Data} rows shaped like the rows the plugin reads.
+ *
+ * <p>The same seed and size always produce the same address book, so benchmark and regression
+ * numbers are comparable between runs. Books mix several accounts, contacts aggregated from
+ * more than one raw contact, custom labels, postal addresses, avatars and non-Latin names.
+ */
+final class SyntheticAddressBook {
+
+  /** Distinct Data columns; the plugin resolves every field by column name. */
+  static final String[] DATA_COLUMNS = {
+      ContactsContract.Data._ID,
+      ContactsContract.Data.RAW_CONTACT_ID,
+      ContactsContract.Data.CONTACT_ID,
+      ContactsContract.Contacts.DISPLAY_NAME,
+      ContactsContract.Data.MIMETYPE,
+      ContactsContract.RawContacts.ACCOUNT_TYPE,
+      ContactsContract.RawContacts.ACCOUNT_NAME,
+      "data1", "data2", "data3", "data4", "data5", "data6", "data7", "data8", "data9", "data10",
+      "data15",
+  };
+
+  static final int COLUMN_DATA_ID = 0;
+  static final int COLUMN_RAW_CONTACT_ID = 1;
+  static final int COLUMN_CONTACT_ID = 2;
+  static final int COLUMN_DISPLAY_NAME = 3;
+  static final int COLUMN_MIMETYPE = 4;
+  static final int COLUMN_ACCOUNT_TYPE = 5;
+  static final int COLUMN_ACCOUNT_NAME = 6;
+  static final int COLUMN_DATA1 = 7;
+  static final int COLUMN_DATA15 = 17;
+
+  /** Smallest valid PNG (1x1, transparent), used as avatar payload. */
+  static final byte[] AVATAR_PNG = {
+      (byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A, 0x00, 0x00, 0x00, 0x0D, 0x49, 0x48, 0x44, 0x52,
+      0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x01, 0x08, 0x06, 0x00, 0x00, 0x00, 0x1F, 0x15, (byte) 0xC4,
+      (byte) 0x89, 0x00, 0x00, 0x00, 0x0A, 0x49, 0x44, 0x41, 0x54, 0x78, (byte) 0x9C, 0x63, 0x00, 0x01, 0x00,
+      0x00, 0x05, 0x00, 0x01, 0x0D, 0x0A, 0x2D, (byte) 0xB4, 0x00, 0x00, 0x00, 0x00, 0x49, 0x45, 0x4E, 0x44,
+      (byte) 0xAE, 0x42, 0x60, (byte) 0x82,
+  };
+
+  private static final String[][] GIVEN_NAMES = {
+      {"Anna", "Boris", "Clara", "Dmitri", "Elena", "Felix", "Greta", "Hugo", "Irina", "Jonas"},
+      {"Анна", "Иван", "Ольга", "Сергей", "Мария", "Алексей"},
+      {"伟", "芳", "娜", "敏", "静"},
+      {"محمد", "فاطمة", "علي", "مريم"},
+      {"Νίκος", "Ελένη", "Γιώργος"},
+  };
+  private static final String[][] FAMILY_NAMES = {
+      {"Ivanova", "Smith", "Müller", "Garcia", "Rossi", "Novak", "Kowalski", "Dubois", "Silva", "Berg"},
+      {"Иванова", "Петров", "Смирнова", "Кузнецов", "Попов"},
+      {"王", "李", "张", "刘", "陈"},
+      {"الحسن", "العلي", "الزهراء"},
+      {"Παπαδόπουλος", "Οικονόμου"},
+  };
+  // Roughly three Latin-script contacts for every non-Latin one.
+  private static final int[] SCRIPT_WEIGHTS = {0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 2, 3, 4};
+
+  private static final String[][] ACCOUNTS = {
+      {"com.google", "alice@gmail.com"},
+      {"com.google", "alice@work.example.com"},
+      {"com.android.exchange", "alice@corp.example.com"},
+      {null, null},
+  };
+  private static final String[] SECONDARY_ACCOUNT = {"com.whatsapp", "WhatsApp"};
+
+  private static final String[] COMPANIES = {"Acme", "Globex", "Initech", "Umbrella", "Яндекс", null, null};
+  private static final String[] TITLES = {"Engineer", "Manager", "Designer", null};
+  private static final String[][] CITIES = {
+      {"Berlin", "Berlin", "Germany"},
+      {"Madrid", "Madrid", "Spain"},
+      {"Москва", "Москва", "Россия"},
+      {"Paris", "Île-de-France", "France"},
+      {"北京", "北京", "中国"},
+  };
+  private static final int[] PHONE_TYPES = {
+      CommonDataKinds.Phone.TYPE_MOBILE,
+      CommonDataKinds.Phone.TYPE_MOBILE,
+      CommonDataKinds.Phone.TYPE_HOME,
+      CommonDataKinds.Phone.TYPE_WORK,
+      CommonDataKinds.Phone.TYPE_MAIN,
+      CommonDataKinds.Phone.TYPE_OTHER,
+      CommonDataKinds.Phone.TYPE_CUSTOM,
+  };
+  private static final int[] EMAIL_TYPES = {
+      CommonDataKinds.Email.TYPE_HOME,
+      CommonDataKinds.Email.TYPE_WORK,
+      CommonDataKinds.Email.TYPE_OTHER,
+  };
+  private static final String[] CUSTOM_LABELS = {"Dacha", "Satellite", "Дача"};
+
+  private final ArrayList<Object[]> rows = new ArrayList<>();
+  private final int contactCount;
+
+  SyntheticAddressBook(long seed, int contactCount) {
+    this.contactCount = contactCount;
+    Random random = new Random(seed);
+    long dataId = 1;
+    long rawContactId = 1;
+    for (int i = 0; i < contactCount; i++) {
+      long contactId = i + 1;
+      int script = SCRIPT_WEIGHTS[random.nextInt(SCRIPT_WEIGHTS.length)];
+      String given = pick(random, GIVEN_NAMES[script]);
+      String family = pick(random, FAMILY_NAMES[script]);
+      String displayName = script == 2 ? family + given : given + " " + family;
+      String[] account = ACCOUNTS[random.nextInt(ACCOUNTS.length)];
+      long rawId = rawContactId++;
+
+      rows.add(row(dataId++, rawId, contactId, displayName, account, CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE,
+          displayName, given, family, null, null, null, null, null, null, null));
+
+      int phones = 1 + random.nextInt(3);
+      for (int p = 0; p < phones; p++) {
+        int type = PHONE_TYPES[random.nextInt(PHONE_TYPES.length)];
+        String label = type == CommonDataKinds.Phone.TYPE_CUSTOM ? pick(random, CUSTOM_LABELS) : null;
+        rows.add(row(dataId++, rawId, contactId, displayName, account, CommonDataKinds.Phone.CONTENT_ITEM_TYPE,
+            phoneNumber(random), String.valueOf(type), label, null, null, null, null, null, null, null));
+      }
+
+      int emails = random.nextInt(3);
+      String localPart = script == 0 ? given.toLowerCase(Locale.ROOT) + "." + family.toLowerCase(Locale.ROOT) : "user" + contactId;
+      for (int e = 0; e < emails; e++) {
+        rows.add(row(dataId++, rawId, contactId, displayName, account, CommonDataKinds.Email.CONTENT_ITEM_TYPE,
+            localPart + e + "@example.com", String.valueOf(pick(random, EMAIL_TYPES)), null,
+            null, null, null, null, null, null, null));
+      }
+
+      String company = pick(random, COMPANIES);
+      if (company != null) {
+        rows.add(row(dataId++, rawId, contactId, displayName, account, CommonDataKinds.Organization.CONTENT_ITEM_TYPE,
+            company, String.valueOf(CommonDataKinds.Organization.TYPE_WORK), null, pick(random, TITLES),
+            null, null, null, null, null, null));
+      }
+
+      int addresses = random.nextInt(4) == 0 ? 1 + random.nextInt(2) : 0;
+      for (int a = 0; a < addresses; a++) {
+        String[] city = CITIES[random.nextInt(CITIES.length)];
+        String street = (1 + random.nextInt(200)) + " Main St";
+        rows.add(row(dataId++, rawId, contactId, displayName, account, CommonDataKinds.StructuredPostal.CONTENT_ITEM_TYPE,
+            street + ", " + city[0], String.valueOf(a == 0 ? CommonDataKinds.StructuredPostal.TYPE_HOME
+                : CommonDataKinds.StructuredPostal.TYPE_WORK), null,
+            street, null, null, city[0], city[1], String.valueOf(10000 + random.nextInt(90000)), city[2]));
+      }
+
+      if (random.nextInt(4) == 0) {
+        // Roughly a third of birthdays come from sources that omit the year.
+        String birthday = random.nextInt(3) == 0
+            ? String.format(Locale.ROOT, "--%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28))
+            : String.format(Locale.ROOT, "%04d-%02d-%02d", 1950 + random.nextInt(60), 1 + random.nextInt(12),
+                1 + random.nextInt(28));
+        rows.add(row(dataId++, rawId, contactId, displayName, account, CommonDataKinds.Event.CONTENT_ITEM_TYPE,
+            birthday, String.valueOf(CommonDataKinds.Event.TYPE_BIRTHDAY), null,
+            null, null, null, null, null, null, null));
+      }
+
+      if (random.nextInt(10) == 0) {
+        rows.add(row(dataId++, rawId, contactId, displayName, account, CommonDataKinds.Note.CONTENT_ITEM_TYPE,
+            "Met at conference #" + random.nextInt(50), null, null, null, null, null, null, null, null, null));
+      }
+
+      if (random.nextInt(5) == 0) {
+        Object[] photo = row(dataId++, rawId, contactId, displayName, account, CommonDataKinds.Photo.CONTENT_ITEM_TYPE,
+            null, null, null, null, null, null, null, null, null, null);
+        photo[COLUMN_DATA15] = AVATAR_PNG;
+        rows.add(photo);
+      }
+
+      // Some contacts are aggregated with a raw contact from a messenger account.
+      if (random.nextInt(10) == 0) {
+        long secondRawId = rawContactId++;
+        rows.add(row(dataId++, secondRawId, contactId, displayName, SECONDARY_ACCOUNT,
+            CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE,
+            displayName, given, family, null, null, null, null, null, null, null));
+        rows.add(row(dataId++, secondRawId, contactId, displayName, SECONDARY_ACCOUNT,
+            CommonDataKinds.Phone.CONTENT_ITEM_TYPE,
+            phoneNumber(random), String.valueOf(CommonDataKinds.Phone.TYPE_MOBILE), null,
+            null, null, null, null, null, null, null));
+      }
+    }
+  }
+
+  int contactCount() {
+    return contactCount;
+  }
+
+  List<Object[]> dataRows() {
+    return rows;
+  }
+
+  /** Returns a fresh cursor over all generated rows; the plugin closes cursors it reads. */
+  MatrixCursor newDataCursor() {
+    MatrixCursor cursor = new MatrixCursor(DATA_COLUMNS, rows.size());
+    for (Object[] row : rows) {
+      cursor.addRow(row);
+    }
+    return cursor;
+  }
+
+  private static String phoneNumber(Random random) {
+    return String.format(Locale.ROOT, "+1 555 %03d %04d", random.nextInt(1000), random.nextInt(10000));
+  }
+
+  private static <T> T pick(Random random, T[] values) {
+    return values[random.nextInt(values.length)];
+  }
+
+  private static int pick(Random random, int[] values) {
+    return values[random.nextInt(values.length)];
+  }
+
+  private static Object[] row(long dataId, long rawContactId, long contactId, String displayName, String[] account,
+      String mimeType, Object data1, Object data2, Object data3, Object data4, Object data5, Object data6,
+      Object data7, Object data8, Object data9, Object data10) {
+    return new Object[]{
+        dataId, rawContactId, contactId, displayName, mimeType, account[0], account[1],
+        data1, data2, data3, data4, data5, data6, data7, data8, data9, data10, null,
+    };
+  }
+}
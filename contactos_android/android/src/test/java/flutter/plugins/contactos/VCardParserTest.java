@@ -0,0 +1,151 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.res.Resources;
+import android.provider.ContactsContract.CommonDataKinds;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class VCardParserTest {
+
+  @Test
+  public void next_readsStructuredFields() throws Exception {
+    Contact contact = parseOne(
+        "BEGIN:VCARD\r\n"
+            + "VERSION:3.0\r\n"
+            + "FN:Jane Doe\r\n"
+            + "N:Doe;Jane;Q;Dr.;PhD\r\n"
+            + "ORG:Acme\\, Inc.;R&D\r\n"
+            + "TITLE:Engineer\r\n"
+            + "item1.TEL;TYPE=CELL,VOICE:+1 555 0100\r\n"
+            + "TEL;TYPE=X-Dacha:+1 555 0101\r\n"
+            + "EMAIL;TYPE=WORK:jane@example.com\r\n"
+            + "ADR;TYPE=HOME:;;1 Main St;Springfield;IL;62701;USA\r\n"
+            + "BDAY:--04-12\r\n"
+            + "NOTE:first\\nsecond\r\n"
+            + "END:VCARD\r\n");
+
+    assertThat(contact.displayName).isEqualTo("Jane Doe");
+    assertThat(contact.familyName).isEqualTo("Doe");
+    assertThat(contact.givenName).isEqualTo("Jane");
+    assertThat(contact.middleName).isEqualTo("Q");
+    assertThat(contact.prefix).isEqualTo("Dr.");
+    assertThat(contact.suffix).isEqualTo("PhD");
+    assertThat(contact.company).isEqualTo("Acme, Inc.");
+    assertThat(contact.jobTitle).isEqualTo("Engineer");
+    assertThat(contact.phones.get(0).type).isEqualTo(CommonDataKinds.Phone.TYPE_MOBILE);
+    assertThat(contact.phones.get(1).type).isEqualTo(CommonDataKinds.Phone.TYPE_CUSTOM);
+    assertThat(contact.phones.get(1).label).isEqualTo("Dacha");
+    assertThat(contact.emails.get(0).type).isEqualTo(CommonDataKinds.Email.TYPE_WORK);
+    PostalAddress address = contact.postalAddresses.get(0);
+    assertThat(address.street).isEqualTo("1 Main St");
+    assertThat(address.city).isEqualTo("Springfield");
+    assertThat(address.region).isEqualTo("IL");
+    assertThat(address.postcode).isEqualTo("62701");
+    assertThat(address.country).isEqualTo("USA");
+    assertThat(contact.birthday).isEqualTo("--04-12");
+    assertThat(contact.note).isEqualTo("first\nsecond");
+  }
+
+  @Test
+  public void next_decodesVersion21QuotedPrintableAndFolding() throws Exception {
+    Contact contact = parseOne(
+        "BEGIN:VCARD\n"
+            + "VERSION:2.1\n"
+            + "N;CHARSET=UTF-8;ENCODING=QUOTED-PRINTABLE:=D0=98=D0=B2=D0=B0=D0=BD=D0=BE=D0=B2=D0=B0;=D0=90=\n"
+            + "=D0=BD=D0=BD=D0=B0\n"
+            + "TEL;CELL:+7 900\n"
+            + " 000 0000\n"
+            + "END:VCARD\n");
+
+    assertThat(contact.familyName).isEqualTo("Иванова");
+    assertThat(contact.givenName).isEqualTo("Анна");
+    assertThat(contact.phones.get(0).value).isEqualTo("+7 900000 0000");
+  }
+
+  @Test
+  public void next_normalizesVersion4Dates() throws Exception {
+    assertThat(parseOne("BEGIN:VCARD\nVERSION:4.0\nFN:A\nBDAY:19850412\nEND:VCARD\n").birthday)
+        .isEqualTo("1985-04-12");
+    assertThat(parseOne("BEGIN:VCARD\nVERSION:4.0\nFN:A\nBDAY:--0412\nEND:VCARD\n").birthday)
+        .isEqualTo("--04-12");
+  }
+
+  @Test
+  public void next_fallsBackToFormattedNameWithoutN() throws Exception {
+    assertThat(parseOne("BEGIN:VCARD\nVERSION:3.0\nFN:Cher\nEND:VCARD\n").givenName).isEqualTo("Cher");
+  }
+
+  @Test
+  public void next_skipsMalformedCardsAndContinues() throws Exception {
+    String input = "BEGIN:VCARD\nVERSION:3.0\nFN:First\nEND:VCARD\n"
+        + "BEGIN:VCARD\nVERSION:3.0\nthis line has no separator\nEND:VCARD\n"
+        + "BEGIN:VCARD\nVERSION:3.0\nFN:Unterminated\n"
+        + "BEGIN:VCARD\nVERSION:3.0\nFN:Last\nEND:VCARD\n";
+    List<String> names = new ArrayList<>();
+    List<Integer> failedCards = new ArrayList<>();
+
+    try (VCardParser parser = new VCardParser(new StringReader(input))) {
+      while (true) {
+        try {
+          Contact contact = parser.next();
+          if (contact == null) break;
+          names.add(contact.displayName);
+        } catch (VCardParser.CardException e) {
+          failedCards.add(e.card);
+        }
+      }
+    }
+
+    assertThat(names).containsExactly("First", "Last").inOrder();
+    assertThat(failedCards).containsExactly(2, 3).inOrder();
+  }
+
+  @Test
+  public void writerOutput_roundTrips() throws Exception {
+    Resources resources = ApplicationProvider.getApplicationContext().getResources();
+    ArrayList<Contact> contacts =
+        ContactosPlugin.getContactsFrom(new SyntheticAddressBook(5L, 300).newDataCursor(), resources, false);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (VCardWriter writer = new VCardWriter(out, VCardWriter.VERSION_4)) {
+      for (Contact contact : contacts) writer.write(contact);
+    }
+
+    ArrayList<Contact> parsed = new ArrayList<>();
+    try (VCardParser parser = new VCardParser(new StringReader(out.toString("UTF-8")))) {
+      for (Contact contact = parser.next(); contact != null; contact = parser.next()) parsed.add(contact);
+    }
+
+    assertThat(parsed).hasSize(contacts.size());
+    for (int i = 0; i < contacts.size(); i++) {
+      Contact expected = contacts.get(i);
+      Contact actual = parsed.get(i);
+      assertThat(actual.givenName).isEqualTo(expected.givenName);
+      assertThat(actual.familyName).isEqualTo(expected.familyName);
+      assertThat(actual.company).isEqualTo(expected.company);
+      assertThat(actual.birthday).isEqualTo(expected.birthday);
+      assertThat(actual.phones.size()).isEqualTo(expected.phones.size());
+      assertThat(actual.emails.size()).isEqualTo(expected.emails.size());
+      assertThat(actual.postalAddresses.size()).isEqualTo(expected.postalAddresses.size());
+    }
+  }
+
+  private static Contact parseOne(String vcard) throws Exception {
+    try (VCardParser parser = new VCardParser(new StringReader(vcard))) {
+      return parser.next();
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package flutter.plugins.contactos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.res.Resources;
+import android.provider.ContactsContract.CommonDataKinds;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class VCardWriterTest {
+
+  @Test
+  public void write_v3_escapesAndTypesFields() throws Exception {
+    Contact contact = new Contact("1");
+    contact.displayName = "Doe, Jane";
+    contact.givenName = "Jane";
+    contact.familyName = "Doe";
+    contact.note = "line one\nline; two";
+    contact.birthday = "--04-12";
+    contact.addPhone(new Item("mobile", "+1 555 0100", CommonDataKinds.Phone.TYPE_MOBILE));
+    contact.addPhone(new Item("Dacha", "+1 555 0101", CommonDataKinds.Phone.TYPE_CUSTOM));
+    contact.addEmail(new Item("work", "jane@example.com", CommonDataKinds.Email.TYPE_WORK));
+
+    List<String> lines = unfold(write(VCardWriter.VERSION_3, contact));
+
+    assertThat(lines).containsExactly(
+        "BEGIN:VCARD",
+        "VERSION:3.0",
+        "FN:Doe\\, Jane",
+        "N:Doe;Jane;;;",
+        "TEL;TYPE=CELL:+1 555 0100",
+        "TEL;TYPE=X-Dacha:+1 555 0101",
+        "EMAIL;TYPE=WORK:jane@example.com",
+        "BDAY:--04-12",
+        "NOTE:line one\\nline\\; two",
+        "END:VCARD").inOrder();
+  }
+
+  @Test
+  public void write_v4_usesBasicDatesAndDataUriPhoto() throws Exception {
+    Contact contact = new Contact("1");
+    contact.displayName = "Jane";
+    contact.birthday = "1985-04-12";
+    contact.avatar = SyntheticAddressBook.AVATAR_PNG;
+
+    List<String> lines = unfold(write(VCardWriter.VERSION_4, contact));
+
+    assertThat(lines).contains("BDAY:19850412");
+    boolean photo = false;
+    for (String line : lines) photo |= line.startsWith("PHOTO:data:image/png;base64,iVBORw0KGgo");
+    assertThat(photo).isTrue();
+  }
+
+  @Test
+  public void write_foldsLongLinesWithoutSplittingCharacters() throws Exception {
+    Contact contact = new Contact("1");
+    StringBuilder note = new StringBuilder();
+    for (int i = 0; i < 60; i++) note.append("Дача ");
+    contact.note = note.toString();
+
+    String vcard = write(VCardWriter.VERSION_4, contact);
+
+    for (String line : vcard.split("\r\n")) {
+      assertThat(line.getBytes(StandardCharsets.UTF_8).length).isAtMost(75);
+    }
+    assertThat(unfold(vcard)).contains("NOTE:" + note);
+  }
+
+  @Test
+  public void exportFrom_writesOneCardPerContactAndReportsProgress() throws Exception {
+    Resources resources = ApplicationProvider.getApplicationContext().getResources();
+    SyntheticAddressBook book = new SyntheticAddressBook(3L, 600);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ArrayList<Integer> progress = new ArrayList<>();
+
+    int written;
+    try (VCardWriter writer = new VCardWriter(out, VCardWriter.VERSION_3)) {
+      written = writer.exportFrom(book.newDataCursor(), resources, (contacts, rows, totalRows) -> progress.add(contacts));
+    }
+
+    String vcards = out.toString("UTF-8");
+    assertThat(written).isEqualTo(600);
+    assertThat(vcards.split("BEGIN:VCARD", -1).length - 1).isEqualTo(600);
+    assertThat(vcards).contains("PHOTO;ENCODING=b;TYPE=PNG:");
+    assertThat(progress).containsExactly(250, 500, 600).inOrder();
+  }
+
+  private static String write(String version, Contact contact) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (VCardWriter writer = new VCardWriter(out, version)) {
+      writer.write(contact);
+    }
+    return out.toString("UTF-8");
+  }
+
+  private static List<String> unfold(String vcard) {
+    ArrayList<String> lines = new ArrayList<>();
+    for (String line : vcard.replace("\r\n ", "").split("\r\n")) lines.add(line);
+    return lines;
+  }
+}